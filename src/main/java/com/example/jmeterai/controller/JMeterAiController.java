@@ -2,9 +2,27 @@ package com.example.jmeterai.controller;
 
 import com.example.jmeterai.model.ProjectResult;
 import com.example.jmeterai.model.ExecutionResult;
+import com.example.jmeterai.model.LoadTestConfig;
+import com.example.jmeterai.model.LoadTestResult;
+import com.example.jmeterai.model.PipelineProgress;
+import com.example.jmeterai.model.RegressionConfig;
+import com.example.jmeterai.model.RegressionReport;
+import com.example.jmeterai.model.RunProfile;
+import com.example.jmeterai.model.SlaReport;
+import com.example.jmeterai.model.SlaRule;
+import com.example.jmeterai.model.SpecCacheStats;
 import com.example.jmeterai.model.TestCase;
+import com.example.jmeterai.model.StageStats;
+import com.example.jmeterai.service.LoadTestService;
+import com.example.jmeterai.service.MetricsRegistry;
 import com.example.jmeterai.service.PipelineService;
+import com.example.jmeterai.service.RegressionService;
+import com.example.jmeterai.service.SpecCache;
+import com.example.jmeterai.model.TimeSeries;
+import com.example.jmeterai.util.MetricsSeries;
+import com.example.jmeterai.util.SlaMonitor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -21,30 +39,89 @@ public class JMeterAiController {
     @Autowired
     private PipelineService pipelineService;
 
+    @Autowired
+    private LoadTestService loadTestService;
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Autowired
+    private RegressionService regressionService;
+
+    @Autowired
+    private SpecCache specCache;
+
+    @Value("${SERIES_BUCKET_MS:1000}")
+    private long seriesBucketMs;
+
+    @Value("${SERIES_MAX_BUCKETS:3600}")
+    private int seriesMaxBuckets;
+
     // In-memory task storage
     private final Map<String, TaskInfo> tasks = new ConcurrentHashMap<>();
 
+    @jakarta.annotation.PostConstruct
+    public void registerGauges() {
+        metricsRegistry.gauge("jmeterai_tasks_active", "Tasks currently running", List.of("kind"), () -> {
+            Map<List<String>, Integer> out = new java.util.HashMap<>();
+            for (String kind : List.of("pipeline", "rerun", "load")) out.put(List.of(kind), 0);
+            for (TaskInfo t : tasks.values()) {
+                if ("RUNNING".equals(t.status)) out.merge(List.of(t.kind()), 1, Integer::sum);
+            }
+            return out;
+        });
+        metricsRegistry.gauge("jmeterai_stage_queue_depth", "Items waiting in a running pipeline stage", List.of("task", "stage"),
+                () -> stageGauge(s -> s.queueDepth));
+        metricsRegistry.gauge("jmeterai_stage_active_workers", "Busy workers of a running pipeline stage", List.of("task", "stage"),
+                () -> stageGauge(s -> s.activeWorkers));
+        metricsRegistry.gauge("jmeterai_load_in_flight", "Outstanding requests of a running load test", List.of("task"), () -> {
+            Map<List<String>, Integer> out = new java.util.HashMap<>();
+            for (TaskInfo t : tasks.values()) {
+                if ("RUNNING".equals(t.status) && t.load != null) out.put(List.of(t.taskId), t.load.inFlight);
+            }
+            return out;
+        });
+    }
+
+    private Map<List<String>, Integer> stageGauge(java.util.function.ToIntFunction<StageStats> value) {
+        Map<List<String>, Integer> out = new java.util.HashMap<>();
+        for (TaskInfo t : tasks.values()) {
+            if (!"RUNNING".equals(t.status) || t.progress == null) continue;
+            synchronized (t.progress.stages) {
+                for (StageStats s : t.progress.stages.values()) out.put(List.of(t.taskId, s.name), value.applyAsInt(s));
+            }
+        }
+        return out;
+    }
+
     @PostMapping("/run")
     public RunResponse runProject(@RequestBody RunRequest request) {
+        SlaMonitor sla = newSlaMonitor(request.sla);
         String taskId = UUID.randomUUID().toString();
         TaskInfo task = new TaskInfo();
         task.taskId = taskId;
         task.status = "RUNNING";
         task.startTime = System.currentTimeMillis();
+        task.progress = new PipelineProgress();
+        task.series = newSeries();
+        task.progress.series = task.series;
+        task.slaMonitor = sla;
+        task.progress.sla = sla;
         tasks.put(taskId, task);
 
         // Run async
         CompletableFuture.runAsync(() -> {
             try {
-                ProjectResult result = pipelineService.runPipeline(request.swaggerUrl, request.programName, request.extra, request.tags, request.authorization);
+                ProjectResult result = pipelineService.runPipeline(request.swaggerUrl, request.programName, request.extra, request.tags, request.authorization, null, task.progress);
                 task.result = result;
-                task.status = "COMPLETED";
+                task.status = result.sla != null && result.sla.aborted ? "ABORTED" : "COMPLETED";
             } catch (Exception e) {
                 task.status = "FAILED";
                 task.error = e.getMessage();
                 e.printStackTrace();
             } finally {
                 task.endTime = System.currentTimeMillis();
+                task.series.seal();
             }
         });
 
@@ -56,11 +133,17 @@ public class JMeterAiController {
             @RequestPart("request") RunRequest request,
             @RequestPart(value = "specFile", required = false) MultipartFile specFile
     ) throws Exception {
+        SlaMonitor sla = newSlaMonitor(request.sla);
         String taskId = UUID.randomUUID().toString();
         TaskInfo task = new TaskInfo();
         task.taskId = taskId;
         task.status = "RUNNING";
         task.startTime = System.currentTimeMillis();
+        task.progress = new PipelineProgress();
+        task.series = newSeries();
+        task.progress.series = task.series;
+        task.slaMonitor = sla;
+        task.progress.sla = sla;
         tasks.put(taskId, task);
 
         String markdownSpec = null;
@@ -78,16 +161,18 @@ public class JMeterAiController {
                         request.extra,
                         request.tags,
                         request.authorization,
-                        finalMarkdownSpec
+                        finalMarkdownSpec,
+                        task.progress
                 );
                 task.result = result;
-                task.status = "COMPLETED";
+                task.status = result.sla != null && result.sla.aborted ? "ABORTED" : "COMPLETED";
             } catch (Exception e) {
                 task.status = "FAILED";
                 task.error = e.getMessage();
                 e.printStackTrace();
             } finally {
                 task.endTime = System.currentTimeMillis();
+                task.series.seal();
             }
         });
 
@@ -106,6 +191,9 @@ public class JMeterAiController {
         newTask.taskId = newTaskId;
         newTask.status = "RUNNING";
         newTask.startTime = System.currentTimeMillis();
+        newTask.series = newSeries();
+        // Reruns are held to the gates of the run they replay
+        newTask.slaMonitor = originalTask.slaMonitor == null ? null : new SlaMonitor(originalTask.slaMonitor.rules());
         tasks.put(newTaskId, newTask);
 
         CompletableFuture.runAsync(() -> {
@@ -127,42 +215,180 @@ public class JMeterAiController {
                      }
                 }
                 
-                List<ExecutionResult> newResults = pipelineService.reRunTestCases(originalTask.result.testCases, baseUrl);
+                List<ExecutionResult> newResults = pipelineService.reRunTestCases(originalTask.result.testCases, baseUrl, newTask.series, newTask.slaMonitor, originalTask.result.responseSchemas);
                 
                 ProjectResult newResult = new ProjectResult();
                 newResult.baseUrl = baseUrl; // Persist base URL
                 newResult.testCases = originalTask.result.testCases;
                 newResult.executionResults = newResults;
                 newResult.apiUnderstanding = originalTask.result.apiUnderstanding;
+                newResult.responseSchemas = originalTask.result.responseSchemas;
+                if (newTask.slaMonitor != null) newResult.sla = newTask.slaMonitor.finish();
+                newResult.regression = regressionService.compare(
+                        regressionService.profile(taskId, originalTask.kind(), originalTask.result),
+                        regressionService.profile(newTaskId, "rerun", newResult),
+                        new RegressionConfig());
                 
                 // Optional: Recalculate summary if needed, or just leave it null
                 // newResult.summary = ...
                 
                 newTask.result = newResult;
-                newTask.status = "COMPLETED";
+                newTask.status = newResult.sla != null && newResult.sla.aborted ? "ABORTED" : "COMPLETED";
             } catch (Exception e) {
                 newTask.status = "FAILED";
                 newTask.error = e.getMessage();
                 e.printStackTrace();
             } finally {
                 newTask.endTime = System.currentTimeMillis();
+                newTask.series.seal();
             }
         });
 
         return new RunResponse(newTaskId, "Re-run started successfully");
     }
 
+    @PostMapping("/load/{taskId}")
+    public RunResponse loadTest(@PathVariable("taskId") String taskId, @RequestBody(required = false) LoadTestConfig config) {
+        TaskInfo originalTask = tasks.get(taskId);
+        if (originalTask == null || !"COMPLETED".equals(originalTask.status) || originalTask.result == null) {
+            throw new RuntimeException("Task not found or not completed");
+        }
+        LoadTestConfig cfg = config == null ? new LoadTestConfig() : config;
+        SlaMonitor sla = newSlaMonitor(cfg.sla);
+        List<TestCase> cases = loadTestService.selectCases(originalTask.result, cfg.includeFailed);
+        if (cases.isEmpty()) {
+            throw new RuntimeException("任务中没有可用于压测的用例");
+        }
+        String baseUrl = originalTask.result.baseUrl == null || originalTask.result.baseUrl.isEmpty()
+                ? "http://localhost:8080" : originalTask.result.baseUrl;
+
+        String newTaskId = UUID.randomUUID().toString();
+        TaskInfo newTask = new TaskInfo();
+        newTask.taskId = newTaskId;
+        newTask.status = "RUNNING";
+        newTask.startTime = System.currentTimeMillis();
+        newTask.load = new LoadTestResult();
+        newTask.load.sourceTaskId = taskId;
+        newTask.series = newSeries();
+        newTask.slaMonitor = sla;
+        tasks.put(newTaskId, newTask);
+
+        // The scheduler owns a platform thread for the whole run; requests go out on virtual threads
+        Thread scheduler = new Thread(() -> {
+            try {
+                loadTestService.run(newTaskId, cases, baseUrl, cfg, newTask.load, newTask.series, sla, originalTask.result.responseSchemas);
+                newTask.status = newTask.load.sla != null && newTask.load.sla.aborted ? "ABORTED" : "COMPLETED";
+            } catch (Exception e) {
+                newTask.status = "FAILED";
+                newTask.error = e.getMessage();
+                e.printStackTrace();
+            } finally {
+                newTask.endTime = System.currentTimeMillis();
+                newTask.series.seal();
+            }
+        }, "load-" + newTaskId);
+        scheduler.start();
+
+        return new RunResponse(newTaskId, "Load test started successfully");
+    }
+
+    @PostMapping("/load/{taskId}/stop")
+    public RunResponse stopLoadTest(@PathVariable("taskId") String taskId) {
+        boolean stopped = loadTestService.stop(taskId);
+        return new RunResponse(taskId, stopped ? "Load test stopping" : "Load test not running");
+    }
+
     @GetMapping("/task/{taskId}")
     public TaskInfo getTaskStatus(@PathVariable("taskId") String taskId) {
         return tasks.getOrDefault(taskId, new TaskInfo(taskId, "NOT_FOUND"));
     }
 
+    /** Per-bucket throughput, errors, status codes and latency percentiles of a task's requests. */
+    @GetMapping("/task/{taskId}/series")
+    public TimeSeries getTaskSeries(@PathVariable("taskId") String taskId,
+                                    @RequestParam(value = "endpoints", defaultValue = "true") boolean endpoints) {
+        TaskInfo task = tasks.get(taskId);
+        if (task == null || task.series == null) {
+            throw new RuntimeException("Task not found or has no series");
+        }
+        return task.series.snapshot(endpoints);
+    }
+
+    /**
+     * Compares a finished task with another task or a stored baseline; the verdict is FAIL when any
+     * endpoint got significantly slower or more error-prone beyond the thresholds.
+     */
+    @PostMapping("/compare")
+    public RegressionReport compare(@RequestBody CompareRequest request) {
+        RunProfile baseline;
+        if (request.baseline != null && !request.baseline.isEmpty()) {
+            baseline = regressionService.getBaseline(request.baseline);
+            if (baseline == null) {
+                throw new RuntimeException("基线不存在: " + request.baseline);
+            }
+        } else {
+            baseline = profileOf(request.baselineTaskId);
+        }
+        RunProfile candidate = profileOf(request.candidateTaskId);
+        return regressionService.compare(baseline, candidate, request.config == null ? new RegressionConfig() : request.config);
+    }
+
+    @PostMapping("/baseline/{taskId}")
+    public RunProfile saveBaseline(@PathVariable("taskId") String taskId, @RequestParam("name") String name) {
+        return regressionService.saveBaseline(name, profileOf(taskId));
+    }
+
+    @GetMapping("/baselines")
+    public List<String> listBaselines() {
+        return regressionService.listBaselines();
+    }
+
+    @DeleteMapping("/baseline/{name}")
+    public RunResponse deleteBaseline(@PathVariable("name") String name) {
+        boolean removed = regressionService.deleteBaseline(name);
+        return new RunResponse(name, removed ? "Baseline deleted" : "Baseline not found");
+    }
+
+    @GetMapping("/spec-cache")
+    public SpecCacheStats getSpecCacheStats() {
+        return specCache.stats();
+    }
+
+    @DeleteMapping("/spec-cache")
+    public Map<String, Object> clearSpecCache() {
+        return Map.of("removed", specCache.invalidateAll());
+    }
+
+    private RunProfile profileOf(String taskId) {
+        TaskInfo task = taskId == null ? null : tasks.get(taskId);
+        if (task == null || !"COMPLETED".equals(task.status)) {
+            throw new RuntimeException("Task not found or not completed: " + taskId);
+        }
+        return task.load != null ? regressionService.profile(taskId, task.load) : regressionService.profile(taskId, task.kind(), task.result);
+    }
+
+    private static SlaMonitor newSlaMonitor(List<SlaRule> rules) {
+        return rules == null || rules.isEmpty() ? null : new SlaMonitor(rules);
+    }
+
+    private MetricsSeries newSeries() {
+        return new MetricsSeries(seriesBucketMs, seriesMaxBuckets);
+    }
+
     public static class RunRequest {
         public String swaggerUrl;
         public String programName;
         public String extra;
         public List<String> tags;
         public String authorization;
+        public List<SlaRule> sla; // Optional gates; a run that keeps failing one is aborted
+    }
+
+    public static class CompareRequest {
+        public String baselineTaskId;
+        public String baseline; // Name of a stored baseline, takes precedence over baselineTaskId
+        public String candidateTaskId;
+        public RegressionConfig config;
     }
 
     public static class RunResponse {
@@ -177,9 +403,15 @@ public class JMeterAiController {
 
     public static class TaskInfo {
         public String taskId;
-        public String status; // RUNNING, COMPLETED, FAILED, NOT_FOUND
+        public String status; // RUNNING, COMPLETED, ABORTED (an SLA gate stopped it), FAILED, NOT_FOUND
         public String error;
         public ProjectResult result;
+        public PipelineProgress progress;
+        public LoadTestResult load;
+        @com.fasterxml.jackson.annotation.JsonIgnore
+        public MetricsSeries series;
+        @com.fasterxml.jackson.annotation.JsonIgnore
+        public SlaMonitor slaMonitor;
         public long startTime;
         public long endTime;
 
@@ -189,5 +421,14 @@ public class JMeterAiController {
             this.taskId = taskId;
             this.status = status;
         }
+
+        /** Gate status while the task runs, the final evaluation afterwards. */
+        public SlaReport getSla() {
+            return slaMonitor == null ? null : slaMonitor.report();
+        }
+
+        String kind() {
+            return load != null ? "load" : progress != null ? "pipeline" : "rerun";
+        }
     }
 }
@@ -0,0 +1,42 @@
+package com.example.jmeterai.controller;
+
+import com.example.jmeterai.model.LlmCacheStats;
+import com.example.jmeterai.model.LlmProviderStats;
+import com.example.jmeterai.service.LlmResponseCache;
+import com.example.jmeterai.service.LlmService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/llm")
+public class LlmController {
+
+    @Autowired
+    private LlmResponseCache cache;
+
+    @Autowired
+    private LlmService llmService;
+
+    @GetMapping("/providers")
+    public List<LlmProviderStats> getProviders() {
+        return llmService.backend().stats();
+    }
+
+    @GetMapping("/cache")
+    public LlmCacheStats getCacheStats() {
+        return cache.stats();
+    }
+
+    @DeleteMapping("/cache")
+    public Map<String, Object> clearCache() {
+        return Map.of("removed", cache.invalidateAll());
+    }
+
+    @DeleteMapping("/cache/{key}")
+    public Map<String, Object> invalidate(@PathVariable("key") String key) {
+        return Map.of("key", key, "removed", cache.invalidate(key));
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.jmeterai.controller;
+
+import com.example.jmeterai.service.MetricsRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+public class MetricsController {
+
+    private static final String OPENMETRICS = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    /** Prometheus scrape endpoint. */
+    @GetMapping("/metrics")
+    public ResponseEntity<String> metrics() {
+        return ResponseEntity.ok().header(HttpHeaders.CONTENT_TYPE, OPENMETRICS).body(metricsRegistry.scrape());
+    }
+}
@@ -1,58 +1,120 @@
 package com.example.jmeterai.model;
 
 import com.example.jmeterai.util.OpenApiExtractor;
+import com.example.jmeterai.util.SpecDocument;
 import com.fasterxml.jackson.databind.JsonNode;
 
 import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * Local understanding of a spec, built in one pass over its operations without an LLM call:
+ * tags, common parameters, security schemes, pagination, id-bearing paths and the field
+ * constraints of the declared schemas. Lists that grow with the spec are capped so the summary
+ * stays prompt-sized for very large documents.
+ */
 public class ApiUnderstanding {
+  private static final int MAX_ENDPOINT_LINES = 200;
+  private static final int MAX_SCHEMA_LINES = 100;
+  private static final int MAX_FIELDS = 20;
+  private static final int MAX_ENUM_VALUES = 8;
+  private static final int MAX_INLINE_ITEMS = 50;
+
+  private static final Set<String> METHODS = Set.of("get", "put", "post", "delete", "options", "head", "patch", "trace");
+  private static final Set<String> PAGE_PARAMS = Set.of("page", "pagenum", "pageno", "pageindex", "pagenumber", "current", "offset", "start", "skip");
+  private static final Set<String> SIZE_PARAMS = Set.of("size", "pagesize", "limit", "per_page", "perpage", "count", "rows", "top");
+  private static final Set<String> CURSOR_PARAMS = Set.of("cursor", "after", "before", "pagetoken", "page_token", "nextpagetoken", "continuationtoken", "marker");
+  private static final Set<String> PAGE_FIELDS = Set.of("total", "totalcount", "totalelements", "totalpages", "total_count", "hasmore", "has_more", "hasnext", "nextcursor", "next_cursor", "nextpagetoken", "next");
+
   public ApiUnderstandingResult analyze(OpenApiExtractor.OpenApiInfo info, String extra) {
     ApiUnderstandingResult r = new ApiUnderstandingResult();
-    r.isJson = info.root != null && info.root.isObject();
+    r.isJson = info.document != null;
     if (!r.isJson) throw new RuntimeException("接口文档不是JSON或无法解析");
-    JsonNode root = info.root;
+    SpecDocument doc = info.document;
     String baseUrl = info.baseUrl == null ? "" : info.baseUrl;
-    Set<String> tags = new HashSet<>();
-    JsonNode paths = root.path("paths");
-    if (paths.isObject()) {
-      Iterator<String> it = paths.fieldNames();
-      while (it.hasNext()) {
-        String p = it.next();
-        JsonNode item = paths.path(p);
-        Iterator<String> mit = item.fieldNames();
-        while (mit.hasNext()) {
-          String m = mit.next();
-          JsonNode op = item.path(m);
-          JsonNode t = op.path("tags");
-          if (t.isArray()) for (JsonNode tn : t) tags.add(tn.asText(""));
-          JsonNode params = op.path("parameters");
-          if (params.isArray()) {
-            for (JsonNode pn : params) {
-              String name = pn.path("name").asText("");
-              if (!name.isEmpty()) r.commonParams.add(name);
-            }
+    Set<String> tags = new LinkedHashSet<>();
+    Set<String> publicOps = new LinkedHashSet<>();
+    List<String> endpointLines = new ArrayList<>();
+    int operations = 0;
+    for (String p : doc.paths()) {
+      List<String> fields = doc.methods(p);
+      // Path-level parameters apply to every operation of the item
+      JsonNode shared = fields.contains("parameters") ? doc.operation("parameters", p) : null;
+      for (String m : fields) {
+        if (!METHODS.contains(m.toLowerCase())) continue;
+        JsonNode op = doc.operation(m, p);
+        operations++;
+        JsonNode t = op.path("tags");
+        if (t.isArray()) for (JsonNode tn : t) tags.add(tn.asText(""));
+        List<String> plist = new ArrayList<>();
+        List<String> pathParams = new ArrayList<>();
+        Set<String> pageParams = new LinkedHashSet<>();
+        for (JsonNode params : new JsonNode[]{shared, op.path("parameters")}) {
+          if (params == null || !params.isArray()) continue;
+          for (JsonNode pn : params) {
+            pn = resolve(doc, pn);
+            String name = pn.path("name").asText("");
+            String in = pn.path("in").asText("");
+            if (name.isEmpty()) continue;
+            r.commonParams.add(name);
+            plist.add(in + ":" + name);
+            if (in.equals("path")) pathParams.add(name + ":" + typeOf(doc, pn.has("schema") ? pn.path("schema") : pn));
+            String lower = name.toLowerCase();
+            if (in.equals("query") && (PAGE_PARAMS.contains(lower) || SIZE_PARAMS.contains(lower) || CURSOR_PARAMS.contains(lower))) pageParams.add(name);
           }
-          String lowerPath = p.toLowerCase();
-          String lowerSum = op.path("summary").asText("").toLowerCase();
-          boolean authHint = lowerPath.contains("auth") || lowerPath.contains("token") || lowerSum.contains("auth") || lowerSum.contains("token");
-          if (authHint && r.tokenEndpoint == null) r.tokenEndpoint = p;
+        }
+        String lowerPath = p.toLowerCase();
+        String lowerSum = op.path("summary").asText("").toLowerCase();
+        boolean authHint = lowerPath.contains("auth") || lowerPath.contains("token") || lowerSum.contains("auth") || lowerSum.contains("token");
+        if (authHint && r.tokenEndpoint == null) r.tokenEndpoint = p;
+        if (op.path("security").isArray() && op.path("security").size() == 0) publicOps.add(m.toUpperCase() + " " + p);
+        String endpoint = m.toUpperCase() + " " + p;
+        if (!pathParams.isEmpty()) r.idPaths.add(endpoint + " (路径参数 " + String.join(", ", pathParams) + ")");
+        Set<String> pageFields = pageFields(doc, op);
+        if (!pageParams.isEmpty() || pageFields.size() >= 2) {
+          StringBuilder sb = new StringBuilder(endpoint);
+          if (!pageParams.isEmpty()) sb.append(" (查询参数 ").append(String.join(", ", pageParams)).append(")");
+          if (!pageFields.isEmpty()) sb.append(" (响应字段 ").append(String.join(", ", pageFields)).append(")");
+          r.pagination.add(sb.toString());
+        }
+        if (endpointLines.size() < MAX_ENDPOINT_LINES) {
+          boolean hasBody = op.path("requestBody").isObject() || hasBodyParam(doc, op.path("parameters"));
+          endpointLines.add("- " + endpoint + " | 参数: " + (plist.isEmpty() ? "无" : String.join(", ", plist))
+              + " | 请求体: " + (hasBody ? "有" : "无"));
         }
       }
     }
     r.commonParams = dedup(r.commonParams);
     r.tags = new ArrayList<>(tags);
     List<String> schemas = new ArrayList<>();
-    JsonNode comps = root.path("components").path("schemas");
-    if (comps.isObject()) comps.fieldNames().forEachRemaining(schemas::add);
+    for (int i = 0; i < doc.components().size(); i++) {
+      SpecDocument.Component c = doc.components().get(i);
+      if (!c.section.equals("components_schemas")) continue;
+      schemas.add(c.name);
+      if (r.fieldConstraints.size() < MAX_SCHEMA_LINES) {
+        String line = constraints(doc, c.name, doc.component(i));
+        if (line != null) r.fieldConstraints.add(line);
+      }
+    }
     r.schemas = schemas;
-    boolean hasSecurity = root.path("security").isArray() && root.path("security").size() > 0;
-    boolean hasSchemes = root.path("components").path("securitySchemes").isObject();
-    r.authNeeded = hasSecurity || hasSchemes || r.tokenEndpoint != null;
-    r.summaryText = buildSummaryText(r, baseUrl, paths);
+    JsonNode security = doc.top("security");
+    boolean hasSecurity = security.isArray() && security.size() > 0;
+    JsonNode schemes = doc.top("components").path("securitySchemes");
+    if (!schemes.isObject()) schemes = doc.top("securityDefinitions");
+    if (schemes.isObject()) {
+      schemes.fields().forEachRemaining(e -> r.securitySchemes.add(describeScheme(e.getKey(), e.getValue())));
+    }
+    if (hasSecurity) {
+      Set<String> required = new LinkedHashSet<>();
+      for (JsonNode req : security) req.fieldNames().forEachRemaining(required::add);
+      r.globalSecurity = new ArrayList<>(required);
+    }
+    r.publicEndpoints = new ArrayList<>(publicOps);
+    r.authNeeded = hasSecurity || schemes.isObject() || r.tokenEndpoint != null;
+    r.summaryText = buildSummaryText(r, baseUrl, doc.paths().size(), operations, endpointLines);
     return r;
   }
 
@@ -63,43 +125,178 @@ public class ApiUnderstanding {
     return out;
   }
 
-  private String buildSummaryText(ApiUnderstandingResult r, String baseUrl, JsonNode paths) {
+  private static JsonNode resolve(SpecDocument doc, JsonNode node) {
+    for (int depth = 0; depth < 8 && node.has("$ref"); depth++) {
+      JsonNode target = doc.resolve(node.path("$ref").asText());
+      if (target == null) break;
+      node = target;
+    }
+    return node;
+  }
+
+  private static boolean hasBodyParam(SpecDocument doc, JsonNode params) {
+    if (!params.isArray()) return false;
+    for (JsonNode pn : params) {
+      String in = resolve(doc, pn).path("in").asText("");
+      if (in.equals("body") || in.equals("formData")) return true;
+    }
+    return false;
+  }
+
+  private static String typeOf(SpecDocument doc, JsonNode schema) {
+    if (schema.has("$ref")) {
+      String ref = schema.path("$ref").asText();
+      return ref.substring(ref.lastIndexOf('/') + 1);
+    }
+    String type = schema.path("type").isArray() ? schema.path("type").toString() : schema.path("type").asText("");
+    if (type.equals("array")) return typeOf(doc, schema.path("items")) + "[]";
+    String format = schema.path("format").asText("");
+    if (type.isEmpty()) return "any";
+    return format.isEmpty() ? type : type + "(" + format + ")";
+  }
+
+  /** Top-level fields of the 2xx response body that usually carry paging state. */
+  private static Set<String> pageFields(SpecDocument doc, JsonNode op) {
+    Set<String> out = new LinkedHashSet<>();
+    JsonNode responses = op.path("responses");
+    if (!responses.isObject()) return out;
+    for (String code : new String[]{"200", "201", "2XX", "2xx", "default"}) {
+      JsonNode response = responses.get(code);
+      if (response == null) continue;
+      response = resolve(doc, response);
+      JsonNode schema = response.path("schema");
+      JsonNode content = response.path("content");
+      if (content.isObject()) {
+        for (JsonNode media : content) {
+          if (media.has("schema")) {
+            schema = media.path("schema");
+            break;
+          }
+        }
+      }
+      JsonNode props = resolve(doc, schema).path("properties");
+      if (props.isObject()) {
+        props.fieldNames().forEachRemaining(f -> {
+          if (PAGE_FIELDS.contains(f.toLowerCase())) out.add(f);
+        });
+      }
+      break;
+    }
+    return out;
+  }
+
+  private static String describeScheme(String name, JsonNode s) {
+    String type = s.path("type").asText("");
+    StringBuilder sb = new StringBuilder(name).append(": ").append(type);
+    switch (type) {
+      case "apiKey" -> sb.append(" ").append(s.path("in").asText("")).append(" ").append(s.path("name").asText(""));
+      case "http" -> {
+        sb.append(" ").append(s.path("scheme").asText(""));
+        if (s.has("bearerFormat")) sb.append(" (").append(s.path("bearerFormat").asText()).append(")");
+      }
+      case "basic" -> { }
+      case "oauth2" -> {
+        if (s.has("flow")) {
+          sb.append(" ").append(s.path("flow").asText(""));
+          if (s.has("tokenUrl")) sb.append(" tokenUrl=").append(s.path("tokenUrl").asText());
+        }
+        s.path("flows").fields().forEachRemaining(f -> {
+          sb.append(" ").append(f.getKey());
+          if (f.getValue().has("tokenUrl")) sb.append(" tokenUrl=").append(f.getValue().path("tokenUrl").asText());
+        });
+      }
+      case "openIdConnect" -> sb.append(" ").append(s.path("openIdConnectUrl").asText(""));
+      default -> { }
+    }
+    return sb.toString().trim();
+  }
+
+  /** "Name: field(type, 必填, minLength=1, ...), ..." for an object schema, or null if it declares no fields. */
+  private static String constraints(SpecDocument doc, String name, JsonNode schema) {
+    List<JsonNode> parts = new ArrayList<>();
+    parts.add(schema);
+    for (JsonNode sub : schema.path("allOf")) {
+      // Inline members only; a $ref'd parent is described under its own name
+      if (!sub.has("$ref")) parts.add(sub);
+    }
+    Set<String> required = new HashSet<>();
+    List<String> fields = new ArrayList<>();
+    int total = 0;
+    for (JsonNode part : parts) {
+      for (JsonNode req : part.path("required")) required.add(req.asText());
+    }
+    for (JsonNode part : parts) {
+      JsonNode props = part.path("properties");
+      if (!props.isObject()) continue;
+      for (java.util.Iterator<java.util.Map.Entry<String, JsonNode>> it = props.fields(); it.hasNext(); ) {
+        java.util.Map.Entry<String, JsonNode> e = it.next();
+        total++;
+        if (fields.size() >= MAX_FIELDS) continue;
+        JsonNode p = e.getValue();
+        List<String> c = new ArrayList<>();
+        c.add(typeOf(doc, p));
+        if (required.contains(e.getKey())) c.add("必填");
+        if (p.path("nullable").asBoolean(false) || p.path("x-nullable").asBoolean(false)) c.add("可空");
+        if (p.path("readOnly").asBoolean(false)) c.add("只读");
+        for (String k : new String[]{"minLength", "maxLength", "minimum", "maximum", "exclusiveMinimum", "exclusiveMaximum", "minItems", "maxItems", "pattern", "default"}) {
+          JsonNode v = p.get(k);
+          if (v != null && !v.isContainerNode()) c.add(k + "=" + v.asText());
+        }
+        JsonNode en = p.has("enum") ? p.path("enum") : p.path("items").path("enum");
+        if (en.isArray() && en.size() > 0) {
+          List<String> values = new ArrayList<>();
+          for (JsonNode v : en) {
+            if (values.size() == MAX_ENUM_VALUES) {
+              values.add("...");
+              break;
+            }
+            values.add(v.asText());
+          }
+          c.add("enum=[" + String.join("|", values) + "]");
+        }
+        fields.add(e.getKey() + "(" + String.join(", ", c) + ")");
+      }
+    }
+    if (fields.isEmpty()) return null;
+    String more = total > fields.size() ? ", ... 共 " + total + " 个字段" : "";
+    return name + ": " + String.join(", ", fields) + more;
+  }
+
+  private String buildSummaryText(ApiUnderstandingResult r, String baseUrl, int paths, int operations, List<String> endpointLines) {
     StringBuilder sb = new StringBuilder();
     sb.append("接口文档理解结果\n");
     sb.append("文档格式: ").append(r.isJson ? "JSON" : "非JSON").append("\n");
     sb.append("基础服务器: ").append(baseUrl).append("\n");
-    sb.append("接口总数: ").append(paths != null && paths.isObject() ? paths.size() : 0).append("\n");
-    sb.append("标签分类: ").append(r.tags.isEmpty() ? "无" : String.join(", ", r.tags)).append("\n");
-    sb.append("模型定义: ").append(r.schemas.isEmpty() ? "无" : String.join(", ", r.schemas)).append("\n");
-    sb.append("共性参数: ").append(r.commonParams.isEmpty() ? "无" : String.join(", ", r.commonParams)).append("\n");
+    sb.append("接口总数: ").append(operations).append("（路径 ").append(paths).append(" 个）\n");
+    sb.append("标签分类: ").append(r.tags.isEmpty() ? "无" : joinCapped(r.tags, ", ")).append("\n");
+    sb.append("模型定义: ").append(r.schemas.isEmpty() ? "无" : joinCapped(r.schemas, ", ")).append("\n");
+    sb.append("共性参数: ").append(r.commonParams.isEmpty() ? "无" : joinCapped(r.commonParams, ", ")).append("\n");
     sb.append("认证需求: ").append(r.authNeeded ? "可能需要认证" : "未知或不需要").append("\n");
     if (r.tokenEndpoint != null) sb.append("令牌接口: ").append(r.tokenEndpoint).append("\n");
-    if (paths != null && paths.isObject()) {
+    if (!r.securitySchemes.isEmpty()) sb.append("鉴权方案: ").append(joinCapped(r.securitySchemes, "; ")).append("\n");
+    if (!r.globalSecurity.isEmpty()) sb.append("全局鉴权: ").append(joinCapped(r.globalSecurity, ", ")).append("\n");
+    if (!r.publicEndpoints.isEmpty()) sb.append("免鉴权接口: ").append(joinCapped(r.publicEndpoints, ", ")).append("\n");
+    appendSection(sb, "分页接口", r.pagination);
+    appendSection(sb, "带 ID 的路径", r.idPaths);
+    appendSection(sb, "字段约束", r.fieldConstraints);
+    if (!endpointLines.isEmpty()) {
       sb.append("\n接口参数摘要:\n");
-      java.util.Iterator<String> it = paths.fieldNames();
-      while (it.hasNext()) {
-        String p = it.next();
-        JsonNode item = paths.path(p);
-        java.util.Iterator<String> mit = item.fieldNames();
-        while (mit.hasNext()) {
-          String m = mit.next();
-          JsonNode op = item.path(m);
-          java.util.List<String> plist = new java.util.ArrayList<>();
-          JsonNode params = op.path("parameters");
-          if (params.isArray()) {
-            for (JsonNode pn : params) {
-              String name = pn.path("name").asText("");
-              String in = pn.path("in").asText("");
-              if (!name.isEmpty()) plist.add(in+":"+name);
-            }
-          }
-          boolean hasBody = op.path("requestBody").isObject();
-          sb.append("- ").append(m.toUpperCase()).append(" ").append(p).append(" | 参数: ")
-            .append(plist.isEmpty() ? "无" : String.join(", ", plist))
-            .append(" | 请求体: ").append(hasBody ? "有" : "无").append("\n");
-        }
-      }
+      for (String line : endpointLines) sb.append(line).append("\n");
+      if (operations > endpointLines.size()) sb.append("- ... 其余 ").append(operations - endpointLines.size()).append(" 个接口省略\n");
     }
     return sb.toString();
   }
+
+  private static String joinCapped(List<String> items, String separator) {
+    if (items.size() <= MAX_INLINE_ITEMS) return String.join(separator, items);
+    return String.join(separator, items.subList(0, MAX_INLINE_ITEMS)) + separator + "... 其余 " + (items.size() - MAX_INLINE_ITEMS) + " 项省略";
+  }
+
+  private static void appendSection(StringBuilder sb, String title, List<String> lines) {
+    if (lines.isEmpty()) return;
+    sb.append("\n").append(title).append(":\n");
+    int shown = Math.min(lines.size(), MAX_ENDPOINT_LINES);
+    for (int i = 0; i < shown; i++) sb.append("- ").append(lines.get(i)).append("\n");
+    if (lines.size() > shown) sb.append("- ... 其余 ").append(lines.size() - shown).append(" 项省略\n");
+  }
 }
@@ -10,5 +10,11 @@ public class ApiUnderstandingResult {
   public boolean authNeeded;
   public String tokenEndpoint;
   public List<String> commonParams = new ArrayList<>();
+  public List<String> securitySchemes = new ArrayList<>(); // "name: type details"
+  public List<String> globalSecurity = new ArrayList<>(); // Schemes required by default
+  public List<String> publicEndpoints = new ArrayList<>(); // Operations that opt out with security: []
+  public List<String> pagination = new ArrayList<>();
+  public List<String> idPaths = new ArrayList<>();
+  public List<String> fieldConstraints = new ArrayList<>(); // One line per schema
   public String summaryText;
 }
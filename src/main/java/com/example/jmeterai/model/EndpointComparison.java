@@ -0,0 +1,32 @@
+package com.example.jmeterai.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class EndpointComparison {
+    public String endpoint;
+    public String status; // REGRESSED, IMPROVED, UNCHANGED, INSUFFICIENT_DATA, NEW, MISSING
+    public long baselineCount;
+    public long candidateCount;
+    public double baselineP50;
+    public double baselineP95;
+    public double baselineP99;
+    public double candidateP50;
+    public double candidateP95;
+    public double candidateP99;
+    public double p50ChangePct;
+    public double p95ChangePct;
+    public double p99ChangePct;
+    public double probabilityOfIncrease; // Chance a candidate request is slower than a baseline one
+    // p-values are null where the test was not run: no counterpart, or too few samples for the adjusted ones
+    public Double latencyPValue; // Mann-Whitney, one-sided in the direction of the shift
+    public Double latencyPValueAdjusted;
+    public double baselineErrorRate;
+    public double candidateErrorRate;
+    public double errorRateDelta;
+    public Double errorPValue; // Two-proportion z-test for an increase
+    public Double errorPValueAdjusted;
+    public boolean latencyRegressed;
+    public boolean errorRegressed;
+    public List<String> reasons = new ArrayList<>();
+}
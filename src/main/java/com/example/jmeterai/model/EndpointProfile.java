@@ -0,0 +1,8 @@
+package com.example.jmeterai.model;
+
+public class EndpointProfile {
+    public String endpoint;
+    public long count;
+    public long errors; // Failed verification for pipeline runs, non-2xx or I/O failure for load tests
+    public long[][] histogram; // Latency as {upper bound µs, count}, see LatencyRecorder.histogram()
+}
@@ -3,11 +3,22 @@ package com.example.jmeterai.model;
 public class ExecutionResult {
     public String caseName;
     public String method;
+    public String endpoint; // "METHOD /path/{template}", the label results are grouped by over time
     public String url;
     public String curlCommand;
     public int statusCode;
     public String responseBody;
+    // responseBody holds at most RESPONSE_CAPTURE_KB; these describe the whole body
+    public long responseBytes;
+    public boolean responseTruncated;
+    public String responseSha256;
+    // Assertion inputs evaluated while the body streamed by, keyed by expected text / jsonPath expression
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    public java.util.Map<String, Boolean> bodyContainsMatches;
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    public java.util.Map<String, String> jsonPathValues;
     public long durationMs;
+    public PhaseTimings timings;
     public boolean success;
     public String errorMessage;
     
@@ -25,4 +36,7 @@ public class ExecutionResult {
     public String adjustmentNote;
     public java.util.List<Assertion> assertions;
     public String assertionReason;
+    // Body checked against the response schema the spec declares for this status code; null when not checked
+    public Boolean schemaValid;
+    public java.util.List<String> schemaErrors;
 }
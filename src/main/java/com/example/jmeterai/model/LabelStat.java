@@ -8,5 +8,6 @@ public class LabelStat {
   public long total;
   public long success;
   public long fail;
+  public LatencySpectrum latency;
   public Map<String,Long> codes = new LinkedHashMap<>();
 }
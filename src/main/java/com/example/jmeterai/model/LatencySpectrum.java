@@ -0,0 +1,13 @@
+package com.example.jmeterai.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Latency distribution in milliseconds; percentile keys are "p50" … "p99.99". */
+public class LatencySpectrum {
+    public long count;
+    public double min;
+    public double mean;
+    public double max;
+    public Map<String, Double> percentiles = new LinkedHashMap<>();
+}
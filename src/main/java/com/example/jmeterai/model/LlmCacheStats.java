@@ -0,0 +1,18 @@
+package com.example.jmeterai.model;
+
+public class LlmCacheStats {
+    public boolean enabled;
+    public String directory;
+    public long memoryEntries;
+    public long memoryBytes;
+    public long memoryLimitBytes;
+    public long memoryHits;
+    public long diskHits;
+    public long misses;
+    public long expired;
+    public long stores;
+    public long evictions;
+    public long bytesServed;
+    public long bytesStored;
+    public double hitRate;
+}
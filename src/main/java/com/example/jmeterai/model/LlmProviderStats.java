@@ -0,0 +1,21 @@
+package com.example.jmeterai.model;
+
+public class LlmProviderStats {
+    public String name;
+    public String model;
+    public String baseUrl;
+    public int keys;
+    public long calls;
+    public long failures;
+    public int inFlight;
+    public double errorRate; // Exponentially weighted, recent calls count most
+    public double ewmaLatencyMs;
+    public double p50;
+    public double p90;
+    public double p99;
+    public double score;
+    public String lastError;
+    public double concurrencyLimit; // Current AIMD limit
+    public long rateLimited; // 429 responses seen
+    public long throttledMs; // Total time callers waited in the limiter
+}
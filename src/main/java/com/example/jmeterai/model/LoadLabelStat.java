@@ -0,0 +1,23 @@
+package com.example.jmeterai.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class LoadLabelStat {
+    public String label;
+    public long count;
+    public long errors;
+    public long assertionFailures; // Responses that failed their case's assertions, whatever the status code
+    public long schemaViolations; // Responses whose body does not match the declared response schema
+    public double avg;
+    public double p50;
+    public double p90;
+    public double p95;
+    public double p99;
+    public double max;
+    public LatencySpectrum latency; // From the intended send time
+    public LatencySpectrum serviceTime; // From the actual send time
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    public long[][] histogram; // Latency buckets for regression checks, see LatencyRecorder.histogram()
+    public Map<String, Long> codes = new LinkedHashMap<>();
+}
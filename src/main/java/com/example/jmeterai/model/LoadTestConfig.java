@@ -0,0 +1,16 @@
+package com.example.jmeterai.model;
+
+import java.util.Map;
+
+public class LoadTestConfig {
+    public double targetRps = 10;
+    public int rampUpSeconds = 0; // Arrival rate rises linearly from 0 to targetRps
+    public int durationSeconds = 60; // Including ramp-up
+    public int maxInFlight = 0; // 0 uses LOAD_MAX_IN_FLIGHT; arrivals beyond it are dropped, not delayed
+    public boolean includeFailed = false; // By default only cases that passed verification are replayed
+    public boolean verifyAssertions = true; // Check each response against its case's assertions; the body is only read when they need it
+    public boolean validateSchema = true; // Check each body against the spec's response schema for its status code
+    // "GET /users/{id}" weights an endpoint, "tag:user" every endpoint with that tag; unmatched cases weigh 1, 0 excludes
+    public Map<String, Double> weights;
+    public java.util.List<SlaRule> sla; // Gates evaluated while the test runs; a failing gate can stop it early
+}
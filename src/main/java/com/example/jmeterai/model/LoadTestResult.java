@@ -0,0 +1,37 @@
+package com.example.jmeterai.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class LoadTestResult {
+    public LoadTestConfig config;
+    public String sourceTaskId;
+    public int cases; // Distinct cases in the weighted mix
+    public volatile long scheduled; // Arrivals the schedule called for so far
+    public volatile long sent;
+    public volatile long completed;
+    public volatile long errors; // Non-2xx responses and I/O failures
+    public volatile long assertionFailures;
+    public long assertionsEvaluated;
+    public volatile long schemaViolations;
+    public long schemaChecks; // Responses checked against a declared response schema
+    public volatile long dropped; // Arrivals skipped because maxInFlight requests were outstanding
+    public volatile int inFlight;
+    public volatile double currentRps; // Target arrival rate right now, following the ramp
+    public long startTime;
+    public long endTime;
+    public long elapsedMs;
+    public double achievedRps; // Completed requests per second of elapsed time
+    public long bytesReceived;
+    public double avg;
+    public double p50;
+    public double p90;
+    public double p95;
+    public double p99;
+    public double max;
+    public LatencySpectrum latency; // From the intended send time
+    public LatencySpectrum serviceTime; // From the actual send time
+    public Map<String, Long> codes = new LinkedHashMap<>();
+    public Map<String, LoadLabelStat> byLabel = new LinkedHashMap<>();
+    public volatile SlaReport sla; // Latest gate evaluation while running, the final one afterwards
+}
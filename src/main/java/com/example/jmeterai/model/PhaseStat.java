@@ -0,0 +1,11 @@
+package com.example.jmeterai.model;
+
+public class PhaseStat {
+  public String phase;
+  public long count;
+  public double avg;
+  public double p50;
+  public double p95;
+  public double p99;
+  public double max;
+}
@@ -0,0 +1,22 @@
+package com.example.jmeterai.model;
+
+/**
+ * Where one request's time went, in milliseconds measured with nanosecond resolution. Phases that
+ * did not happen (DNS, connect and TLS on a reused connection) stay 0.
+ */
+public class PhaseTimings {
+    // Dispatcher wait before the call got a connection attempt
+    public double queueMs;
+    public double dnsMs;
+    // TCP connect, excluding TLS
+    public double connectMs;
+    public double tlsMs;
+    // Writing request headers and body
+    public double sendMs;
+    // Request written to first response byte: server think time plus one network round trip
+    public double ttfbMs;
+    public double downloadMs;
+    public double totalMs;
+    public boolean connectionReused;
+    public String protocol;
+}
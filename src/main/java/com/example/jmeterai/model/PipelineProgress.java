@@ -0,0 +1,18 @@
+package com.example.jmeterai.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Live view of a running pipeline, attached to the task so it can be polled while the run is in flight.
+ */
+public class PipelineProgress {
+    public volatile String mode;
+    public Map<String, StageStats> stages = Collections.synchronizedMap(new LinkedHashMap<>());
+    // Served separately by the series endpoint
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    public volatile com.example.jmeterai.util.MetricsSeries series;
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    public volatile com.example.jmeterai.util.SlaMonitor sla;
+}
@@ -0,0 +1,19 @@
+package com.example.jmeterai.model;
+
+public class PipelineStats {
+    public String mode; // sequential, parallel, staged
+    public int units;
+    public int llmConcurrency;
+    public int httpConcurrency;
+    public long wallClockMs;
+    public long serialEstimateMs; // Sum of per-unit busy time, i.e. what the sequential path would have taken
+    public double speedup;
+    public int generationRequests; // Generation prompts planned, one per work group
+    public long llmCalls;
+    public long llmPromptChars;
+    public long fastPathDecisions; // Cases judged by local rules without the LLM
+    public long llmCallsAvoided;
+    public boolean streaming; // Cases were handed to execution while generation was still streaming
+    public long avgTimeToFirstCaseMs; // From the start of a unit's generation request to its first runnable case
+    public long maxTimeToFirstCaseMs;
+}
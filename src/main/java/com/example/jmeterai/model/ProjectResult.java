@@ -9,4 +9,10 @@ public class ProjectResult {
     public List<TestCase> testCases;
     public List<ExecutionResult> executionResults;
     public String summary;
+    public PipelineStats stats;
+    public SlaReport sla; // Final SLA gate evaluation, when rules were given
+    public RegressionReport regression; // Reruns only: compared with the run they replayed
+    // Compiled response schemas of the spec, reused by reruns and load tests of this task
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    public com.example.jmeterai.service.ResponseSchemas responseSchemas;
 }
@@ -0,0 +1,9 @@
+package com.example.jmeterai.model;
+
+public class RegressionConfig {
+    public double alpha = 0.05; // Significance level after Holm correction across endpoints
+    public double p50IncreasePct = 10; // A significant shift only counts as a regression beyond these
+    public double p95IncreasePct = 20;
+    public double errorRateIncrease = 0.01; // Absolute, 0.01 = one percentage point
+    public int minSamples = 5; // Endpoints with fewer requests on either side are not judged
+}
@@ -0,0 +1,16 @@
+package com.example.jmeterai.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RegressionReport {
+    public String verdict; // PASS, FAIL or INCONCLUSIVE when no endpoint had enough samples
+    public boolean passed; // false only for FAIL
+    public String baseline; // Baseline name or task id
+    public String candidate;
+    public RegressionConfig config;
+    public int regressions; // Endpoints with a latency or error-rate regression
+    public EndpointComparison overall; // All endpoints present in both runs, merged
+    public List<EndpointComparison> endpoints = new ArrayList<>();
+    public long createdAt;
+}
@@ -0,0 +1,13 @@
+package com.example.jmeterai.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Per-endpoint request counts and latency histograms of one run, the unit regression checks compare. */
+public class RunProfile {
+    public String name; // Set when stored as a baseline
+    public String sourceTaskId;
+    public String kind; // pipeline, rerun or load
+    public long createdAt;
+    public Map<String, EndpointProfile> endpoints = new LinkedHashMap<>();
+}
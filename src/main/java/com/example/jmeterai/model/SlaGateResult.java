@@ -0,0 +1,11 @@
+package com.example.jmeterai.model;
+
+public class SlaGateResult {
+    public String gate; // Rule name or a description such as "GET /users/{id} p95 < 300"
+    public SlaRule rule;
+    public String status; // PASS, FAIL or PENDING while there is not enough data
+    public double value;
+    public long samples;
+    public long violations; // Evaluations that failed
+    public long firstViolationAt;
+}
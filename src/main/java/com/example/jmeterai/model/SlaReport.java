@@ -0,0 +1,13 @@
+package com.example.jmeterai.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SlaReport {
+    public String status; // PASS or FAIL; PENDING until a gate has enough data
+    public boolean aborted;
+    public String abortReason;
+    public List<String> failedGates = new ArrayList<>();
+    public List<SlaGateResult> gates = new ArrayList<>();
+    public long evaluatedAt;
+}
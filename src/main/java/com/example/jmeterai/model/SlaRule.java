@@ -0,0 +1,18 @@
+package com.example.jmeterai.model;
+
+/**
+ * One service-level gate. A rule applies to one endpoint ("GET /users/{id}"), to every endpoint
+ * with a tag, or to all requests when both are empty.
+ */
+public class SlaRule {
+    public String name; // Optional, shown in reports instead of the generated description
+    public String endpoint;
+    public String tag;
+    public String metric; // p50, p90, p95, p99, max, avg (ms), errorRate (0..1) or rps
+    public double threshold; // Upper bound, except for rps where it is the minimum
+    public int windowSeconds = 0; // 0 evaluates everything since the start, otherwise the last N seconds
+    public int minSamples = 20; // Latency and error-rate gates stay PENDING below this many requests
+    public int delaySeconds = 0; // Not evaluated during the first N seconds, e.g. a ramp-up
+    public boolean abortOnFail = true;
+    public int abortAfterSeconds = 10; // The run is aborted once the gate has failed continuously this long
+}
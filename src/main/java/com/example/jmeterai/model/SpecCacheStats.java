@@ -0,0 +1,18 @@
+package com.example.jmeterai.model;
+
+public class SpecCacheStats {
+    public boolean enabled;
+    public String directory;
+    public long memoryEntries;
+    public long memoryLimitEntries;
+    public long requests;
+    public long downloads;
+    public long notModified;
+    public long unchanged;
+    public long fresh;
+    public long shared;
+    public long stale;
+    public long snapshotLoads;
+    public long evictions;
+    public long bytesDownloaded;
+}
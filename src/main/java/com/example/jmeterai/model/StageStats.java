@@ -0,0 +1,14 @@
+package com.example.jmeterai.model;
+
+public class StageStats {
+    public String name;
+    public int workers;
+    public int queueCapacity;
+    public volatile int queueDepth;
+    public volatile int activeWorkers;
+    public volatile long processed;
+    public volatile long failed;
+    public volatile long busyMs;
+    public volatile long producerBlockedMs; // Time upstream spent waiting on this stage's full queue
+    public volatile double utilisation; // busy time / (workers * time since start)
+}
@@ -10,5 +10,9 @@ public class SummaryMetrics {
   public double p99;
   public double min;
   public double max;
+  public LatencySpectrum latency;
+  // Per-phase latency of the requests that reported timings; connection phases only count new connections
+  public java.util.Map<String, PhaseStat> phases = new java.util.LinkedHashMap<>();
+  public double connectionReuseRate;
   public java.util.Map<String, LabelStat> byLabel = new java.util.LinkedHashMap<>();
 }
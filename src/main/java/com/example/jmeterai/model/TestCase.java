@@ -16,4 +16,7 @@ public class TestCase {
   public String goal;
   public List<Assertion> assertions = new ArrayList<>();
   public List<String> tags;
+  // Compiled form of assertions, built on first evaluation
+  @com.fasterxml.jackson.annotation.JsonIgnore
+  public volatile com.example.jmeterai.service.CompiledAssertions compiledAssertions;
 }
@@ -0,0 +1,16 @@
+package com.example.jmeterai.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Columnar view of a run's time buckets, ready for charting: bucket i covers
+ * [startTime + i*bucketMs, startTime + (i+1)*bucketMs) and every array has one entry per bucket.
+ */
+public class TimeSeries {
+    public long bucketMs;
+    public long startTime; // Epoch millis of the first bucket
+    public int buckets;
+    public TimeSeriesLine overall = new TimeSeriesLine();
+    public Map<String, TimeSeriesLine> endpoints = new LinkedHashMap<>();
+}
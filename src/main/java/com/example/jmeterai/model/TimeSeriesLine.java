@@ -0,0 +1,15 @@
+package com.example.jmeterai.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Per-bucket values of one series; latencies in milliseconds, 0 where a bucket saw no requests. */
+public class TimeSeriesLine {
+    public long[] count;
+    public long[] errors;
+    public double[] p50;
+    public double[] p95;
+    public double[] p99;
+    public double[] max;
+    public Map<String, long[]> codes = new TreeMap<>();
+}
@@ -0,0 +1,272 @@
+package com.example.jmeterai.service;
+
+import com.example.jmeterai.model.Assertion;
+import com.example.jmeterai.model.ExecutionResult;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a response body chunk by chunk, keeping only the first {@code limit} bytes while counting
+ * the full length, hashing it and evaluating bodyContains and simple jsonPath assertions on the
+ * fly. Heap per request is bounded by the limit however large the response is.
+ */
+public class BodyCapture {
+
+    private static final JsonFactory FACTORY = new JsonFactory();
+
+    private final int limit;
+    private final Charset charset;
+    private final java.io.ByteArrayOutputStream head;
+    private final MessageDigest sha256;
+    private final Map<String, ContainsMatcher> contains = new LinkedHashMap<>();
+    private final JsonPathScanner json;
+    private long total;
+    private boolean truncated;
+
+    public BodyCapture(int limit, Charset charset, List<Assertion> assertions) {
+        this(limit, charset, CompiledAssertions.compile(assertions));
+    }
+
+    public BodyCapture(int limit, Charset charset, CompiledAssertions assertions) {
+        this.limit = Math.max(0, limit);
+        this.charset = charset == null ? StandardCharsets.UTF_8 : charset;
+        this.head = new java.io.ByteArrayOutputStream(Math.min(this.limit, 8192));
+        try {
+            this.sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (java.security.NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (String expected : assertions.containsNeedles()) {
+            contains.put(expected, new ContainsMatcher(expected.getBytes(this.charset)));
+        }
+        Map<String, List<Object>> paths = assertions.jsonPaths();
+        // The non-blocking parser only reads UTF-8, which is what JSON is sent as in practice
+        this.json = paths.isEmpty() || !StandardCharsets.UTF_8.equals(this.charset) ? null : new JsonPathScanner(paths);
+    }
+
+    public void readFrom(InputStream in) throws IOException {
+        byte[] buf = new byte[8192];
+        for (int n; (n = in.read(buf)) != -1; ) update(buf, 0, n);
+    }
+
+    public void update(byte[] b, int off, int len) {
+        total += len;
+        sha256.update(b, off, len);
+        int keep = Math.min(len, limit - head.size());
+        if (keep > 0) head.write(b, off, keep);
+        if (keep < len) truncated = true;
+        for (ContainsMatcher m : contains.values()) m.feed(b, off, len);
+        if (json != null) json.feed(b, off, len);
+    }
+
+    public void finish(ExecutionResult res) {
+        String body = head.toString(charset);
+        // A cut through a multi-byte character decodes to replacement chars at the end
+        if (truncated) {
+            int end = body.length();
+            while (end > 0 && body.charAt(end - 1) == '\uFFFD') end--;
+            body = body.substring(0, end);
+        }
+        res.responseBody = body;
+        res.responseBytes = total;
+        res.responseTruncated = truncated;
+        res.responseSha256 = java.util.HexFormat.of().formatHex(sha256.digest());
+        if (!contains.isEmpty()) {
+            res.bodyContainsMatches = new LinkedHashMap<>();
+            contains.forEach((expected, m) -> res.bodyContainsMatches.put(expected, m.found));
+        }
+        if (json != null) {
+            json.end();
+            if (!json.failed) res.jsonPathValues = json.values;
+        }
+    }
+
+    /**
+     * Values of simple paths ({@code $.a.b[0].c}) found in a possibly truncated JSON text. Paths that
+     * do not appear before the text ends are absent.
+     */
+    public static Map<String, String> jsonPaths(String text, Collection<String> expressions) {
+        Map<String, List<Object>> paths = new LinkedHashMap<>();
+        for (String e : expressions) {
+            try {
+                paths.put(e, segments(e));
+            } catch (RuntimeException malformed) {
+                // Left absent; the caller's own evaluation reports the error
+            }
+        }
+        return jsonPaths(text, paths);
+    }
+
+    static Map<String, String> jsonPaths(String text, Map<String, List<Object>> paths) {
+        JsonPathScanner scanner = new JsonPathScanner(paths);
+        if (text != null) {
+            byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+            scanner.feed(bytes, 0, bytes.length);
+        }
+        return scanner.values;
+    }
+
+    /** Field names and array indexes of a {@code $.a.b[0].c} path. */
+    static List<Object> segments(String expression) {
+        if (expression.startsWith("$.")) expression = expression.substring(2);
+        List<Object> out = new ArrayList<>();
+        for (String part : expression.split("\\.")) {
+            int bracket = part.indexOf('[');
+            if (bracket < 0) {
+                out.add(part);
+                continue;
+            }
+            String name = part.substring(0, bracket);
+            if (!name.isEmpty()) out.add(name);
+            out.add(Integer.parseInt(part.substring(bracket + 1, part.indexOf(']'))));
+        }
+        return out;
+    }
+
+    /** Knuth-Morris-Pratt over bytes, so a match may straddle chunk boundaries. */
+    private static class ContainsMatcher {
+        final byte[] pattern;
+        final int[] fallback;
+        int state;
+        boolean found;
+
+        ContainsMatcher(byte[] pattern) {
+            this.pattern = pattern;
+            this.fallback = new int[pattern.length];
+            for (int i = 1, k = 0; i < pattern.length; i++) {
+                while (k > 0 && pattern[i] != pattern[k]) k = fallback[k - 1];
+                if (pattern[i] == pattern[k]) k++;
+                fallback[i] = k;
+            }
+            this.found = pattern.length == 0;
+        }
+
+        void feed(byte[] b, int off, int len) {
+            if (found) return;
+            for (int i = off; i < off + len; i++) {
+                while (state > 0 && b[i] != pattern[state]) state = fallback[state - 1];
+                if (b[i] == pattern[state]) state++;
+                if (state == pattern.length) {
+                    found = true;
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class Frame {
+        final boolean array;
+        String field;
+        int index = -1;
+
+        Frame(boolean array) {
+            this.array = array;
+        }
+    }
+
+    /**
+     * Tracks the current position in a JSON stream and records the first value at each target
+     * path, as text the way {@code JsonNode.asText()} would render it. Handles only
+     * the simple paths CompiledAssertions hands over: dotted fields with an optional {@code [n]} index each.
+     */
+    private static class JsonPathScanner {
+        final Map<String, String> values = new LinkedHashMap<>();
+        final Map<String, List<Object>> pending = new LinkedHashMap<>();
+        final List<Frame> stack = new ArrayList<>();
+        final JsonParser parser;
+        final ByteArrayFeeder feeder;
+        boolean failed;
+
+        JsonPathScanner(Map<String, List<Object>> paths) {
+            pending.putAll(paths);
+            try {
+                parser = FACTORY.createNonBlockingByteArrayParser();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        }
+
+        void feed(byte[] b, int off, int len) {
+            if (failed || pending.isEmpty()) return;
+            try {
+                feeder.feedInput(b, off, off + len);
+                drain();
+            } catch (Exception e) {
+                failed = true;
+            }
+        }
+
+        void end() {
+            if (failed) return;
+            if (!pending.isEmpty()) {
+                try {
+                    feeder.endOfInput();
+                    drain();
+                } catch (Exception e) {
+                    failed = true;
+                    return;
+                }
+            }
+            // Parsed to the end without seeing them: the paths are missing
+            for (String e : pending.keySet()) values.put(e, null);
+            pending.clear();
+        }
+
+        private void drain() throws IOException {
+            JsonToken t;
+            while (!pending.isEmpty() && (t = parser.nextToken()) != null && t != JsonToken.NOT_AVAILABLE) {
+                switch (t) {
+                    case FIELD_NAME -> stack.get(stack.size() - 1).field = parser.currentName();
+                    case END_OBJECT, END_ARRAY -> stack.remove(stack.size() - 1);
+                    default -> {
+                        if (!stack.isEmpty() && stack.get(stack.size() - 1).array) stack.get(stack.size() - 1).index++;
+                        match(t);
+                        if (t == JsonToken.START_OBJECT || t == JsonToken.START_ARRAY) stack.add(new Frame(t == JsonToken.START_ARRAY));
+                    }
+                }
+            }
+        }
+
+        private void match(JsonToken t) throws IOException {
+            var it = pending.entrySet().iterator();
+            while (it.hasNext()) {
+                var e = it.next();
+                if (!at(e.getValue())) continue;
+                values.put(e.getKey(), text(t));
+                it.remove();
+            }
+        }
+
+        private boolean at(List<Object> segments) {
+            if (segments.size() != stack.size()) return false;
+            for (int i = 0; i < segments.size(); i++) {
+                Frame f = stack.get(i);
+                Object s = segments.get(i);
+                if (s instanceof Integer index ? !f.array || f.index != index : f.array || !s.equals(f.field)) return false;
+            }
+            return true;
+        }
+
+        private String text(JsonToken t) throws IOException {
+            return switch (t) {
+                case START_OBJECT, START_ARRAY -> "";
+                case VALUE_NUMBER_FLOAT -> String.valueOf(parser.getDoubleValue());
+                default -> parser.getText();
+            };
+        }
+    }
+}
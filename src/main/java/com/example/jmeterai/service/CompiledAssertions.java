@@ -0,0 +1,335 @@
+package com.example.jmeterai.service;
+
+import com.example.jmeterai.model.Assertion;
+import com.example.jmeterai.model.ExecutionResult;
+import com.example.jmeterai.model.TestCase;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.Configuration;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.Option;
+import com.jayway.jsonpath.spi.json.JacksonJsonNodeJsonProvider;
+import com.jayway.jsonpath.spi.mapper.JacksonMappingProvider;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A test case's assertions parsed once: jsonPath expressions split into segments, expected values
+ * converted and malformed assertions turned into a fixed failure, so evaluating a response does no
+ * string parsing beyond the body itself. The body is parsed at most once per response, and not at
+ * all when the assertions only look at status and time or when every jsonPath value was already
+ * extracted by {@link BodyCapture} while the body streamed by. Dotted paths with {@code [n]}
+ * indexes keep that streaming fast path; any other JSONPath (wildcards, filters, recursive descent,
+ * functions) is compiled once with Jayway and read from the same parsed tree, as is the response
+ * schema check when an operation is given. Instances are immutable and shared by all threads
+ * evaluating the case.
+ */
+public final class CompiledAssertions {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final Configuration JSON_PATH_CONF = Configuration.builder()
+            .jsonProvider(new JacksonJsonNodeJsonProvider(MAPPER))
+            .mappingProvider(new JacksonMappingProvider(MAPPER))
+            .options(Option.SUPPRESS_EXCEPTIONS)
+            .build();
+
+    // $.a.b[0].c and a.b: what BodyCapture can match while streaming
+    private static final Pattern SIMPLE_PATH = Pattern.compile("(\\$\\.)?[^.\\[\\]$@*?()'\"\\s]+(\\[\\d+])?(\\.[^.\\[\\]$@*?()'\"\\s]+(\\[\\d+])?)*");
+
+    public static final CompiledAssertions EMPTY = new CompiledAssertions(null);
+
+    private enum Kind { STATUS, CONTAINS, TIME, JSON_PATH, UNKNOWN }
+
+    private enum Op { EQUALS, CONTAINS, NOT_CONTAINS, GREATER, LESS, ANY }
+
+    private static final class Check {
+        final Assertion source;
+        final Kind kind;
+        final Op op;
+        final String expected;
+        final Double expectedNumber; // For greaterThan / lessThan, null if not a number
+        final long expectedLong; // Status code or response time limit
+        final List<Object> segments; // Field names and array indexes of a simple jsonPath
+        final JsonPath jsonPath; // Any other jsonPath
+        final String error; // Set when the assertion cannot be evaluated at all
+
+        Check(Assertion a) {
+            source = a;
+            expected = a.expected;
+            op = op(a.operator);
+            Double number = null;
+            try {
+                if (a.expected != null) number = Double.parseDouble(a.expected);
+            } catch (NumberFormatException e) {
+                // Compared as text only
+            }
+            expectedNumber = number;
+            Kind kind = Kind.UNKNOWN;
+            long limit = 0;
+            List<Object> path = null;
+            JsonPath full = null;
+            String err = null;
+            try {
+                if ("statusCode".equals(a.type)) {
+                    kind = Kind.STATUS;
+                    limit = Integer.parseInt(a.expected);
+                } else if ("bodyContains".equals(a.type)) {
+                    kind = Kind.CONTAINS;
+                    if (a.expected == null) err = "null";
+                } else if ("responseTime".equals(a.type)) {
+                    kind = Kind.TIME;
+                    limit = Long.parseLong(a.expected);
+                } else if ("jsonPath".equals(a.type)) {
+                    kind = Kind.JSON_PATH;
+                    if (a.expression != null && SIMPLE_PATH.matcher(a.expression).matches()) {
+                        path = List.copyOf(BodyCapture.segments(a.expression));
+                    } else if (a.expression != null) {
+                        full = JsonPath.compile(a.expression);
+                    }
+                }
+            } catch (RuntimeException e) {
+                err = e.getMessage();
+            }
+            this.kind = kind;
+            this.expectedLong = limit;
+            this.segments = path;
+            this.jsonPath = full;
+            this.error = err;
+        }
+
+        private static Op op(String operator) {
+            if ("equals".equals(operator)) return Op.EQUALS;
+            if ("contains".equals(operator)) return Op.CONTAINS;
+            if ("notContains".equals(operator)) return Op.NOT_CONTAINS;
+            if ("greaterThan".equals(operator)) return Op.GREATER;
+            if ("lessThan".equals(operator)) return Op.LESS;
+            return Op.ANY;
+        }
+
+        boolean compare(String val) {
+            switch (op) {
+                case EQUALS: return val.equals(expected);
+                case CONTAINS: return val.contains(expected);
+                case NOT_CONTAINS: return !val.contains(expected);
+                case GREATER:
+                case LESS:
+                    if (expectedNumber == null) return false;
+                    double v;
+                    try { v = Double.parseDouble(val); } catch (Exception e) { return false; }
+                    return op == Op.GREATER ? v > expectedNumber : v < expectedNumber;
+                default: return true;
+            }
+        }
+
+        /** An indefinite path passes if any match does; notContains needs every match to pass. */
+        boolean compareAll(JsonNode matches) {
+            if (matches.isEmpty()) return false;
+            for (JsonNode m : matches) {
+                boolean ok = compare(m.asText());
+                if (op == Op.NOT_CONTAINS ? !ok : ok) return ok;
+            }
+            return op == Op.NOT_CONTAINS;
+        }
+    }
+
+    public static final class Outcome {
+        public final boolean passed;
+        public final String reason;
+        public final int evaluated;
+
+        Outcome(boolean passed, String reason, int evaluated) {
+            this.passed = passed;
+            this.reason = reason;
+            this.evaluated = evaluated;
+        }
+    }
+
+    private final List<Assertion> source;
+    private final Check[] checks;
+    private final boolean needsBody;
+    private final Map<String, List<Object>> jsonPaths = new LinkedHashMap<>();
+    private final List<String> containsNeedles = new ArrayList<>();
+
+    private CompiledAssertions(List<Assertion> assertions) {
+        this.source = assertions;
+        List<Check> out = new ArrayList<>();
+        boolean body = false;
+        if (assertions != null) {
+            for (Assertion a : assertions) {
+                if (a == null) continue;
+                Check c = new Check(a);
+                out.add(c);
+                if (c.error != null) continue;
+                if (c.kind == Kind.CONTAINS) {
+                    body = true;
+                    if (!containsNeedles.contains(c.expected)) containsNeedles.add(c.expected);
+                } else if (c.kind == Kind.JSON_PATH) {
+                    body = true;
+                    if (c.segments != null) jsonPaths.putIfAbsent(a.expression, c.segments);
+                }
+            }
+        }
+        this.checks = out.toArray(new Check[0]);
+        this.needsBody = body;
+    }
+
+    public static CompiledAssertions compile(List<Assertion> assertions) {
+        return assertions == null || assertions.isEmpty() ? EMPTY : new CompiledAssertions(assertions);
+    }
+
+    /**
+     * The case's compiled assertions, compiled on first use. Assigning a new assertions list to the
+     * case recompiles; editing the list in place does not.
+     */
+    public static CompiledAssertions of(TestCase tc) {
+        CompiledAssertions c = tc.compiledAssertions;
+        if (c != null && c.source == tc.assertions) return c;
+        c = tc.assertions == null || tc.assertions.isEmpty() ? EMPTY : new CompiledAssertions(tc.assertions);
+        tc.compiledAssertions = c;
+        return c;
+    }
+
+    public boolean isEmpty() {
+        return checks.length == 0;
+    }
+
+    public int size() {
+        return checks.length;
+    }
+
+    /** Whether any assertion looks at the body; if not, the body need not be captured at all. */
+    public boolean needsBody() {
+        return needsBody;
+    }
+
+    Map<String, List<Object>> jsonPaths() {
+        return jsonPaths;
+    }
+
+    List<String> containsNeedles() {
+        return containsNeedles;
+    }
+
+    public Outcome evaluate(ExecutionResult result) {
+        return evaluate(result, null);
+    }
+
+    /**
+     * Evaluates the assertions and, when schema is given, checks the body against the response
+     * schema declared for the status code (see {@link ResponseSchemas.Operation#check}). The schema
+     * outcome is left on the result rather than folded into the returned verdict.
+     */
+    public Outcome evaluate(ExecutionResult result, ResponseSchemas.Operation schema) {
+        boolean allPassed = true;
+        StringBuilder reasons = null;
+        Map<String, String> prefixValues = null;
+        JsonNode root = null;
+        String parseError = null;
+        for (Check c : checks) {
+            boolean passed = false;
+            String actual = "";
+            try {
+                if (c.error != null) {
+                    actual = "Error: " + c.error;
+                } else switch (c.kind) {
+                    case STATUS -> {
+                        passed = result.statusCode == c.expectedLong;
+                        actual = String.valueOf(result.statusCode);
+                    }
+                    case CONTAINS -> {
+                        Boolean streamed = result.bodyContainsMatches == null ? null : result.bodyContainsMatches.get(c.expected);
+                        passed = streamed != null ? streamed : result.responseBody != null && result.responseBody.contains(c.expected);
+                        actual = !passed && streamed == null && result.responseTruncated ? "响应体已截断，仅检查了前 " + result.responseBody.length() + " 个字符" : "Body content";
+                    }
+                    case TIME -> {
+                        passed = result.durationMs < c.expectedLong;
+                        actual = result.durationMs + "ms";
+                    }
+                    case JSON_PATH -> {
+                        String expression = c.source.expression;
+                        if (c.jsonPath != null) {
+                            if (result.responseTruncated) {
+                                actual = "响应体已截断，无法在部分响应体上求值该 JSONPath";
+                            } else {
+                                if (root == null && parseError == null) {
+                                    try {
+                                        root = MAPPER.readTree(result.responseBody);
+                                    } catch (Exception e) {
+                                        parseError = String.valueOf(e.getMessage());
+                                    }
+                                }
+                                if (parseError != null) {
+                                    actual = "Error: " + parseError;
+                                } else {
+                                    Object value = c.jsonPath.read(root, JSON_PATH_CONF);
+                                    if (value instanceof JsonNode node && !c.jsonPath.isDefinite()) {
+                                        passed = c.compareAll(node);
+                                        actual = node.isEmpty() ? "未匹配到任何值" : abbreviate(node.toString());
+                                    } else {
+                                        String val = value == null ? null : value instanceof JsonNode node ? node.asText() : String.valueOf(value);
+                                        passed = val != null && c.compare(val);
+                                        actual = val == null ? "未匹配到任何值" : abbreviate(val);
+                                    }
+                                }
+                            }
+                        } else if (result.jsonPathValues != null && result.jsonPathValues.containsKey(expression)) {
+                            String val = result.jsonPathValues.get(expression);
+                            passed = val != null && c.compare(val);
+                            actual = val == null ? "JsonPath result" : val;
+                        } else if (result.responseTruncated) {
+                            // Only the captured prefix is left; a value found there is still authoritative
+                            if (prefixValues == null) prefixValues = BodyCapture.jsonPaths(result.responseBody, jsonPaths);
+                            String val = prefixValues.get(expression);
+                            passed = val != null && c.compare(val);
+                            actual = val == null ? "响应体已截断，已捕获部分中未找到该路径" : val;
+                        } else {
+                            if (root == null && parseError == null) {
+                                try {
+                                    root = MAPPER.readTree(result.responseBody);
+                                } catch (Exception e) {
+                                    parseError = String.valueOf(e.getMessage());
+                                }
+                            }
+                            if (parseError != null) {
+                                actual = "Error: " + parseError;
+                            } else {
+                                JsonNode node = c.segments == null ? null : at(root, c.segments);
+                                passed = node != null && !node.isMissingNode() && c.compare(node.asText());
+                                actual = "JsonPath result";
+                            }
+                        }
+                    }
+                    default -> { }
+                }
+            } catch (Exception e) {
+                passed = false;
+                actual = "Error: " + e.getMessage();
+            }
+            if (!passed) {
+                allPassed = false;
+                if (reasons == null) reasons = new StringBuilder();
+                reasons.append("[").append(c.source.failureMessage).append(" (Expected: ").append(c.expected).append(", Actual: ").append(actual).append(")] ");
+            }
+        }
+        if (schema != null) schema.check(result, root != null ? root : parseError != null ? com.fasterxml.jackson.databind.node.MissingNode.getInstance() : null);
+        return new Outcome(allPassed, allPassed ? "All assertions passed" : reasons.toString(), checks.length);
+    }
+
+    private static String abbreviate(String s) {
+        return s.length() <= 200 ? s : s.substring(0, 200) + "...";
+    }
+
+    private static JsonNode at(JsonNode root, List<Object> segments) {
+        JsonNode current = root;
+        for (Object s : segments) {
+            if (current == null) return null;
+            current = s instanceof Integer index ? current.path(index) : current.path((String) s);
+        }
+        return current;
+    }
+}
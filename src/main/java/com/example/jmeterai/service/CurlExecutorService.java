@@ -1,15 +1,20 @@
 package com.example.jmeterai.service;
 
 import com.example.jmeterai.model.ExecutionResult;
+import com.example.jmeterai.model.PhaseTimings;
 import com.example.jmeterai.model.TestCase;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 @Service
@@ -17,14 +22,87 @@ public class CurlExecutorService {
 
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(CurlExecutorService.class);
 
-    private final OkHttpClient client;
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Value("${HTTP_MAX_REQUESTS:1024}")
+    private int maxRequests = 1024;
+
+    @Value("${HTTP_MAX_REQUESTS_PER_HOST:256}")
+    private int maxRequestsPerHost = 256;
+
+    @Value("${HTTP_POOL_SIZE_PER_HOST:64}")
+    private int poolSizePerHost = 64;
+
+    @Value("${HTTP_MAX_IN_FLIGHT:4096}")
+    private int maxInFlight = 4096;
+
+    // Upper bound for one call from start to the last body byte, so no request stays in flight forever
+    @Value("${HTTP_CALL_TIMEOUT_SECONDS:120}")
+    private int callTimeoutSeconds = 120;
+
+    @Value("${HTTP_PROTOCOL:auto}")
+    private String protocol = "auto";
+
+    // Bytes of each response body kept for display and the LLM; the rest is only counted and hashed
+    @Value("${RESPONSE_CAPTURE_KB:64}")
+    private int captureKb = 64;
+
+    private volatile OkHttpClient client;
+    private final Map<String, OkHttpClient> hostClients = new java.util.concurrent.ConcurrentHashMap<>();
+    private volatile java.util.concurrent.Semaphore inFlight = new java.util.concurrent.Semaphore(maxInFlight);
 
     public CurlExecutorService() {
-        this.client = new OkHttpClient.Builder()
+        this.client = buildClient();
+    }
+
+    @PostConstruct
+    public void init() {
+        this.client = buildClient();
+        this.inFlight = new java.util.concurrent.Semaphore(Math.max(1, maxInFlight));
+        hostClients.clear();
+        metricsRegistry.gauge("jmeterai_http_in_flight", "HTTP requests outstanding in the async engine", List.of(),
+                () -> Map.of(List.of(), maxInFlight - inFlight.availablePermits()));
+        metricsRegistry.gauge("jmeterai_http_connections", "Pooled connections per target host", List.of("host", "state"), () -> {
+            Map<List<String>, Integer> out = new java.util.HashMap<>();
+            hostClients.forEach((host, c) -> {
+                int idle = c.connectionPool().idleConnectionCount();
+                out.put(List.of(host, "idle"), idle);
+                out.put(List.of(host, "active"), c.connectionPool().connectionCount() - idle);
+            });
+            return out;
+        });
+    }
+
+    /**
+     * Async calls run on a dispatcher backed by virtual threads, bounded by HTTP_MAX_REQUESTS overall
+     * and HTTP_MAX_REQUESTS_PER_HOST per host. HTTP/2 is negotiated via ALPN for https targets;
+     * HTTP_PROTOCOL=h2c speaks cleartext HTTP/2 with prior knowledge, http1 disables HTTP/2.
+     */
+    private OkHttpClient buildClient() {
+        Dispatcher dispatcher = new Dispatcher(java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor());
+        dispatcher.setMaxRequests(Math.max(1, maxRequests));
+        dispatcher.setMaxRequestsPerHost(Math.max(1, maxRequestsPerHost));
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .eventListenerFactory(PhaseTimingListener.FACTORY)
                 .connectTimeout(30, TimeUnit.SECONDS)
                 .readTimeout(60, TimeUnit.SECONDS)
                 .writeTimeout(60, TimeUnit.SECONDS)
-                .build();
+                .callTimeout(Math.max(0, callTimeoutSeconds), TimeUnit.SECONDS);
+        if ("h2c".equalsIgnoreCase(protocol)) {
+            builder.protocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE));
+        } else if ("http1".equalsIgnoreCase(protocol)) {
+            builder.protocols(List.of(Protocol.HTTP_1_1));
+        }
+        return builder.build();
+    }
+
+    // One pool per host so a busy target cannot evict another's idle connections; the dispatcher is shared
+    private OkHttpClient clientFor(HttpUrl url) {
+        return hostClients.computeIfAbsent(url.host() + ":" + url.port(), k -> client.newBuilder()
+                .connectionPool(new ConnectionPool(Math.max(1, poolSizePerHost), 5, TimeUnit.MINUTES))
+                .build());
     }
 
     public List<ExecutionResult> executeAll(List<TestCase> cases, String baseUrl) {
@@ -41,13 +119,143 @@ public class CurlExecutorService {
         ExecutionResult res = new ExecutionResult();
         res.caseName = tc.name;
         res.method = tc.method;
+        res.endpoint = endpointOf(tc);
         
-        String url = buildUrl(baseUrl, tc.path, tc.queryParams, tc.pathParams);
+        String url = resolveUrl(tc, baseUrl);
         res.url = url;
 
         String curl = generateCurl(tc.method, url, tc.headers, tc.body);
         res.curlCommand = curl;
 
+        res.timings = new PhaseTimings();
+        Request request = buildRequest(tc, url).newBuilder().tag(PhaseTimings.class, res.timings).build();
+
+        log.info("Executing: {} {}", tc.method, url);
+        if (log.isDebugEnabled()) {
+             log.debug("Curl: {}", curl);
+        }
+
+        long start = System.currentTimeMillis();
+        try (Response response = clientFor(request.url()).newCall(request).execute()) {
+            res.durationMs = System.currentTimeMillis() - start;
+            res.statusCode = response.code();
+            if (response.body() != null) capture(response.body(), res, CompiledAssertions.of(tc));
+            else res.responseBody = "";
+            res.success = response.isSuccessful(); // 2xx range
+            log.info("Executed {} {}: Status={}, Duration={}ms, TTFB={}ms, Reused={}", tc.method, url, res.statusCode, res.durationMs,
+                    String.format("%.1f", res.timings.ttfbMs), res.timings.connectionReused);
+        } catch (IOException e) {
+            res.durationMs = System.currentTimeMillis() - start;
+            res.success = false;
+            res.errorMessage = e.getMessage();
+            res.statusCode = -1;
+            log.error("Execution failed for {} {}: {}", tc.method, url, e.getMessage());
+        }
+
+        return res;
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #executeOne}. The caller waits only when HTTP_MAX_IN_FLIGHT
+     * requests are already outstanding.
+     */
+    public CompletableFuture<ExecutionResult> executeAsync(TestCase tc, String baseUrl) {
+        ExecutionResult res = new ExecutionResult();
+        res.caseName = tc.name;
+        res.method = tc.method;
+        res.endpoint = endpointOf(tc);
+        res.url = resolveUrl(tc, baseUrl);
+        res.curlCommand = generateCurl(tc.method, res.url, tc.headers, tc.body);
+        return sendAsync(buildRequest(tc, res.url), res, true, CompiledAssertions.of(tc));
+    }
+
+    public CompletableFuture<ExecutionResult> sendAsync(Request request, ExecutionResult res, boolean keepBody) {
+        return sendAsync(request, res, keepBody, CompiledAssertions.EMPTY);
+    }
+
+    /**
+     * Sends a prebuilt request. With keepBody false the body is drained and only its size kept,
+     * which is what load runs need. Phase timings are recorded into res.timings.
+     */
+    public CompletableFuture<ExecutionResult> sendAsync(Request request, ExecutionResult res, boolean keepBody, CompiledAssertions assertions) {
+        CompletableFuture<ExecutionResult> future = new CompletableFuture<>();
+        res.timings = new PhaseTimings();
+        request = request.newBuilder().tag(PhaseTimings.class, res.timings).build();
+        java.util.concurrent.Semaphore permits = inFlight;
+        permits.acquireUninterruptibly();
+        long start = System.currentTimeMillis();
+        clientFor(request.url()).newCall(request).enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    res.statusCode = response.code();
+                    res.success = response.isSuccessful();
+                    if (response.body() != null) {
+                        if (keepBody) {
+                            capture(response.body(), res, assertions);
+                        } else {
+                            res.responseBytes = response.body().source().readAll(okio.Okio.blackhole());
+                        }
+                    }
+                    res.durationMs = System.currentTimeMillis() - start;
+                } catch (Throwable e) {
+                    // Capture and assertion failures too: the caller must always get its result
+                    fail(res, e, start);
+                } finally {
+                    permits.release();
+                    future.complete(res);
+                }
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                try {
+                    fail(res, e, start);
+                } finally {
+                    permits.release();
+                    future.complete(res);
+                }
+            }
+        });
+        return future;
+    }
+
+    /** Streams the body through a bounded capture instead of materialising it. */
+    private void capture(ResponseBody body, ExecutionResult res, CompiledAssertions assertions) throws IOException {
+        MediaType contentType = body.contentType();
+        BodyCapture capture = new BodyCapture(captureKb * 1024,
+                contentType == null ? java.nio.charset.StandardCharsets.UTF_8 : contentType.charset(java.nio.charset.StandardCharsets.UTF_8), assertions);
+        try (java.io.InputStream in = body.byteStream()) {
+            capture.readFrom(in);
+        }
+        capture.finish(res);
+    }
+
+    private void fail(ExecutionResult res, Throwable e, long start) {
+        res.durationMs = System.currentTimeMillis() - start;
+        res.success = false;
+        res.errorMessage = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        res.statusCode = -1;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getCallTimeoutSeconds() {
+        return callTimeoutSeconds;
+    }
+
+    public static String endpointOf(TestCase tc) {
+        return (tc.method == null ? "" : tc.method.toUpperCase()) + " " + tc.path;
+    }
+
+    public String resolveUrl(TestCase tc, String baseUrl) {
+        return buildUrl(baseUrl, tc.path, tc.queryParams, tc.pathParams);
+    }
+
+    /** OkHttp requests are immutable and their string bodies replayable, so one can be sent many times. */
+    public Request buildRequest(TestCase tc, String url) {
         Request.Builder rb = new Request.Builder().url(url);
         
         // Headers
@@ -68,27 +276,7 @@ public class CurlExecutorService {
 
         rb.method(tc.method, body);
 
-        log.info("Executing: {} {}", tc.method, url);
-        if (log.isDebugEnabled()) {
-             log.debug("Curl: {}", curl);
-        }
-
-        long start = System.currentTimeMillis();
-        try (Response response = client.newCall(rb.build()).execute()) {
-            res.durationMs = System.currentTimeMillis() - start;
-            res.statusCode = response.code();
-            res.responseBody = response.body() != null ? response.body().string() : "";
-            res.success = response.isSuccessful(); // 2xx range
-            log.info("Executed {} {}: Status={}, Duration={}ms", tc.method, url, res.statusCode, res.durationMs);
-        } catch (IOException e) {
-            res.durationMs = System.currentTimeMillis() - start;
-            res.success = false;
-            res.errorMessage = e.getMessage();
-            res.statusCode = -1;
-            log.error("Execution failed for {} {}: {}", tc.method, url, e.getMessage());
-        }
-
-        return res;
+        return rb.build();
     }
 
     private boolean requiresBody(String method) {
@@ -0,0 +1,158 @@
+package com.example.jmeterai.service;
+
+import com.example.jmeterai.model.Assertion;
+import com.example.jmeterai.model.ExecutionResult;
+import com.example.jmeterai.model.QualityScenario;
+import com.example.jmeterai.model.TestCase;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rule-based pre-judge for outcomes that need no model: a happy path answered with 2xx and a
+ * success business code, or an abnormal-input case rejected with 400/409/422 or a business error.
+ * The status a case expects, from its own statusCode assertions or its goal, must match what came
+ * back; anything else returns null and goes to the LLM decision as before.
+ */
+@Service
+public class FastPathJudge {
+
+    private static final List<String> CODE_FIELDS = List.of("code", "status", "errCode", "errorCode", "retCode", "resultCode");
+    private static final Set<String> SUCCESS_CODES = Set.of("0", "200", "success", "ok");
+    // Rejections that come from validating the request; 401/403/429 never reached validation and
+    // 404/405 usually mean the case hit the wrong route or method, so those go to the LLM
+    private static final Set<Integer> CONFORMING_4XX = Set.of(400, 409, 422);
+    private static final long MIN_RESPONSE_TIME_BOUND_MS = 3000;
+    // "返回400", "状态码: 422", "HTTP 4xx", "status 200": a number next to a status word, not e.g. a length limit
+    private static final java.util.regex.Pattern GOAL_STATUS = java.util.regex.Pattern.compile(
+            "(?i)(?:http|status|状态码?|返回|响应)[^0-9a-z]{0,6}([1-5](?:\\d\\d|xx))(?![0-9])");
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public static class Verdict {
+        public String reason;
+        public List<Assertion> assertions = new ArrayList<>();
+    }
+
+    public Verdict judge(QualityScenario scenario, TestCase tc, ExecutionResult result) {
+        if (scenario == null || result == null || result.statusCode <= 0) return null;
+        int status = result.statusCode;
+        List<String> expected = expectedStatuses(tc);
+        BusinessCode business = businessCode(result.responseBody);
+        boolean is2xx = status >= 200 && status < 300;
+
+        if (scenario == QualityScenario.HAPPY_PATH) {
+            if (!is2xx || business == null || !business.success) return null;
+            // Without a stated status the goal of a happy path is success; a stated one must agree
+            if (!expected.isEmpty() && !matches(expected, status)) return null;
+            Verdict v = verdict("本地规则判定: 正常调用返回 " + status + " 且业务码 " + business.field + "=" + business.value + " 表示成功", result);
+            v.assertions.add(1, assertion("jsonPath", "$." + business.field, business.value, "业务码表示成功", "业务码非成功"));
+            return v;
+        }
+
+        // Other scenarios mix cases that must succeed with ones that must fail: only a rejection the case itself predicts counts
+        if (scenario != QualityScenario.ABNORMAL_INPUT || !matches(expected, status)) return null;
+        if (CONFORMING_4XX.contains(status)) {
+            Verdict v = verdict("本地规则判定: " + scenario.getDescription() + "用例被拒绝，返回 " + status, result);
+            if (business != null) {
+                v.assertions.add(1, assertion("jsonPath", "$." + business.field, business.value, "返回预期的错误码", "错误码与预期不符"));
+            }
+            return v;
+        }
+        if (is2xx && business != null && !business.success) {
+            Verdict v = verdict("本地规则判定: " + scenario.getDescription() + "用例返回业务错误 " + business.field + "=" + business.value, result);
+            v.assertions.add(1, assertion("jsonPath", "$." + business.field, business.value, "返回预期的业务错误码", "业务错误码与预期不符"));
+            return v;
+        }
+        return null;
+    }
+
+    /** "400", or "4xx" for a whole class, from statusCode equals assertions and the goal text. */
+    private static List<String> expectedStatuses(TestCase tc) {
+        List<String> out = new ArrayList<>();
+        if (tc == null) return out;
+        if (tc.assertions != null) {
+            for (Assertion a : tc.assertions) {
+                if (a != null && "statusCode".equals(a.type) && a.expected != null
+                        && (a.operator == null || "equals".equals(a.operator))) {
+                    out.add(a.expected.trim().toLowerCase());
+                }
+            }
+        }
+        if (tc.goal != null) {
+            java.util.regex.Matcher m = GOAL_STATUS.matcher(tc.goal);
+            while (m.find()) out.add(m.group(1).toLowerCase());
+        }
+        return out;
+    }
+
+    private static boolean matches(List<String> expected, int status) {
+        String code = String.valueOf(status);
+        for (String e : expected) {
+            if (e.equals(code) || (e.endsWith("xx") && e.length() == 3 && e.charAt(0) == code.charAt(0))) return true;
+        }
+        return false;
+    }
+
+    private Verdict verdict(String reason, ExecutionResult result) {
+        Verdict v = new Verdict();
+        v.reason = reason;
+        v.assertions.add(assertion("statusCode", null, String.valueOf(result.statusCode), "状态码符合预期", "状态码与预期不符"));
+        long bound = Math.max(MIN_RESPONSE_TIME_BOUND_MS, result.durationMs * 5);
+        Assertion time = assertion("responseTime", null, String.valueOf(bound), "响应时间正常", "响应时间过长");
+        time.operator = "lessThan";
+        v.assertions.add(time);
+        return v;
+    }
+
+    private Assertion assertion(String type, String expression, String expected, String successMessage, String failureMessage) {
+        Assertion a = new Assertion();
+        a.type = type;
+        a.expression = expression;
+        a.operator = "equals";
+        a.expected = expected;
+        a.successMessage = successMessage;
+        a.failureMessage = failureMessage;
+        return a;
+    }
+
+    private static class BusinessCode {
+        String field;
+        String value;
+        boolean success;
+    }
+
+    private BusinessCode businessCode(String body) {
+        if (body == null) return null;
+        String trimmed = body.trim();
+        if (!trimmed.startsWith("{")) return null;
+        try {
+            JsonNode root = mapper.readTree(trimmed);
+            for (String field : CODE_FIELDS) {
+                JsonNode n = root.path(field);
+                if (n.isValueNode() && !n.isNull()) {
+                    BusinessCode bc = new BusinessCode();
+                    bc.field = field;
+                    bc.value = n.asText();
+                    bc.success = SUCCESS_CODES.contains(bc.value.toLowerCase());
+                    return bc;
+                }
+            }
+            JsonNode success = root.path("success");
+            if (success.isBoolean()) {
+                BusinessCode bc = new BusinessCode();
+                bc.field = "success";
+                bc.value = success.asText();
+                bc.success = success.asBoolean();
+                return bc;
+            }
+        } catch (Exception e) {
+            return null;
+        }
+        return null;
+    }
+}
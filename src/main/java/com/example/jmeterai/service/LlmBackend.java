@@ -0,0 +1,21 @@
+package com.example.jmeterai.service;
+
+import com.example.jmeterai.model.LlmProviderStats;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Where {@link LlmService} sends completions: the OpenAI-compatible providers, or the local stub
+ * selected with LLM_PROVIDER=stub.
+ */
+public interface LlmBackend {
+
+    /** Streams content fragments to onDelta when it is not null; always returns the full completion. */
+    LlmCompletion call(String system, String user, Consumer<String> onDelta);
+
+    /** Provider and model a cached completion from this backend is valid for. */
+    String[] cacheScope();
+
+    List<LlmProviderStats> stats();
+}
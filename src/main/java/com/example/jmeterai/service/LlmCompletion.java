@@ -0,0 +1,11 @@
+package com.example.jmeterai.service;
+
+public class LlmCompletion {
+    public String provider;
+    public String model;
+    public String content;
+    public long promptTokens;
+    public long completionTokens;
+    public long latencyMs;
+    public long firstTokenMs; // Streaming only
+}
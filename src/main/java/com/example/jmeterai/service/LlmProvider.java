@@ -0,0 +1,248 @@
+package com.example.jmeterai.service;
+
+import com.example.jmeterai.model.LlmProviderStats;
+import com.openai.client.OpenAIClient;
+import com.openai.client.okhttp.OpenAIOkHttpClient;
+import com.openai.errors.RateLimitException;
+import com.openai.models.ChatCompletion;
+import com.openai.models.ChatCompletionCreateParams;
+import com.openai.models.ChatCompletionMessageParam;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One OpenAI-compatible endpoint with a long-lived client per API key, so connection pools and
+ * TLS sessions survive across calls. Keys are used round-robin. Keeps a sliding latency window
+ * and an exponentially weighted error rate for routing. Calls pass through an {@link LlmRateLimiter};
+ * the SDK's own retries are disabled so 429s reach the limiter and are retried here after Retry-After.
+ */
+public class LlmProvider {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(LlmProvider.class);
+
+    private static final int WINDOW = 256;
+    private static final double ALPHA = 0.2;
+
+    private final String name;
+    private final String baseUrl;
+    private final String model;
+    private final List<OpenAIClient> clients = new ArrayList<>();
+    private final AtomicInteger nextClient = new AtomicInteger();
+    private final LlmRateLimiter limiter;
+    private final int rateLimitRetries;
+
+    private final long[] latencies = new long[WINDOW];
+    private int latencyCount;
+    private int latencyPos;
+    private double ewmaLatencyMs = -1;
+    private double ewmaError;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile String lastError;
+
+    public LlmProvider(String name, String baseUrl, String model, List<String> apiKeys, Duration timeout,
+                       LlmRateLimiter limiter, int rateLimitRetries) {
+        this.name = name;
+        this.baseUrl = baseUrl;
+        this.model = model;
+        this.limiter = limiter;
+        this.rateLimitRetries = rateLimitRetries;
+        for (String key : apiKeys) {
+            clients.add(OpenAIOkHttpClient.builder()
+                    .apiKey(key)
+                    .baseUrl(baseUrl)
+                    .timeout(timeout)
+                    .maxRetries(0)
+                    .build());
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    public LlmCompletion complete(String system, String user) {
+        return complete(system, user, null);
+    }
+
+    /** With a delta consumer the completion is streamed and each content fragment is passed on as it arrives. */
+    public LlmCompletion complete(String system, String user, java.util.function.Consumer<String> onDelta) {
+        ChatCompletionCreateParams params = ChatCompletionCreateParams.builder()
+                .addMessage(ChatCompletionMessageParam.ofSystem(com.openai.models.ChatCompletionSystemMessageParam.builder().content(system).build()))
+                .addMessage(ChatCompletionMessageParam.ofUser(com.openai.models.ChatCompletionUserMessageParam.builder().content(user).build()))
+                .model(model)
+                .build();
+        long estimate = LlmRateLimiter.estimateTokens(system, user);
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                limiter.acquire(estimate);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            OpenAIClient client = clients.get(Math.floorMod(nextClient.getAndIncrement(), clients.size()));
+            calls.incrementAndGet();
+            inFlight.incrementAndGet();
+            long start = System.currentTimeMillis();
+            boolean released = false;
+            try {
+                LlmCompletion c = onDelta == null ? request(client, params) : requestStreaming(client, params, onDelta, start);
+                long duration = System.currentTimeMillis() - start;
+                c.latencyMs = duration;
+                limiter.onSuccess(estimate, c.promptTokens + c.completionTokens, duration);
+                released = true;
+                recordSuccess(duration);
+                return c;
+            } catch (RateLimitException e) {
+                long wait = retryAfterMs(e, attempt);
+                if (!released) limiter.onRateLimited(wait);
+                recordFailure(System.currentTimeMillis() - start, e);
+                if (attempt >= rateLimitRetries) throw e;
+                log.warn("LLM provider {} rate limited, retry {}/{} after {}ms", name, attempt + 1, rateLimitRetries, wait);
+            } catch (RuntimeException e) {
+                if (!released) limiter.onFailure();
+                recordFailure(System.currentTimeMillis() - start, e);
+                throw e;
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    private LlmCompletion request(OpenAIClient client, ChatCompletionCreateParams params) {
+        ChatCompletion chatCompletion = client.chat().completions().create(params);
+        if (chatCompletion.choices().isEmpty()) {
+            throw new RuntimeException("LLM returned no choices");
+        }
+        LlmCompletion c = newCompletion();
+        c.content = chatCompletion.choices().get(0).message().content().orElse("");
+        chatCompletion.usage().ifPresent(u -> {
+            c.promptTokens = u.promptTokens();
+            c.completionTokens = u.completionTokens();
+        });
+        return c;
+    }
+
+    private LlmCompletion requestStreaming(OpenAIClient client, ChatCompletionCreateParams params,
+                                           java.util.function.Consumer<String> onDelta, long start) {
+        LlmCompletion c = newCompletion();
+        StringBuilder content = new StringBuilder();
+        try (com.openai.core.http.StreamResponse<com.openai.models.ChatCompletionChunk> stream = client.chat().completions().createStreaming(params)) {
+            stream.stream().forEach(chunk -> {
+                chunk.usage().ifPresent(u -> {
+                    c.promptTokens = u.promptTokens();
+                    c.completionTokens = u.completionTokens();
+                });
+                if (chunk.choices().isEmpty()) return;
+                chunk.choices().get(0).delta().content().ifPresent(delta -> {
+                    if (delta.isEmpty()) return;
+                    if (content.length() == 0) c.firstTokenMs = System.currentTimeMillis() - start;
+                    content.append(delta);
+                    onDelta.accept(delta);
+                });
+            });
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        c.content = content.toString();
+        return c;
+    }
+
+    private LlmCompletion newCompletion() {
+        LlmCompletion c = new LlmCompletion();
+        c.provider = name;
+        c.model = model;
+        return c;
+    }
+
+    /** Retry-After (seconds or HTTP date) / retry-after-ms, else exponential backoff with jitter capped at 60s. */
+    static long retryAfterMs(RateLimitException e, int attempt) {
+        try {
+            List<String> ms = e.headers().values("retry-after-ms");
+            if (!ms.isEmpty()) return Math.max(0, (long) Double.parseDouble(ms.get(0).trim()));
+            List<String> ra = e.headers().values("retry-after");
+            if (!ra.isEmpty()) {
+                String v = ra.get(0).trim();
+                try {
+                    return Math.max(0, (long) (Double.parseDouble(v) * 1000));
+                } catch (NumberFormatException nfe) {
+                    java.time.ZonedDateTime at = java.time.ZonedDateTime.parse(v, java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME);
+                    return Math.max(0, at.toInstant().toEpochMilli() - System.currentTimeMillis());
+                }
+            }
+        } catch (Exception ignored) {
+            // Fall through to backoff
+        }
+        long base = Math.min(60000, 1000L << Math.min(attempt, 6));
+        return base / 2 + java.util.concurrent.ThreadLocalRandom.current().nextLong(base / 2 + 1);
+    }
+
+    private synchronized void recordSuccess(long latencyMs) {
+        latencies[latencyPos] = latencyMs;
+        latencyPos = (latencyPos + 1) % WINDOW;
+        latencyCount = Math.min(WINDOW, latencyCount + 1);
+        ewmaLatencyMs = ewmaLatencyMs < 0 ? latencyMs : ALPHA * latencyMs + (1 - ALPHA) * ewmaLatencyMs;
+        ewmaError = (1 - ALPHA) * ewmaError;
+    }
+
+    private synchronized void recordFailure(long latencyMs, Exception e) {
+        failures.incrementAndGet();
+        ewmaError = ALPHA + (1 - ALPHA) * ewmaError;
+        // A timeout is also a latency signal
+        if (ewmaLatencyMs >= 0) ewmaLatencyMs = ALPHA * Math.max(latencyMs, ewmaLatencyMs) + (1 - ALPHA) * ewmaLatencyMs;
+        lastError = e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+
+    /** Lower is better. Untried providers score 0 so they get sampled at least once. */
+    public synchronized double score() {
+        if (ewmaLatencyMs < 0) return 0;
+        return ewmaLatencyMs * (1 + 4 * ewmaError) * (1 + inFlight.get() * 0.1);
+    }
+
+    public synchronized LlmProviderStats stats() {
+        LlmProviderStats s = new LlmProviderStats();
+        s.name = name;
+        s.model = model;
+        s.baseUrl = baseUrl;
+        s.keys = clients.size();
+        s.calls = calls.get();
+        s.failures = failures.get();
+        s.inFlight = inFlight.get();
+        s.errorRate = ewmaError;
+        s.ewmaLatencyMs = Math.max(0, ewmaLatencyMs);
+        long[] sorted = Arrays.copyOf(latencies, latencyCount);
+        Arrays.sort(sorted);
+        s.p50 = percentile(sorted, 0.50);
+        s.p90 = percentile(sorted, 0.90);
+        s.p99 = percentile(sorted, 0.99);
+        s.score = score();
+        s.lastError = lastError;
+        s.concurrencyLimit = limiter.getLimit();
+        s.rateLimited = limiter.getRateLimited();
+        s.throttledMs = limiter.getThrottledMs();
+        return s;
+    }
+
+    private double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return 0;
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, index)];
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.jmeterai.service;
+
+import com.example.jmeterai.model.LlmProviderStats;
+import com.openai.errors.OpenAIIoException;
+import com.openai.errors.OpenAIServiceException;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Long-lived providers for every configured DeepSeek / Gemini / DashScope key set.
+ * LLM_ROUTING=fixed (default) keeps LLM_PROVIDER (or the first configured one) as primary;
+ * LLM_ROUTING=latency orders providers by recent latency and error rate on every call.
+ * Either way, 5xx, 408, I/O failures and 429s that outlast the provider's own retries fail over
+ * to the next provider.
+ */
+@Service
+public class LlmProviderRegistry implements LlmBackend {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(LlmProviderRegistry.class);
+
+    @Value("${LLM_PROVIDER:}")
+    private String provider;
+
+    @Value("${LLM_ROUTING:fixed}")
+    private String routing;
+
+    @Value("${LLM_FAILOVER:true}")
+    private boolean failover;
+
+    @Value("${LLM_TIMEOUT_SECONDS:300}")
+    private long timeoutSeconds;
+
+    @Value("${LLM_RPM:0}")
+    private long requestsPerMinute;
+
+    @Value("${LLM_TPM:0}")
+    private long tokensPerMinute;
+
+    @Value("${LLM_MAX_CONCURRENCY:8}")
+    private int maxConcurrency;
+
+    @Value("${LLM_LATENCY_TARGET_MS:0}")
+    private long latencyTargetMs;
+
+    @Value("${LLM_RATE_LIMIT_RETRIES:5}")
+    private int rateLimitRetries;
+
+    @Autowired
+    private Environment env;
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Value("${DEEPSEEK_API_KEY:}")
+    private String deepseekKey;
+    @Value("${DEEPSEEK_BASE_URL:https://api.deepseek.com}")
+    private String deepseekBase;
+    @Value("${DEEPSEEK_MODEL:deepseek-chat}")
+    private String deepseekModel;
+
+    @Value("${GEMINI_API_KEY:}")
+    private String geminiKey;
+    @Value("${GEMINI_BASE_URL:https://generativelanguage.googleapis.com}")
+    private String geminiBase;
+    @Value("${GEMINI_MODEL:gemini-3-pro-preview}")
+    private String geminiModel;
+
+    @Value("${DASHSCOPE_API_KEY:}")
+    private String dashKey;
+    @Value("${DASHSCOPE_BASE_URL:https://dashscope.aliyuncs.com/compatible-mode/v1}")
+    private String dashBase;
+    @Value("${DASHSCOPE_MODEL:qwen-plus}")
+    private String dashModel;
+
+    private final Map<String, LlmProvider> providers = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        Duration timeout = Duration.ofSeconds(timeoutSeconds);
+        register("deepseek", deepseekBase, deepseekModel, deepseekKey, timeout);
+        register("gemini", geminiBase, geminiModel, geminiKey, timeout);
+        register("dashscope", dashBase, dashModel, dashKey, timeout);
+        log.info("LLM providers: {}, routing={}, failover={}", providers.keySet(), routing, failover);
+    }
+
+    private void register(String name, String baseUrl, String model, String keys, Duration timeout) {
+        List<String> keyList = new ArrayList<>();
+        for (String k : keys.split(",")) {
+            if (!k.trim().isEmpty()) keyList.add(k.trim());
+        }
+        if (keyList.isEmpty()) return;
+        // Per-provider overrides, e.g. DEEPSEEK_RPM, fall back to the global limits
+        String prefix = name.toUpperCase();
+        LlmRateLimiter limiter = new LlmRateLimiter(
+                env.getProperty(prefix + "_RPM", Long.class, requestsPerMinute),
+                env.getProperty(prefix + "_TPM", Long.class, tokensPerMinute),
+                env.getProperty(prefix + "_MAX_CONCURRENCY", Integer.class, maxConcurrency),
+                latencyTargetMs);
+        providers.put(name, new LlmProvider(name, baseUrl, model, keyList, timeout, limiter, rateLimitRetries));
+    }
+
+    /** Providers in the order they should be tried for the next call. */
+    public List<LlmProvider> route() {
+        String p = provider == null ? "" : provider.toLowerCase();
+        if (!p.isEmpty() && !providers.containsKey(p)) {
+            throw new RuntimeException("未配置可用的LLM: 请设置 LLM_PROVIDER 以及对应密钥");
+        }
+        if (providers.isEmpty()) {
+            throw new RuntimeException("未配置可用的LLM: 请设置 LLM_PROVIDER 以及对应密钥");
+        }
+        List<LlmProvider> ordered = new ArrayList<>(providers.values());
+        if ("latency".equalsIgnoreCase(routing)) {
+            ordered.sort(Comparator.comparingDouble(LlmProvider::score));
+        } else if (!p.isEmpty()) {
+            ordered.remove(providers.get(p));
+            ordered.add(0, providers.get(p));
+        }
+        return failover ? ordered : ordered.subList(0, 1);
+    }
+
+    /**
+     * Identifies the provider/model a cached completion is valid for. With latency routing any
+     * configured provider may answer, so the whole set is the scope.
+     */
+    @Override
+    public String[] cacheScope() {
+        if ("latency".equalsIgnoreCase(routing)) {
+            StringBuilder models = new StringBuilder();
+            for (LlmProvider lp : providers.values()) {
+                if (models.length() > 0) models.append(",");
+                models.append(lp.getName()).append("/").append(lp.getModel());
+            }
+            return new String[]{"auto", models.toString()};
+        }
+        LlmProvider primary = route().get(0);
+        return new String[]{primary.getName(), primary.getModel()};
+    }
+
+    public LlmCompletion call(String system, String user) {
+        return call(system, user, null);
+    }
+
+    /**
+     * Streams when onDelta is given. Once a fragment has been handed out the call is committed to
+     * that provider, since a failover would replay the content from the start.
+     */
+    @Override
+    public LlmCompletion call(String system, String user, java.util.function.Consumer<String> onDelta) {
+        List<LlmProvider> candidates = route();
+        RuntimeException last = null;
+        boolean[] delivered = new boolean[1];
+        java.util.function.Consumer<String> sink = onDelta == null ? null : delta -> {
+            delivered[0] = true;
+            onDelta.accept(delta);
+        };
+        for (int i = 0; i < candidates.size(); i++) {
+            LlmProvider lp = candidates.get(i);
+            log.info("Calling LLM: provider={}, model={}, baseUrl={},system length={},user length={}", lp.getName(), lp.getModel(), lp.getBaseUrl(), system.length(), user.length());
+            long start = System.currentTimeMillis();
+            try {
+                LlmCompletion c = lp.complete(system, user, sink);
+                metricsRegistry.recordLlmCall(lp.getName(), true, c.latencyMs, c.promptTokens, c.completionTokens);
+                return c;
+            } catch (RuntimeException e) {
+                metricsRegistry.recordLlmCall(lp.getName(), false, System.currentTimeMillis() - start, 0, 0);
+                last = e;
+                if (!isRetriable(e) || delivered[0] || i == candidates.size() - 1) break;
+                log.warn("LLM provider {} failed ({}), failing over to {}", lp.getName(), e.getMessage(), candidates.get(i + 1).getName());
+            }
+        }
+        throw last;
+    }
+
+    static boolean isRetriable(Throwable e) {
+        if (e instanceof OpenAIIoException) return true;
+        if (e instanceof OpenAIServiceException se) {
+            int code = se.statusCode();
+            return code >= 500 || code == 408 || code == 429;
+        }
+        return e.getCause() instanceof java.io.IOException;
+    }
+
+    @Override
+    public List<LlmProviderStats> stats() {
+        List<LlmProviderStats> out = new ArrayList<>();
+        for (LlmProvider lp : providers.values()) out.add(lp.stats());
+        return out;
+    }
+}
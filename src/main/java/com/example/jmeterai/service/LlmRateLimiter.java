@@ -0,0 +1,143 @@
+package com.example.jmeterai.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-provider admission control: token buckets for requests/min and tokens/min, an AIMD
+ * concurrency limit (halved on 429 or a latency overshoot, +1 per limit's worth of good calls)
+ * and a pause honoring Retry-After. Callers block in {@link #acquire} instead of hitting the provider.
+ */
+public class LlmRateLimiter {
+
+    private final double requestsPerMs;
+    private final double requestCapacity;
+    private final double tokensPerMs;
+    private final double tokenCapacity;
+    private final int maxConcurrency;
+    private final long latencyTargetMs;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private double requestTokens;
+    private double tokenTokens;
+    private long lastRefill = System.nanoTime();
+    private double limit;
+    private int inFlight;
+    private long pausedUntil;
+
+    private final AtomicLong rateLimited = new AtomicLong();
+    private final AtomicLong throttledNanos = new AtomicLong();
+
+    public LlmRateLimiter(long requestsPerMinute, long tokensPerMinute, int maxConcurrency, long latencyTargetMs) {
+        this.requestsPerMs = requestsPerMinute / 60000.0;
+        this.requestCapacity = requestsPerMinute;
+        this.tokensPerMs = tokensPerMinute / 60000.0;
+        this.tokenCapacity = tokensPerMinute;
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.latencyTargetMs = latencyTargetMs;
+        this.requestTokens = requestCapacity;
+        this.tokenTokens = tokenCapacity;
+        this.limit = this.maxConcurrency;
+    }
+
+    public static long estimateTokens(String system, String user) {
+        return (system.length() + user.length()) / 4 + 1;
+    }
+
+    public void acquire(long estimatedTokens) throws InterruptedException {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            while (true) {
+                refill();
+                long waitMs = 0;
+                long now = System.currentTimeMillis();
+                if (now < pausedUntil) {
+                    waitMs = pausedUntil - now;
+                } else if (inFlight >= (int) limit) {
+                    waitMs = 1000;
+                } else if (requestCapacity > 0 && requestTokens < 1) {
+                    waitMs = (long) Math.ceil((1 - requestTokens) / requestsPerMs);
+                } else if (tokenCapacity > 0 && tokenTokens < Math.min(estimatedTokens, tokenCapacity)) {
+                    waitMs = (long) Math.ceil((Math.min(estimatedTokens, tokenCapacity) - tokenTokens) / tokensPerMs);
+                }
+                if (waitMs <= 0) break;
+                changed.await(Math.max(1, waitMs), TimeUnit.MILLISECONDS);
+            }
+            if (requestCapacity > 0) requestTokens -= 1;
+            if (tokenCapacity > 0) tokenTokens -= estimatedTokens;
+            inFlight++;
+        } finally {
+            lock.unlock();
+            throttledNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /** Releases the slot; actual usage corrects the up-front estimate (may leave the bucket in debt). */
+    public void onSuccess(long estimatedTokens, long actualTokens, long latencyMs) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (tokenCapacity > 0 && actualTokens > 0) tokenTokens -= actualTokens - estimatedTokens;
+            if (latencyTargetMs > 0 && latencyMs > latencyTargetMs) {
+                limit = Math.max(1, limit * 0.5);
+            } else {
+                limit = Math.min(maxConcurrency, limit + 1.0 / limit);
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onRateLimited(long retryAfterMs) {
+        rateLimited.incrementAndGet();
+        lock.lock();
+        try {
+            inFlight--;
+            limit = Math.max(1, limit * 0.5);
+            pausedUntil = Math.max(pausedUntil, System.currentTimeMillis() + retryAfterMs);
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void onFailure() {
+        lock.lock();
+        try {
+            inFlight--;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double elapsedMs = (now - lastRefill) / 1_000_000.0;
+        lastRefill = now;
+        if (requestCapacity > 0) requestTokens = Math.min(requestCapacity, requestTokens + elapsedMs * requestsPerMs);
+        if (tokenCapacity > 0) tokenTokens = Math.min(tokenCapacity, tokenTokens + elapsedMs * tokensPerMs);
+    }
+
+    public double getLimit() {
+        lock.lock();
+        try {
+            return limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRateLimited() {
+        return rateLimited.get();
+    }
+
+    public long getThrottledMs() {
+        return throttledNanos.get() / 1_000_000;
+    }
+}
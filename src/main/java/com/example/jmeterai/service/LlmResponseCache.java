@@ -0,0 +1,240 @@
+package com.example.jmeterai.service;
+
+import com.example.jmeterai.model.LlmCacheStats;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Content-addressed cache for LLM completions. Keys are a SHA-256 of provider, model, system and
+ * user prompt; a size-bounded in-memory LRU sits in front of one JSON file per key on disk.
+ */
+@Service
+public class LlmResponseCache {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(LlmResponseCache.class);
+
+    @Value("${LLM_CACHE_ENABLED:false}")
+    private boolean enabled;
+
+    @Value("${LLM_CACHE_DIR:llm-cache}")
+    private String directory;
+
+    @Value("${LLM_CACHE_MEMORY_MB:64}")
+    private long memoryMb;
+
+    @Value("${LLM_CACHE_TTL_HOURS:168}")
+    private long ttlHours;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(256, 0.75f, true);
+    private long memoryBytes;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final AtomicLong stores = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong bytesServed = new AtomicLong();
+    private final AtomicLong bytesStored = new AtomicLong();
+
+    private static class Entry {
+        final String content;
+        final long createdAt;
+
+        Entry(String content, long createdAt) {
+            this.content = content;
+            this.createdAt = createdAt;
+        }
+
+        long weight() {
+            return (long) content.length() * 2 + 64;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public static String key(String provider, String model, String system, String user) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            for (String part : new String[]{provider, model, system, user}) {
+                byte[] bytes = (part == null ? "" : part).getBytes(StandardCharsets.UTF_8);
+                // Length prefix keeps ("ab","c") and ("a","bc") apart
+                md.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+                md.update((byte) ':');
+                md.update(bytes);
+            }
+            return HexFormat.of().formatHex(md.digest());
+        } catch (Exception e) {
+            throw new RuntimeException("无法计算缓存键: " + e.getMessage(), e);
+        }
+    }
+
+    public String get(String key) {
+        if (!enabled) return null;
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Entry e = memory.get(key);
+            if (e != null) {
+                if (!isExpired(e.createdAt, now)) {
+                    memoryHits.incrementAndGet();
+                    bytesServed.addAndGet(e.content.length());
+                    return e.content;
+                }
+                removeFromMemory(key);
+            }
+        }
+        Path file = fileFor(key);
+        if (Files.isRegularFile(file)) {
+            try {
+                JsonNode node = mapper.readTree(file.toFile());
+                long createdAt = node.path("createdAt").asLong(0);
+                if (isExpired(createdAt, now)) {
+                    expired.incrementAndGet();
+                    Files.deleteIfExists(file);
+                } else {
+                    String content = node.path("content").asText("");
+                    remember(key, new Entry(content, createdAt));
+                    diskHits.incrementAndGet();
+                    bytesServed.addAndGet(content.length());
+                    return content;
+                }
+            } catch (Exception e) {
+                log.warn("Dropping unreadable LLM cache entry {}: {}", key, e.getMessage());
+                try { Files.deleteIfExists(file); } catch (Exception ignored) {}
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String key, String provider, String model, String content) {
+        if (!enabled || content == null || content.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        remember(key, new Entry(content, now));
+        stores.incrementAndGet();
+        bytesStored.addAndGet(content.length());
+        Path file = fileFor(key);
+        try {
+            Files.createDirectories(file.getParent());
+            ObjectNode node = mapper.createObjectNode();
+            node.put("createdAt", now);
+            node.put("provider", provider);
+            node.put("model", model);
+            node.put("content", content);
+            // Write then rename so a concurrent reader never sees a half-written file
+            Path tmp = Files.createTempFile(file.getParent(), key, ".tmp");
+            mapper.writeValue(tmp.toFile(), node);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            log.warn("Failed to persist LLM cache entry {}: {}", key, e.getMessage());
+        }
+    }
+
+    public boolean invalidate(String key) {
+        if (key == null || !key.matches("[0-9a-f]{64}")) return false;
+        boolean removed;
+        synchronized (this) {
+            removed = removeFromMemory(key);
+        }
+        try {
+            removed |= Files.deleteIfExists(fileFor(key));
+        } catch (Exception e) {
+            log.warn("Failed to delete LLM cache entry {}: {}", key, e.getMessage());
+        }
+        return removed;
+    }
+
+    public long invalidateAll() {
+        long count;
+        synchronized (this) {
+            count = memory.size();
+            memory.clear();
+            memoryBytes = 0;
+        }
+        Path root = Path.of(directory);
+        if (Files.isDirectory(root)) {
+            try (java.util.stream.Stream<Path> files = Files.walk(root)) {
+                long deleted = files.filter(p -> p.toString().endsWith(".json")).filter(p -> {
+                    try { return Files.deleteIfExists(p); } catch (Exception e) { return false; }
+                }).count();
+                count = Math.max(count, deleted);
+            } catch (Exception e) {
+                log.warn("Failed to clear LLM cache directory {}: {}", root, e.getMessage());
+            }
+        }
+        return count;
+    }
+
+    public LlmCacheStats stats() {
+        LlmCacheStats s = new LlmCacheStats();
+        s.enabled = enabled;
+        s.directory = Path.of(directory).toAbsolutePath().toString();
+        synchronized (this) {
+            s.memoryEntries = memory.size();
+            s.memoryBytes = memoryBytes;
+        }
+        s.memoryLimitBytes = memoryLimitBytes();
+        s.memoryHits = memoryHits.get();
+        s.diskHits = diskHits.get();
+        s.misses = misses.get();
+        s.expired = expired.get();
+        s.stores = stores.get();
+        s.evictions = evictions.get();
+        s.bytesServed = bytesServed.get();
+        s.bytesStored = bytesStored.get();
+        long lookups = s.memoryHits + s.diskHits + s.misses;
+        s.hitRate = lookups == 0 ? 0 : (double) (s.memoryHits + s.diskHits) / lookups;
+        return s;
+    }
+
+    private synchronized void remember(String key, Entry e) {
+        removeFromMemory(key);
+        long limit = memoryLimitBytes();
+        if (e.weight() > limit) return;
+        memory.put(key, e);
+        memoryBytes += e.weight();
+        Iterator<Map.Entry<String, Entry>> it = memory.entrySet().iterator();
+        while (memoryBytes > limit && it.hasNext()) {
+            Map.Entry<String, Entry> eldest = it.next();
+            memoryBytes -= eldest.getValue().weight();
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private boolean removeFromMemory(String key) {
+        Entry old = memory.remove(key);
+        if (old == null) return false;
+        memoryBytes -= old.weight();
+        return true;
+    }
+
+    private boolean isExpired(long createdAt, long now) {
+        return ttlHours > 0 && now - createdAt > ttlHours * 3_600_000L;
+    }
+
+    private long memoryLimitBytes() {
+        return Math.max(0, memoryMb) * 1024 * 1024;
+    }
+
+    private Path fileFor(String key) {
+        return Path.of(directory, key.substring(0, 2), key + ".json");
+    }
+}
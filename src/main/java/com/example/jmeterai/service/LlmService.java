@@ -1,96 +1,95 @@
 package com.example.jmeterai.service;
 
-import com.openai.client.OpenAIClient;
-import com.openai.client.okhttp.OpenAIOkHttpClient;
-import com.openai.models.ChatCompletion;
-import com.openai.models.ChatCompletionCreateParams;
-import com.openai.models.ChatCompletionMessageParam;
-import lombok.extern.slf4j.Slf4j;
+import com.example.jmeterai.model.LlmProviderStats;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.time.Duration;
+import java.util.List;
 
 @Service
 public class LlmService {
     
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(LlmService.class);
 
-    @Value("${LLM_PROVIDER:}")
-    private String provider;
+    @Autowired
+    private LlmResponseCache cache;
 
-    @Value("${DEEPSEEK_API_KEY:}")
-    private String deepseekKey;
-    @Value("${DEEPSEEK_BASE_URL:https://api.deepseek.com}")
-    private String deepseekBase;
-    @Value("${DEEPSEEK_MODEL:deepseek-chat}")
-    private String deepseekModel;
+    @Autowired
+    private LlmProviderRegistry registry;
 
-    @Value("${GEMINI_API_KEY:}")
-    private String geminiKey;
-    @Value("${GEMINI_BASE_URL:https://generativelanguage.googleapis.com}")
-    private String geminiBase;
-    @Value("${GEMINI_MODEL:gemini-3-pro-preview}")
-    private String geminiModel;
+    @Autowired
+    private StubLlmBackend stub;
 
-    @Value("${DASHSCOPE_API_KEY:}")
-    private String dashKey;
-    @Value("${DASHSCOPE_BASE_URL:https://dashscope.aliyuncs.com/compatible-mode/v1}")
-    private String dashBase;
-    @Value("${DASHSCOPE_MODEL:qwen-plus}")
-    private String dashModel;
+    @Autowired
+    private MetricsRegistry metricsRegistry;
 
-    public String callLlm(String system, String user) throws Exception {
-        String p = provider.toLowerCase();
-        boolean hasDeepseek = !deepseekKey.isEmpty();
-        boolean hasGemini = !geminiKey.isEmpty();
-        boolean hasDash = !dashKey.isEmpty();
-        
-        String apiKey = "";
-        String baseUrl = "";
-        String model = "";
+    @Value("${LLM_PROVIDER:}")
+    private String provider;
 
-        if (p.equals("deepseek") || (p.isEmpty() && hasDeepseek)) {
-            apiKey = deepseekKey;
-            baseUrl = deepseekBase;
-            model = deepseekModel;
-        } else if (p.equals("gemini") || (p.isEmpty() && hasGemini)) {
-            apiKey = geminiKey;
-            baseUrl = geminiBase;
-            model = geminiModel;
-        } else if (p.equals("dashscope") || (p.isEmpty() && hasDash)) {
-            apiKey = dashKey;
-            baseUrl = dashBase;
-            model = dashModel;
-        } else {
-             throw new RuntimeException("未配置可用的LLM: 请设置 LLM_PROVIDER 以及对应密钥");
-        }
+    @jakarta.annotation.PostConstruct
+    public void registerGauges() {
+        metricsRegistry.gauge("jmeterai_llm_in_flight", "LLM calls currently outstanding", List.of("provider"), () -> {
+            java.util.Map<List<String>, Integer> out = new java.util.HashMap<>();
+            for (LlmProviderStats s : backend().stats()) out.put(List.of(s.name), s.inFlight);
+            return out;
+        });
+        metricsRegistry.gauge("jmeterai_llm_concurrency_limit", "Adaptive LLM concurrency limit", List.of("provider"), () -> {
+            java.util.Map<List<String>, Double> out = new java.util.HashMap<>();
+            for (LlmProviderStats s : backend().stats()) out.put(List.of(s.name), s.concurrencyLimit);
+            return out;
+        });
+    }
 
-         log.info("Calling LLM: provider={}, model={}, baseUrl={},system length={},user length={}", p, model, baseUrl,system.length(),user.length());
+    public LlmBackend backend() {
+        return "stub".equalsIgnoreCase(provider) ? stub : registry;
+    }
 
-        long start = System.currentTimeMillis();
-        OpenAIClient client = OpenAIOkHttpClient.builder()
-                .apiKey(apiKey)
-                .baseUrl(baseUrl)
-                .timeout(Duration.ofSeconds(300))
-                .build();
+    public String callLlm(String system, String user) throws Exception {
+        return callLlm(system, user, null);
+    }
 
-        ChatCompletionCreateParams params = ChatCompletionCreateParams.builder()
-                .addMessage(ChatCompletionMessageParam.ofSystem(com.openai.models.ChatCompletionSystemMessageParam.builder().content(system).build()))
-                .addMessage(ChatCompletionMessageParam.ofUser(com.openai.models.ChatCompletionUserMessageParam.builder().content(user).build()))
-                .model(model)
-                .build();
+    /**
+     * Streaming variant: content fragments reach onDelta while the completion is still being
+     * generated. A cache hit is delivered as one fragment. Returns the full content either way.
+     */
+    public String callLlm(String system, String user, java.util.function.Consumer<String> onDelta) throws Exception {
+        LlmBackend backend = backend();
+        String cacheKey = null;
+        String[] scope = null;
+        if (cache.isEnabled()) {
+            scope = backend.cacheScope();
+            cacheKey = LlmResponseCache.key(scope[0], scope[1], system, user);
+            String cached = cache.get(cacheKey);
+            if (cached != null) {
+                log.info("LLM cache hit: provider={}, model={}, key={}, length={}", scope[0], scope[1], cacheKey, cached.length());
+                metricsRegistry.recordLlmCacheHit();
+                if (onDelta != null) onDelta.accept(cached);
+                return cached;
+            }
+        }
 
-        ChatCompletion chatCompletion = client.chat().completions().create(params);
-        long duration = System.currentTimeMillis() - start;
-        
-        if (chatCompletion.choices().isEmpty()) {
-            log.error("LLM returned no choices after {}ms", duration);
-            throw new RuntimeException("LLM returned no choices");
+        LlmCompletion completion;
+        try {
+            completion = backend.call(system, user, onDelta);
+        } catch (RuntimeException e) {
+            log.error("LLM call failed: {}", e.getMessage());
+            throw e;
+        }
+        String content = completion.content;
+        if (onDelta != null) {
+            log.info("LLM Response streamed in {}ms (first token {}ms), provider={}, length={}", completion.latencyMs, completion.firstTokenMs, completion.provider, content.length());
+        } else {
+            log.info("LLM Response received in {}ms, provider={}, length={}", completion.latencyMs, completion.provider, content.length());
+        }
+        if (cacheKey != null) {
+            // A failover answer is not the primary's: caching it under the primary's key would replay it as such
+            if ("auto".equals(scope[0]) || (scope[0].equals(completion.provider) && scope[1].equals(completion.model))) {
+                cache.put(cacheKey, scope[0], scope[1], content);
+            } else {
+                log.info("LLM answer from {}/{} not cached under {}/{}", completion.provider, completion.model, scope[0], scope[1]);
+            }
         }
-        
-        String content = chatCompletion.choices().get(0).message().content().orElse("");
-        log.info("LLM Response received in {}ms, length={}", duration, content.length());
         return content;
     }
 }
@@ -0,0 +1,351 @@
+package com.example.jmeterai.service;
+
+import com.example.jmeterai.model.ExecutionResult;
+import com.example.jmeterai.model.LoadLabelStat;
+import com.example.jmeterai.model.LoadTestConfig;
+import com.example.jmeterai.model.LoadTestResult;
+import com.example.jmeterai.model.ProjectResult;
+import com.example.jmeterai.model.TestCase;
+import com.example.jmeterai.util.LatencyRecorder;
+import com.example.jmeterai.util.MetricsSeries;
+import com.example.jmeterai.util.SlaMonitor;
+import okhttp3.Request;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replays a finished task's cases with an open-model, constant-arrival-rate schedule: requests
+ * start at the times the target rate dictates, whether or not earlier ones have returned, through
+ * the async engine of {@link CurlExecutorService}. Slow responses therefore show up as latency and
+ * in-flight growth instead of silently lowering the offered load. Latency is measured from each
+ * request's intended send time, which corrects for coordinated omission; service time from the
+ * actual send is kept alongside.
+ */
+@Service
+public class LoadTestService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(LoadTestService.class);
+    // Queueing in the engine before a call starts is not covered by its call timeout
+    private static final long DRAIN_MARGIN_SECONDS = 30;
+    // Drain bound when the engine has no call timeout
+    private static final long DRAIN_UNBOUNDED_SECONDS = 600;
+
+    @Autowired
+    private CurlExecutorService curlExecutorService;
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Value("${LOAD_MAX_IN_FLIGHT:2000}")
+    private int defaultMaxInFlight;
+
+    private final Map<String, AtomicBoolean> running = new ConcurrentHashMap<>();
+
+    /** Cases of a finished task that are worth replaying: those whose result passed, unless includeFailed. */
+    public List<TestCase> selectCases(ProjectResult source, boolean includeFailed) {
+        List<TestCase> out = new ArrayList<>();
+        if (source == null || source.testCases == null) return out;
+        java.util.Set<String> passed = new java.util.HashSet<>();
+        if (source.executionResults != null) {
+            for (ExecutionResult r : source.executionResults) {
+                if (r.success && r.caseName != null) passed.add(r.caseName);
+            }
+        }
+        for (TestCase tc : source.testCases) {
+            if (includeFailed || passed.contains(tc.name)) out.add(tc);
+        }
+        return out;
+    }
+
+    public boolean stop(String loadTaskId) {
+        AtomicBoolean stop = running.get(loadTaskId);
+        if (stop == null) return false;
+        stop.set(true);
+        return true;
+    }
+
+    public LoadTestResult run(String loadTaskId, List<TestCase> cases, String baseUrl, LoadTestConfig cfg, LoadTestResult result, MetricsSeries series, SlaMonitor sla) {
+        return run(loadTaskId, cases, baseUrl, cfg, result, series, sla, null);
+    }
+
+    /**
+     * Runs to completion, or until stopped or a gate of sla aborts it; result is updated while
+     * running so callers can poll it. sla and schemas may be null.
+     */
+    public LoadTestResult run(String loadTaskId, List<TestCase> cases, String baseUrl, LoadTestConfig cfg, LoadTestResult result, MetricsSeries series, SlaMonitor sla, ResponseSchemas schemas) {
+        AtomicBoolean stop = new AtomicBoolean();
+        running.put(loadTaskId, stop);
+        try {
+            return schedule(cases, baseUrl, cfg, result, series, sla, schemas, stop);
+        } finally {
+            running.remove(loadTaskId);
+        }
+    }
+
+    private LoadTestResult schedule(List<TestCase> cases, String baseUrl, LoadTestConfig cfg, LoadTestResult result, MetricsSeries series, SlaMonitor sla, ResponseSchemas schemas, AtomicBoolean stop) {
+        result.config = cfg;
+        result.startTime = System.currentTimeMillis();
+
+        // Weighted mix, resolved once: requests are prebuilt and cumulative weights searched per arrival
+        List<Request> requests = new ArrayList<>();
+        List<CompiledAssertions> checks = new ArrayList<>();
+        List<ResponseSchemas.Operation> shapes = new ArrayList<>();
+        List<Recorder> recorders = new ArrayList<>();
+        List<Double> cumulative = new ArrayList<>();
+        Map<String, Recorder> byLabel = new java.util.LinkedHashMap<>();
+        double total = 0;
+        for (TestCase tc : cases) {
+            String label = CurlExecutorService.endpointOf(tc);
+            double weight = weightOf(tc, label, cfg.weights);
+            if (weight <= 0) continue;
+            total += weight;
+            requests.add(curlExecutorService.buildRequest(tc, curlExecutorService.resolveUrl(tc, baseUrl)));
+            checks.add(cfg.verifyAssertions ? CompiledAssertions.of(tc) : CompiledAssertions.EMPTY);
+            shapes.add(cfg.validateSchema && schemas != null ? schemas.operation(tc.method, tc.path) : null);
+            recorders.add(byLabel.computeIfAbsent(label, l -> new Recorder(l, tc.tags)));
+            cumulative.add(total);
+        }
+        result.cases = requests.size();
+        if (requests.isEmpty() || cfg.targetRps <= 0 || cfg.durationSeconds <= 0) {
+            log.warn("Load test has nothing to run: cases={}, targetRps={}, duration={}s", requests.size(), cfg.targetRps, cfg.durationSeconds);
+            finish(result, new Recorder("all", null), byLabel);
+            return result;
+        }
+        double[] bounds = cumulative.stream().mapToDouble(Double::doubleValue).toArray();
+        // Never wait on the engine's own in-flight limit: the schedule must not stall
+        int maxInFlight = Math.min(cfg.maxInFlight > 0 ? cfg.maxInFlight : defaultMaxInFlight, curlExecutorService.getMaxInFlight());
+
+        log.info("Load test: {} case(s), {} rps, ramp-up {}s, duration {}s, maxInFlight {}",
+                requests.size(), cfg.targetRps, cfg.rampUpSeconds, cfg.durationSeconds, maxInFlight);
+        Recorder all = new Recorder("all", null);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicLong sent = new AtomicLong();
+        AtomicLong dropped = new AtomicLong();
+        double ramp = Math.min(Math.max(0, cfg.rampUpSeconds), cfg.durationSeconds);
+        long startNanos = System.nanoTime();
+        long lastPublish = 0;
+        try {
+            for (long k = 0; !stop.get() && (sla == null || !sla.aborted()); k++) {
+                double at = arrivalSeconds(k, cfg.targetRps, ramp);
+                if (at >= cfg.durationSeconds) break;
+                long intended = startNanos + (long) (at * 1e9);
+                long wait = intended - System.nanoTime();
+                if (wait > 0) java.util.concurrent.locks.LockSupport.parkNanos(wait);
+
+                if (inFlight.get() >= maxInFlight) {
+                    dropped.incrementAndGet();
+                } else {
+                    int i = pick(bounds, total);
+                    Request request = requests.get(i);
+                    Recorder recorder = recorders.get(i);
+                    CompiledAssertions check = checks.get(i);
+                    ResponseSchemas.Operation shape = shapes.get(i);
+                    inFlight.incrementAndGet();
+                    sent.incrementAndGet();
+                    long start = System.nanoTime();
+                    curlExecutorService.sendAsync(request, new ExecutionResult(), check.needsBody() || shape != null, check).whenComplete((res, error) -> {
+                        try {
+                            long end = System.nanoTime();
+                            // Measured from the intended send time, so a late scheduler counts as latency
+                            long micros = (end - intended) / 1000;
+                            long serviceMicros = (end - start) / 1000;
+                            int code = res == null ? -1 : res.statusCode;
+                            long bytes = res == null ? 0 : res.responseBytes;
+                            recorder.record(code, micros, serviceMicros, bytes);
+                            all.record(code, micros, serviceMicros, bytes);
+                            if (res != null && (!check.isEmpty() || shape != null)) {
+                                CompiledAssertions.Outcome outcome = check.evaluate(res, shape);
+                                if (!check.isEmpty()) {
+                                    recorder.assertions(outcome);
+                                    all.assertions(outcome);
+                                    metricsRegistry.recordAssertions(outcome.evaluated, outcome.passed);
+                                }
+                                if (res.schemaValid != null) {
+                                    recorder.schema(res.schemaValid);
+                                    all.schema(res.schemaValid);
+                                    metricsRegistry.recordSchemaValidation(res.schemaValid);
+                                }
+                            }
+                            long now = System.currentTimeMillis();
+                            if (series != null) series.record(recorder.label, now, code, micros);
+                            if (sla != null) sla.record(recorder.label, recorder.tags, now, code, micros);
+                            metricsRegistry.recordHttpRequest(recorder.label, "LOAD", code, micros);
+                        } catch (RuntimeException e) {
+                            log.warn("Load test failed to record a response for {}: {}", recorder.label, e.toString());
+                        } finally {
+                            inFlight.decrementAndGet();
+                        }
+                    });
+                }
+
+                long now = System.nanoTime();
+                if (now - lastPublish > 200_000_000L) {
+                    lastPublish = now;
+                    result.scheduled = k + 1;
+                    result.sent = sent.get();
+                    result.dropped = dropped.get();
+                    result.inFlight = inFlight.get();
+                    result.completed = all.count.get();
+                    result.errors = all.errors.get();
+                    result.assertionFailures = all.assertionFailures.get();
+                    result.schemaViolations = all.schemaViolations.get();
+                    result.currentRps = ramp > 0 ? cfg.targetRps * Math.min(1, at / ramp) : cfg.targetRps;
+                    if (sla != null) {
+                        // Also covers gates that fail for lack of traffic, when nothing completes to trigger them
+                        sla.evaluate(System.currentTimeMillis());
+                        result.sla = sla.report();
+                    }
+                }
+            }
+            result.scheduled = sent.get() + dropped.get();
+            result.sent = sent.get();
+            result.dropped = dropped.get();
+            result.currentRps = 0;
+        } finally {
+            // Outstanding requests end within the engine's call timeout; past that, stop waiting for them
+            int callTimeout = curlExecutorService.getCallTimeoutSeconds();
+            long deadline = System.nanoTime() + (callTimeout > 0 ? callTimeout + DRAIN_MARGIN_SECONDS : DRAIN_UNBOUNDED_SECONDS) * 1_000_000_000L;
+            while (inFlight.get() > 0 && System.nanoTime() - deadline < 0) {
+                result.inFlight = inFlight.get();
+                java.util.concurrent.locks.LockSupport.parkNanos(10_000_000L);
+            }
+            if (inFlight.get() > 0) log.warn("Load test gave up waiting for {} outstanding request(s)", inFlight.get());
+        }
+        result.inFlight = inFlight.get();
+        finish(result, all, byLabel);
+        if (sla != null) {
+            result.sla = sla.finish();
+            if (result.sla.aborted) log.warn("Load test aborted: {}", result.sla.abortReason);
+        }
+        log.info("Load test finished: sent={}, completed={}, errors={}, assertionFailures={}, schemaViolations={}/{}, dropped={}, achieved={} rps, p95={}ms, p99={}ms",
+                result.sent, result.completed, result.errors, result.assertionFailures, result.schemaViolations, result.schemaChecks, result.dropped,
+                String.format("%.1f", result.achievedRps), result.p95, result.p99);
+        return result;
+    }
+
+    /**
+     * Start time of the k-th arrival. During ramp-up the rate grows linearly, so the cumulative
+     * count is rps*t^2/(2*ramp); afterwards it grows by rps per second.
+     */
+    static double arrivalSeconds(long k, double rps, double ramp) {
+        double rampArrivals = rps * ramp / 2;
+        if (k < rampArrivals) return Math.sqrt(2 * ramp * k / rps);
+        return ramp + (k - rampArrivals) / rps;
+    }
+
+    private static int pick(double[] bounds, double total) {
+        double r = java.util.concurrent.ThreadLocalRandom.current().nextDouble(total);
+        int i = java.util.Arrays.binarySearch(bounds, r);
+        i = i >= 0 ? i + 1 : -i - 1;
+        return Math.min(i, bounds.length - 1);
+    }
+
+    private static double weightOf(TestCase tc, String label, Map<String, Double> weights) {
+        if (weights == null || weights.isEmpty()) return 1.0;
+        Double w = weights.get(label);
+        if (w != null) return w;
+        Double byTag = null;
+        if (tc.tags != null) {
+            for (String tag : tc.tags) {
+                Double t = weights.get("tag:" + tag);
+                if (t != null) byTag = byTag == null ? t : Math.max(byTag, t);
+            }
+        }
+        return byTag == null ? 1.0 : byTag;
+    }
+
+    private void finish(LoadTestResult result, Recorder all, Map<String, Recorder> byLabel) {
+        result.endTime = System.currentTimeMillis();
+        result.elapsedMs = result.endTime - result.startTime;
+        result.completed = all.count.get();
+        result.errors = all.errors.get();
+        result.assertionFailures = all.assertionFailures.get();
+        result.assertionsEvaluated = all.assertionsEvaluated.get();
+        result.schemaViolations = all.schemaViolations.get();
+        result.schemaChecks = all.schemaChecks.get();
+        result.bytesReceived = all.bytes.get();
+        result.achievedRps = result.elapsedMs == 0 ? 0 : result.completed * 1000.0 / result.elapsedMs;
+        LoadLabelStat overall = all.summarize();
+        result.avg = overall.avg;
+        result.p50 = overall.p50;
+        result.p90 = overall.p90;
+        result.p95 = overall.p95;
+        result.p99 = overall.p99;
+        result.max = overall.max;
+        result.latency = overall.latency;
+        result.serviceTime = overall.serviceTime;
+        result.codes = overall.codes;
+        for (Recorder r : byLabel.values()) result.byLabel.put(r.label, r.summarize());
+    }
+
+    /** Latency histograms plus counters for one label; shared by the completion callbacks without locking. */
+    private static class Recorder {
+        final String label;
+        final List<String> tags;
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicLong assertionFailures = new AtomicLong();
+        final AtomicLong assertionsEvaluated = new AtomicLong();
+        final AtomicLong schemaChecks = new AtomicLong();
+        final AtomicLong schemaViolations = new AtomicLong();
+        final Map<Integer, AtomicLong> codes = new ConcurrentHashMap<>();
+        final LatencyRecorder latency = new LatencyRecorder();
+        final LatencyRecorder serviceTime = new LatencyRecorder();
+
+        Recorder(String label, List<String> tags) {
+            this.label = label;
+            this.tags = tags;
+        }
+
+        void record(int code, long micros, long serviceMicros, long received) {
+            count.incrementAndGet();
+            if (code < 200 || code >= 300) errors.incrementAndGet();
+            bytes.addAndGet(received);
+            codes.computeIfAbsent(code, c -> new AtomicLong()).incrementAndGet();
+            latency.record(micros);
+            serviceTime.record(serviceMicros);
+        }
+
+        void assertions(CompiledAssertions.Outcome outcome) {
+            assertionsEvaluated.addAndGet(outcome.evaluated);
+            if (!outcome.passed) assertionFailures.incrementAndGet();
+        }
+
+        void schema(boolean valid) {
+            schemaChecks.incrementAndGet();
+            if (!valid) schemaViolations.incrementAndGet();
+        }
+
+        LoadLabelStat summarize() {
+            LoadLabelStat s = new LoadLabelStat();
+            s.label = label;
+            s.count = count.get();
+            s.errors = errors.get();
+            s.assertionFailures = assertionFailures.get();
+            s.schemaViolations = schemaViolations.get();
+            s.latency = latency.spectrum();
+            s.serviceTime = serviceTime.spectrum();
+            s.histogram = latency.histogram();
+            if (s.count > 0) {
+                s.avg = s.latency.mean;
+                s.p50 = latency.percentileMicros(50) / 1000.0;
+                s.p90 = latency.percentileMicros(90) / 1000.0;
+                s.p95 = latency.percentileMicros(95) / 1000.0;
+                s.p99 = latency.percentileMicros(99) / 1000.0;
+                s.max = s.latency.max;
+            }
+            new java.util.TreeMap<>(codes).forEach((code, n) -> s.codes.put(String.valueOf(code), n.get()));
+            return s;
+        }
+    }
+}
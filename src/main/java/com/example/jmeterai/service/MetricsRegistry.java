@@ -0,0 +1,233 @@
+package com.example.jmeterai.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide counters and histograms rendered in the OpenMetrics text format for /metrics.
+ * Recording is a map lookup plus adder increments, cheap enough for the request hot path; gauges
+ * are registered by the component owning the state and only evaluated on scrape.
+ */
+@Service
+public class MetricsRegistry {
+
+    private static final double[] HTTP_BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30};
+    private static final double[] LLM_BUCKETS = {0.5, 1, 2, 5, 10, 20, 30, 60, 120, 300};
+
+    private final Counter httpRequests = new Counter("jmeterai_http_requests", "HTTP requests sent to the system under test", "endpoint", "scenario", "code");
+    private final Histogram httpDuration = new Histogram("jmeterai_http_request_duration_seconds", "HTTP request latency", HTTP_BUCKETS, "endpoint", "scenario");
+    private final Counter llmCalls = new Counter("jmeterai_llm_calls", "LLM calls per provider attempt", "provider", "outcome");
+    private final Histogram llmDuration = new Histogram("jmeterai_llm_call_duration_seconds", "LLM call latency", LLM_BUCKETS, "provider");
+    private final Counter llmTokens = new Counter("jmeterai_llm_tokens", "LLM tokens used", "provider", "type");
+    private final Counter assertions = new Counter("jmeterai_assertions", "Assertions evaluated locally, by whether the case passed", "outcome");
+    private final Counter schemaValidations = new Counter("jmeterai_schema_validations", "Response bodies checked against the declared response schema", "outcome");
+    private final Counter llmCacheHits = new Counter("jmeterai_llm_cache_hits", "LLM calls answered from the response cache");
+    private final List<Gauge> gauges = new CopyOnWriteArrayList<>();
+
+    public void recordHttpRequest(String endpoint, String scenario, int statusCode, long latencyMicros) {
+        String ep = endpoint == null ? "" : endpoint;
+        String sc = scenario == null ? "" : scenario;
+        httpRequests.inc(ep, sc, String.valueOf(statusCode));
+        httpDuration.observe(latencyMicros / 1e6, ep, sc);
+    }
+
+    public void recordLlmCall(String provider, boolean success, long latencyMs, long promptTokens, long completionTokens) {
+        llmCalls.inc(provider, success ? "success" : "error");
+        llmDuration.observe(latencyMs / 1e3, provider);
+        if (promptTokens > 0) llmTokens.add(promptTokens, provider, "prompt");
+        if (completionTokens > 0) llmTokens.add(completionTokens, provider, "completion");
+    }
+
+    public void recordAssertions(int evaluated, boolean casePassed) {
+        if (evaluated > 0) assertions.add(evaluated, casePassed ? "pass" : "fail");
+    }
+
+    public void recordSchemaValidation(Boolean valid) {
+        if (valid != null) schemaValidations.inc(valid ? "valid" : "invalid");
+    }
+
+    public void recordLlmCacheHit() {
+        llmCacheHits.inc();
+    }
+
+    /** The supplier maps label values (in labelNames order) to the current value. */
+    public void gauge(String name, String help, List<String> labelNames, Supplier<Map<List<String>, ? extends Number>> values) {
+        gauges.removeIf(g -> g.name.equals(name));
+        gauges.add(new Gauge(name, help, labelNames, values));
+    }
+
+    public String scrape() {
+        StringBuilder sb = new StringBuilder(4096);
+        httpRequests.write(sb);
+        httpDuration.write(sb);
+        assertions.write(sb);
+        schemaValidations.write(sb);
+        llmCalls.write(sb);
+        llmDuration.write(sb);
+        llmTokens.write(sb);
+        llmCacheHits.write(sb);
+        for (Gauge g : gauges) g.write(sb);
+        sb.append("# EOF\n");
+        return sb.toString();
+    }
+
+    private static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        if (name.endsWith("_seconds")) sb.append("# UNIT ").append(name).append(" seconds\n");
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, List<String> labelNames, List<String> values, String extraName, String extraValue, String value) {
+        sb.append(name);
+        if (!labelNames.isEmpty() || extraName != null) {
+            sb.append('{');
+            for (int i = 0; i < labelNames.size(); i++) {
+                if (i > 0) sb.append(',');
+                label(sb, labelNames.get(i), values.get(i));
+            }
+            if (extraName != null) {
+                if (!labelNames.isEmpty()) sb.append(',');
+                label(sb, extraName, extraValue);
+            }
+            sb.append('}');
+        }
+        sb.append(' ').append(value).append('\n');
+    }
+
+    private static void label(StringBuilder sb, String name, String value) {
+        sb.append(name).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' || c == '"') sb.append('\\').append(c);
+            else if (c == '\n') sb.append("\\n");
+            else sb.append(c);
+        }
+        sb.append('"');
+    }
+
+    private static String number(double v) {
+        if (v == Math.rint(v) && !Double.isInfinite(v) && Math.abs(v) < 1e15) return String.valueOf((long) v);
+        return String.valueOf(v);
+    }
+
+    // Sorted by label values so consecutive scrapes list series in the same order
+    private static <V> Map<String, Map.Entry<List<String>, V>> sorted(Map<List<String>, V> series) {
+        Map<String, Map.Entry<List<String>, V>> out = new TreeMap<>();
+        for (Map.Entry<List<String>, V> e : series.entrySet()) out.put(String.join("\u0000", e.getKey()), e);
+        return out;
+    }
+
+    private static class Counter {
+        final String name;
+        final String help;
+        final List<String> labelNames;
+        final Map<List<String>, LongAdder> series = new ConcurrentHashMap<>();
+
+        Counter(String name, String help, String... labelNames) {
+            this.name = name;
+            this.help = help;
+            this.labelNames = List.of(labelNames);
+        }
+
+        void inc(String... values) {
+            add(1, values);
+        }
+
+        void add(long n, String... values) {
+            series.computeIfAbsent(List.of(values), k -> new LongAdder()).add(n);
+        }
+
+        void write(StringBuilder sb) {
+            header(sb, name, "counter", help);
+            for (Map.Entry<List<String>, LongAdder> e : sorted(series).values()) {
+                sample(sb, name + "_total", labelNames, e.getKey(), null, null, String.valueOf(e.getValue().sum()));
+            }
+        }
+    }
+
+    private static class Histogram {
+        final String name;
+        final String help;
+        final double[] bounds;
+        final List<String> labelNames;
+        final Map<List<String>, Cells> series = new ConcurrentHashMap<>();
+
+        class Cells {
+            final LongAdder[] buckets = new LongAdder[bounds.length + 1];
+            final DoubleAdder sum = new DoubleAdder();
+
+            Cells() {
+                for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+            }
+        }
+
+        Histogram(String name, String help, double[] bounds, String... labelNames) {
+            this.name = name;
+            this.help = help;
+            this.bounds = bounds;
+            this.labelNames = List.of(labelNames);
+        }
+
+        void observe(double value, String... values) {
+            Cells c = series.computeIfAbsent(List.of(values), k -> new Cells());
+            int i = 0;
+            while (i < bounds.length && value > bounds[i]) i++;
+            c.buckets[i].increment();
+            c.sum.add(value);
+        }
+
+        void write(StringBuilder sb) {
+            header(sb, name, "histogram", help);
+            for (Map.Entry<List<String>, Cells> e : sorted(series).values()) {
+                Cells c = e.getValue();
+                long cumulative = 0;
+                for (int i = 0; i <= bounds.length; i++) {
+                    cumulative += c.buckets[i].sum();
+                    String le = i < bounds.length ? String.valueOf(bounds[i]) : "+Inf";
+                    sample(sb, name + "_bucket", labelNames, e.getKey(), "le", le, String.valueOf(cumulative));
+                }
+                // Count follows the buckets so the +Inf bucket and _count agree within one scrape
+                sample(sb, name + "_count", labelNames, e.getKey(), null, null, String.valueOf(cumulative));
+                sample(sb, name + "_sum", labelNames, e.getKey(), null, null, number(c.sum.sum()));
+            }
+        }
+    }
+
+    private static class Gauge {
+        final String name;
+        final String help;
+        final List<String> labelNames;
+        final Supplier<Map<List<String>, ? extends Number>> values;
+
+        Gauge(String name, String help, List<String> labelNames, Supplier<Map<List<String>, ? extends Number>> values) {
+            this.name = name;
+            this.help = help;
+            this.labelNames = labelNames;
+            this.values = values;
+        }
+
+        void write(StringBuilder sb) {
+            Map<List<String>, ? extends Number> current;
+            try {
+                current = values.get();
+            } catch (RuntimeException e) {
+                return; // A broken supplier must not take the whole scrape down
+            }
+            header(sb, name, "gauge", help);
+            List<Map.Entry<List<String>, ? extends Number>> entries = new ArrayList<>(current.entrySet());
+            entries.sort(java.util.Comparator.comparing(e -> String.join("\u0000", e.getKey())));
+            for (Map.Entry<List<String>, ? extends Number> e : entries) {
+                sample(sb, name, labelNames, e.getKey(), null, null, number(e.getValue().doubleValue()));
+            }
+        }
+    }
+}
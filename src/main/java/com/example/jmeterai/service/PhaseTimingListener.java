@@ -0,0 +1,159 @@
+package com.example.jmeterai.service;
+
+import com.example.jmeterai.model.PhaseTimings;
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+/**
+ * Fills the {@link PhaseTimings} tagged on a request from OkHttp's call events. One instance per
+ * call; events of a call arrive in order, so no synchronisation is needed. Redirects and retries
+ * add to the same phases.
+ */
+class PhaseTimingListener extends EventListener {
+
+    static final EventListener.Factory FACTORY = call -> {
+        PhaseTimings timings = call.request().tag(PhaseTimings.class);
+        return timings == null ? EventListener.NONE : new PhaseTimingListener(timings);
+    };
+
+    private final PhaseTimings timings;
+    private long callStart;
+    private long dnsStart;
+    private long connectStart;
+    private long tlsStart;
+    private long sendStart;
+    private long sendEnd;
+    private long headersStart;
+    private boolean queued = true;
+    private boolean connected;
+
+    PhaseTimingListener(PhaseTimings timings) {
+        this.timings = timings;
+    }
+
+    private static double ms(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private void dequeued(long now) {
+        if (!queued) return;
+        queued = false;
+        timings.queueMs = ms(now - callStart);
+    }
+
+    @Override
+    public void callStart(Call call) {
+        callStart = System.nanoTime();
+    }
+
+    @Override
+    public void dnsStart(Call call, String domainName) {
+        dnsStart = System.nanoTime();
+        dequeued(dnsStart);
+    }
+
+    @Override
+    public void dnsEnd(Call call, String domainName, List<InetAddress> addresses) {
+        timings.dnsMs += ms(System.nanoTime() - dnsStart);
+    }
+
+    @Override
+    public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+        connectStart = System.nanoTime();
+        tlsStart = 0;
+        connected = true;
+        dequeued(connectStart);
+    }
+
+    @Override
+    public void secureConnectStart(Call call) {
+        tlsStart = System.nanoTime();
+    }
+
+    @Override
+    public void secureConnectEnd(Call call, Handshake handshake) {
+        timings.tlsMs += ms(System.nanoTime() - tlsStart);
+    }
+
+    @Override
+    public void connectEnd(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol) {
+        connectDone();
+    }
+
+    @Override
+    public void connectFailed(Call call, InetSocketAddress address, Proxy proxy, Protocol protocol, IOException ioe) {
+        connectDone();
+    }
+
+    private void connectDone() {
+        long end = tlsStart > 0 ? tlsStart : System.nanoTime();
+        timings.connectMs += ms(end - connectStart);
+    }
+
+    @Override
+    public void connectionAcquired(Call call, Connection connection) {
+        dequeued(System.nanoTime());
+        timings.connectionReused = !connected;
+        timings.protocol = connection.protocol().toString();
+    }
+
+    @Override
+    public void requestHeadersStart(Call call) {
+        sendStart = System.nanoTime();
+    }
+
+    @Override
+    public void requestHeadersEnd(Call call, Request request) {
+        sendDone();
+    }
+
+    @Override
+    public void requestBodyEnd(Call call, long byteCount) {
+        sendDone();
+    }
+
+    private void sendDone() {
+        long now = System.nanoTime();
+        // Headers and body end both report; only the span since the last one is new
+        timings.sendMs += ms(now - Math.max(sendStart, sendEnd));
+        sendEnd = now;
+    }
+
+    @Override
+    public void responseHeadersStart(Call call) {
+        headersStart = System.nanoTime();
+        timings.ttfbMs += ms(headersStart - (sendEnd > 0 ? sendEnd : headersStart));
+    }
+
+    @Override
+    public void responseHeadersEnd(Call call, Response response) {
+        // A redirect or retry measures its own send from scratch
+        sendEnd = 0;
+    }
+
+    @Override
+    public void responseBodyEnd(Call call, long byteCount) {
+        timings.downloadMs += ms(System.nanoTime() - headersStart);
+    }
+
+    @Override
+    public void callEnd(Call call) {
+        timings.totalMs = ms(System.nanoTime() - callStart);
+    }
+
+    @Override
+    public void callFailed(Call call, IOException ioe) {
+        timings.totalMs = ms(System.nanoTime() - callStart);
+    }
+}
@@ -3,6 +3,7 @@ package com.example.jmeterai.service;
 import com.example.jmeterai.model.*;
 import com.example.jmeterai.util.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -21,17 +22,77 @@ public class PipelineService {
     @Autowired
     private CurlExecutorService curlExecutorService;
 
+    @Autowired
+    private FastPathJudge fastPathJudge;
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Autowired
+    private SpecCache specCache;
+
+    @Value("${FAST_PATH_ENABLED:true}")
+    private boolean fastPathEnabled;
+
+    @Value("${PIPELINE_MODE:sequential}")
+    private String pipelineMode;
+
+    @Value("${PIPELINE_LLM_CONCURRENCY:4}")
+    private int llmConcurrency;
+
+    @Value("${PIPELINE_HTTP_CONCURRENCY:16}")
+    private int httpConcurrency;
+
+    @Value("${GENERATION_BATCH_SIZE:0}")
+    private int generationBatchSize;
+
+    @Value("${DECISION_BATCH_SIZE:0}")
+    private int decisionBatchSize;
+
+    @Value("${LLM_STREAMING:false}")
+    private boolean llmStreaming;
+
+    @Value("${STAGE_QUEUE_CAPACITY:32}")
+    private int stageQueueCapacity;
+
+    @Value("${STAGE_GENERATE_WORKERS:2}")
+    private int stageGenerateWorkers;
+
+    @Value("${STAGE_EXECUTE_WORKERS:8}")
+    private int stageExecuteWorkers;
+
+    @Value("${STAGE_DECIDE_WORKERS:4}")
+    private int stageDecideWorkers;
+
+    @Value("${STAGE_VERIFY_WORKERS:1}")
+    private int stageVerifyWorkers;
+
+    // off, report (schemaValid/schemaErrors on each result) or enforce (a mismatch also fails the case)
+    @Value("${SCHEMA_VALIDATION:report}")
+    private String schemaValidation;
+
+    // llm: ask the LLM before testing; local: ApiUnderstanding only; lazy: local first, LLM in the background
+    @Value("${UNDERSTANDING_MODE:llm}")
+    private String understandingMode;
+
+    // Background LLM calls wait on rate limits and retries, so they get their own threads rather than the common pool
+    private final java.util.concurrent.ExecutorService backgroundExecutor = java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor();
+
     public ProjectResult runPipeline(String swaggerUrl, String programName, String extra, List<String> tags, String authorization) throws Exception {
         return runPipeline(swaggerUrl, programName, extra, tags, authorization, null);
     }
 
     public ProjectResult runPipeline(String swaggerUrl, String programName, String extra, List<String> tags, String authorization, String markdownSpec) throws Exception {
+        return runPipeline(swaggerUrl, programName, extra, tags, authorization, markdownSpec, new PipelineProgress());
+    }
+
+    public ProjectResult runPipeline(String swaggerUrl, String programName, String extra, List<String> tags, String authorization, String markdownSpec, PipelineProgress progress) throws Exception {
         ProjectResult result = new ProjectResult();
 
         // 1. API Understanding
         log.info("Downloading Swagger: {}", swaggerUrl);
         OpenApiExtractor extractor = new OpenApiExtractor();
-        OpenApiExtractor.OpenApiInfo info = extractor.load(swaggerUrl);
+        OpenApiExtractor.OpenApiInfo info = specCache.load(swaggerUrl); // May be shared with concurrent runs; read only
 
         // Filter endpoints by tags if provided
         List<OpenApiExtractor.Endpoint> endpointsToTest = info.endpoints;
@@ -44,215 +105,881 @@ public class PipelineService {
         }
 
         log.info("Analyzing API...");
-        String understandingPrompt = PromptPresets.understandingUserPrompt(programName, extra, info, markdownSpec);
-        String understandingText = ModelUtils.stripCodeFences(llmService.callLlm(PromptPresets.understandingSystemPrompt(),
-                understandingPrompt));
-        result.apiUnderstanding = understandingText;
-
-        ApiUnderstandingResult ar = new ApiUnderstandingResult();
-        ar.summaryText = understandingText;
+        String understanding = understandingMode == null ? "llm" : understandingMode.toLowerCase();
+        ApiUnderstandingResult ar;
+        java.util.concurrent.Future<String> pendingUnderstanding = null;
+        if ("local".equals(understanding) || "lazy".equals(understanding)) {
+            ar = new ApiUnderstanding().analyze(info, extra);
+            if ("lazy".equals(understanding)) {
+                // Only the final summary reads it, so the LLM call overlaps the whole test run
+                pendingUnderstanding = backgroundExecutor.submit(() -> understandWithLlm(programName, extra, info, markdownSpec));
+            }
+        } else {
+            ar = new ApiUnderstandingResult();
+            ar.summaryText = understandWithLlm(programName, extra, info, markdownSpec);
+        }
+        result.apiUnderstanding = ar.summaryText;
         log.info("总结api结果: {}", ar.summaryText);
-        // 2. Test Case Generation & Execution (Iterative by Interface & Scenario)
-        log.info("Starting Interface-by-Interface Testing...");
-        List<TestCase> allCases = new java.util.ArrayList<>();
-        List<ExecutionResult> allResults = new java.util.ArrayList<>();
+        try {
+            // 2. Test Case Generation & Execution (Iterative by Interface & Scenario)
+            log.info("Starting Interface-by-Interface Testing...");
+            List<TestCase> allCases = new java.util.ArrayList<>();
+            List<ExecutionResult> allResults = new java.util.ArrayList<>();
 
-        String baseUrl = info.baseUrl;
-        if (baseUrl == null || baseUrl.isEmpty()) {
-             log.warn("Base URL not found in Swagger, execution might fail if paths are relative.");
-             baseUrl = "http://localhost:8080";
-        }
-        result.baseUrl = baseUrl;
+            String baseUrl = info.baseUrl;
+            if (baseUrl == null || baseUrl.isEmpty()) {
+                 log.warn("Base URL not found in Swagger, execution might fail if paths are relative.");
+                 baseUrl = "http://localhost:8080";
+            }
+            result.baseUrl = baseUrl;
         
-        int endpointIndex = 0;
-        int totalEndpoints = endpointsToTest.size();
+            RunContext ctx = new RunContext(programName, markdownSpec, authorization, baseUrl);
+            ctx.series = progress.series;
+            ctx.sla = progress.sla;
+            if (!"off".equalsIgnoreCase(schemaValidation)) {
+                result.responseSchemas = new ResponseSchemas(info.document);
+                ctx.schemas = result.responseSchemas;
+            }
+            List<ScenarioWork> works = planWork(extractor, info, endpointsToTest);
+            List<WorkGroup> groups = planGroups(works);
+            String mode = pipelineMode == null ? "sequential" : pipelineMode.toLowerCase();
+            if (!"parallel".equals(mode) && !"staged".equals(mode)) mode = "sequential";
+            progress.mode = mode;
+
+            long wallStart = System.nanoTime();
+            if ("parallel".equals(mode)) {
+                runParallel(ctx, groups);
+            } else if ("staged".equals(mode)) {
+                runStaged(ctx, groups, progress);
+            } else {
+                for (WorkGroup group : groups) {
+                    if (ctx.aborted()) break;
+                    generateGroup(ctx, group, null);
+                    for (ScenarioWork work : group.works) runCases(ctx, work);
+                }
+            }
+            long wallNanos = System.nanoTime() - wallStart;
+
+            // Collect in plan order so the result layout does not depend on scheduling
+            for (ScenarioWork work : works) {
+                work.collect(allCases, allResults);
+            }
+            result.stats = buildStats(mode, works, wallNanos);
+            result.stats.generationRequests = groups.size();
+            result.stats.llmCalls = ctx.llmCalls.get();
+            result.stats.llmPromptChars = ctx.llmPromptChars.get();
+            result.stats.fastPathDecisions = ctx.fastPathDecisions.get();
+            result.stats.llmCallsAvoided = ctx.llmCallsAvoided.get();
+            log.info("Pipeline finished: mode={}, units={}, wallClock={}ms, serialEstimate={}ms, speedup={}x, llmCalls={}, promptChars={}, fastPathDecisions={}, llmCallsAvoided={}, timeToFirstCase avg={}ms max={}ms",
+                    result.stats.mode, result.stats.units, result.stats.wallClockMs, result.stats.serialEstimateMs,
+                    String.format("%.2f", result.stats.speedup), result.stats.llmCalls, result.stats.llmPromptChars,
+                    result.stats.fastPathDecisions, result.stats.llmCallsAvoided,
+                    result.stats.avgTimeToFirstCaseMs, result.stats.maxTimeToFirstCaseMs);
+
+            result.testCases = allCases;
+            result.executionResults = allResults;
+
+            if (ctx.sla != null) {
+                result.sla = ctx.sla.finish();
+                if (result.sla.aborted) {
+                    // The run is already known to be failing: no LLM summary
+                    log.warn("Pipeline aborted: {}", result.sla.abortReason);
+                    result.summary = "运行已提前终止：" + result.sla.abortReason + "。未达标的 SLA 门限：" + String.join("；", result.sla.failedGates);
+                    return result;
+                }
+            }
+
+            if (pendingUnderstanding != null) {
+                try {
+                    ar.summaryText = pendingUnderstanding.get();
+                    result.apiUnderstanding = ar.summaryText;
+                } catch (java.util.concurrent.ExecutionException e) {
+                    log.warn("Background API understanding failed, keeping the local analysis: {}", e.getCause().getMessage());
+                }
+            }
+
+            // 4. Summary
+            log.info("Generating Summary...");
+            SummaryMetrics metrics = calculateMetrics(allResults);
+        
+            String analysisPrompt = PromptPresets.analysisPrompt(programName, 
+                testCaseGenerator.describe(allCases, ar), 
+                metrics);
+            log.info("analysis prompt:"+analysisPrompt);
+            String summary = ModelUtils.stripCodeFences(llmService.callLlm("你是资深测试分析师，输出中文总结，不要附加无关内容。", analysisPrompt));
+            result.summary = summary;
+
+            return result;
+        } finally {
+            // Nobody reads it once the run has ended or failed
+            if (pendingUnderstanding != null) pendingUnderstanding.cancel(true);
+        }
+    }
+
+    private String understandWithLlm(String programName, String extra, OpenApiExtractor.OpenApiInfo info, String markdownSpec) throws Exception {
+        String understandingPrompt = PromptPresets.understandingUserPrompt(programName, extra, info, markdownSpec);
+        return ModelUtils.stripCodeFences(llmService.callLlm(PromptPresets.understandingSystemPrompt(), understandingPrompt));
+    }
 
-        // Iterate endpoints
-        for (OpenApiExtractor.Endpoint endpoint : endpointsToTest) {
+    private List<ScenarioWork> planWork(OpenApiExtractor extractor, OpenApiExtractor.OpenApiInfo info, List<OpenApiExtractor.Endpoint> endpoints) {
+        List<ScenarioWork> works = new java.util.ArrayList<>();
+        int endpointIndex = 0;
+        for (OpenApiExtractor.Endpoint endpoint : endpoints) {
             endpointIndex++;
-            String endpointJson = extractor.getEndpointJson(info.root, endpoint.method, endpoint.path);
-            if (endpointJson.isEmpty()) {
+            if (info.document == null || info.document.operation(endpoint.method, endpoint.path).isMissingNode()) {
                 log.warn("Skipping endpoint {} {} (JSON extraction failed)", endpoint.method, endpoint.path);
                 continue;
             }
+            EndpointSpec spec = new EndpointSpec(extractor, info, endpoint, QualityScenario.values().length);
+            for (QualityScenario scenario : QualityScenario.values()) {
+                works.add(new ScenarioWork(endpointIndex, endpoints.size(), endpoint, spec, scenario));
+            }
+        }
+        return works;
+    }
 
-            log.info("Testing Endpoint [{}/{}]: {} {}", endpointIndex, totalEndpoints, endpoint.method, endpoint.path);
+    private List<WorkGroup> planGroups(List<ScenarioWork> works) {
+        List<WorkGroup> groups = new java.util.ArrayList<>();
+        if (generationBatchSize <= 0) {
+            for (ScenarioWork work : works) {
+                WorkGroup group = new WorkGroup(false);
+                group.works.add(work);
+                groups.add(group);
+            }
+            return groups;
+        }
+        // Works are planned endpoint by endpoint, so consecutive works with the same endpoint belong together
+        WorkGroup current = null;
+        OpenApiExtractor.Endpoint lastEndpoint = null;
+        for (ScenarioWork work : works) {
+            if (work.endpoint != lastEndpoint) {
+                if (current == null || current.endpoints().size() >= generationBatchSize) {
+                    current = new WorkGroup(true);
+                    groups.add(current);
+                }
+                lastEndpoint = work.endpoint;
+            }
+            current.works.add(work);
+        }
+        return groups;
+    }
 
-            // Iterate Quality Scenarios
-            for (QualityScenario scenario : QualityScenario.values()) {
-                log.info("  Scenario: {}", scenario.name());
-                
-                // a. Generate Cases for this scenario
+    private void runParallel(RunContext ctx, List<WorkGroup> groups) {
+        try (java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor()) {
+            List<java.util.concurrent.CompletableFuture<Void>> futures = new java.util.ArrayList<>();
+            for (WorkGroup group : groups) {
+                java.util.concurrent.CompletableFuture<Void> generated = java.util.concurrent.CompletableFuture.runAsync(() -> generateGroup(ctx, group, null), executor);
+                for (ScenarioWork work : group.works) {
+                    futures.add(generated.thenRunAsync(() -> runCases(ctx, work), executor));
+                }
+            }
+            for (java.util.concurrent.CompletableFuture<Void> f : futures) {
                 try {
-                    log.info("    Generating cases for scenario: {}", scenario.name());
-                    String casesText = llmService.callLlm(
-                        PromptPresets.singleInterfaceSystemPrompt(),
-                        PromptPresets.singleInterfaceUserPrompt(programName, endpoint.method, endpoint.path, endpointJson, scenario, markdownSpec)
-                    );
-                    if (log.isDebugEnabled()) {
-                        log.debug("    LLM Generated Cases Response: {}", casesText);
+                    f.join();
+                } catch (java.util.concurrent.CompletionException e) {
+                    log.error("Parallel unit failed: {}", e.getCause() == null ? e.getMessage() : e.getCause().getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Generation, execution, decision and verification each get their own workers and a bounded
+     * queue in front of them, so a slow LLM stage blocks producers instead of buffering without limit.
+     */
+    private void runStaged(RunContext ctx, List<WorkGroup> groups, PipelineProgress progress) throws InterruptedException {
+        int capacity = Math.max(1, stageQueueCapacity);
+        try (java.util.concurrent.ExecutorService executor = java.util.concurrent.Executors.newVirtualThreadPerTaskExecutor()) {
+            PipelineStage<CaseRun> verify = new PipelineStage<>("verify", stageVerifyWorkers, capacity, run -> {
+                long start = System.nanoTime();
+                verifyCase(ctx, run);
+                run.work.busyNanos.addAndGet(System.nanoTime() - start);
+            });
+            // Decision items are single cases, or a whole work once all of its cases ran when judging in batches
+            PipelineStage<List<CaseRun>> decide = new PipelineStage<>("decide", stageDecideWorkers, capacity, runs -> {
+                ScenarioWork work = runs.get(0).work;
+                long start = System.nanoTime();
+                try {
+                    if (decisionBatchSize > 0) decideBatch(ctx, runs); else decideCase(ctx, runs.get(0));
+                } finally {
+                    work.busyNanos.addAndGet(System.nanoTime() - start);
+                    work.casesSettled(runs.size());
+                }
+                for (CaseRun run : runs) verify.put(run);
+            });
+            PipelineStage<CaseRun> execute = new PipelineStage<>("execute", stageExecuteWorkers, capacity, run -> {
+                long start = System.nanoTime();
+                try {
+                    // After an SLA abort the remaining cases are left without a result
+                    if (!ctx.aborted()) executeCase(ctx, run);
+                } finally {
+                    run.work.busyNanos.addAndGet(System.nanoTime() - start);
+                    if (decisionBatchSize <= 0) {
+                        // A case that failed to execute has no result to judge
+                        if (run.result != null) decide.put(List.of(run)); else run.work.casesSettled(1);
+                    } else if (run.work.caseExecuted()) {
+                        List<CaseRun> executedRuns = run.work.executedRuns();
+                        if (!executedRuns.isEmpty()) decide.put(executedRuns);
                     }
-                    
-                    List<TestCase> scenarioCases = testCaseGenerator.parseLlmCases(casesText);
-                    log.info("    Parsed {} cases from LLM response", scenarioCases.size());
-                    
-                    // b. Execute Cases immediately
-                    for (TestCase tc : scenarioCases) {
-                        if (authorization != null && !authorization.isEmpty()) {
-                            if (tc.headers == null) tc.headers = new java.util.LinkedHashMap<>();
-                            tc.headers.put("Authorization", authorization);
-                        }
-                        tc.tags = endpoint.tags;
-                        allCases.add(tc);
-                        log.info("      Executing Case: {} (Goal: {})", tc.name, tc.goal);
-                        ExecutionResult execResult = curlExecutorService.executeOne(tc, baseUrl);
-                        execResult.scenario = scenario;
-                        execResult.tags = endpoint.tags;
-
-                        log.info("      Decision and assertions for case: {}", tc.name);
-                        int retryCount = 0;
-                        int maxRetries = 3;
-                        boolean decided = false;
-                        while (retryCount < maxRetries && !decided) {
-                            try {
-                                String decisionJson = llmService.callLlm(
-                                    PromptPresets.caseDecisionSystemPrompt(),
-                                    PromptPresets.caseDecisionUserPrompt(tc, execResult, endpointJson)
-                                );
-                                String cleaned = ModelUtils.stripCodeFences(decisionJson);
-                                com.fasterxml.jackson.databind.ObjectMapper om = new com.fasterxml.jackson.databind.ObjectMapper();
-                                com.fasterxml.jackson.databind.JsonNode root = om.readTree(cleaned);
-                                boolean conforms = root.path("conforms").asBoolean(false);
-                                String reason = root.path("reason").asText("");
-                                if (conforms) {
-                                    List<Assertion> assertions = testCaseGenerator.parseAssertions(root.path("assertions").toString());
-                                    if (assertions != null && !assertions.isEmpty()) {
-                                        tc.assertions = assertions;
-                                        execResult.assertions = assertions;
-                                        execResult.assertionReason = reason;
-                                        execResult.verificationReason = reason;
-                                        decided = true;
-                                    } else {
-                                        retryCount++;
-                                    }
-                                } else {
-                                    String action = root.path("action").asText("");
-                                    if ("adjust_case".equals(action)) {
-                                        com.fasterxml.jackson.databind.JsonNode ac = root.path("adjustedCase");
-                                        TestCase adjusted = testCaseGenerator.parseSingleCase(ac);
-                                        if (authorization != null && !authorization.isEmpty()) {
-                                            if (adjusted.headers == null) adjusted.headers = new java.util.LinkedHashMap<>();
-                                            adjusted.headers.put("Authorization", authorization);
-                                        }
-                                        adjusted.tags = endpoint.tags;
-                                        allCases.add(adjusted);
-                                        ExecutionResult adjustedResult = curlExecutorService.executeOne(adjusted, baseUrl);
-                                        adjustedResult.scenario = scenario;
-                                        adjustedResult.tags = endpoint.tags;
-                                        String decision2Json = llmService.callLlm(
-                                            PromptPresets.caseDecisionSystemPrompt(),
-                                            PromptPresets.caseDecisionUserPrompt(adjusted, adjustedResult, endpointJson)
-                                        );
-                                        String cleaned2 = ModelUtils.stripCodeFences(decision2Json);
-                                        com.fasterxml.jackson.databind.JsonNode root2 = om.readTree(cleaned2);
-                                        boolean conforms2 = root2.path("conforms").asBoolean(false);
-                                        String reason2 = root2.path("reason").asText("");
-                                        if (conforms2) {
-                                            List<Assertion> assertions2 = testCaseGenerator.parseAssertions(root2.path("assertions").toString());
-                                            adjusted.assertions = assertions2;
-                                            adjustedResult.assertions = assertions2;
-                                            adjustedResult.assertionReason = reason2;
-                                            adjustedResult.verificationReason = reason2;
-                                        } else {
-                                            String abnormalDesc2 = root2.path("abnormalDescription").asText(reason2);
-                                            adjustedResult.interfaceAbnormal = true;
-                                            adjustedResult.abnormalDescription = abnormalDesc2;
-                                            adjustedResult.verificationReason = abnormalDesc2;
-                                        }
-                                        verifyLocally(adjusted, adjustedResult);
-                                        allResults.add(adjustedResult);
-                                        execResult.caseAdjusted = true;
-                                        execResult.adjustmentNote = reason;
-                                        execResult.success = false;
-                                        execResult.verificationPassed = false;
-                                        if (execResult.verificationReason == null || execResult.verificationReason.isEmpty()) {
-                                            execResult.verificationReason = reason;
-                                        }
-                                        decided = true;
-                                    } else if ("mark_abnormal".equals(action)) {
-                                        String abnormalDesc = root.path("abnormalDescription").asText(reason);
-                                        execResult.interfaceAbnormal = true;
-                                        execResult.abnormalDescription = abnormalDesc;
-                                        execResult.verificationReason = abnormalDesc;
-                                        decided = true;
-                                    } else {
-                                        retryCount++;
-                                    }
-                                }
-                            } catch (Exception e) {
-                                retryCount++;
-                            }
-                        }
-                        if (!decided) {
-                            try {
-                                String assertionsJson = llmService.callLlm(
-                                    PromptPresets.assertionGenerationSystemPrompt(),
-                                    PromptPresets.assertionGenerationUserPrompt(tc, execResult, endpointJson)
-                                );
-                                List<Assertion> assertions = testCaseGenerator.parseAssertions(assertionsJson);
-                                if (assertions != null && !assertions.isEmpty()) {
-                                    tc.assertions = assertions;
-                                    execResult.assertions = assertions;
-                                }
-                            } catch (Exception e) {}
+                }
+            });
+            PipelineStage<WorkGroup> generate = new PipelineStage<>("generate", stageGenerateWorkers, capacity, group -> {
+                // With streaming, cases reach the execute queue while the rest of the response is still being
+                // generated. The generator holds an LLM permit meanwhile, so it must not block on a full queue:
+                // whatever does not fit waits until the response is complete.
+                List<CaseRun> overflow = new java.util.ArrayList<>();
+                java.util.function.BiConsumer<ScenarioWork, TestCase> sink = !llmStreaming ? null : (work, tc) -> {
+                    CaseRun run = work.addRun(tc);
+                    if (!execute.offer(run)) overflow.add(run);
+                };
+                generateGroup(ctx, group, sink);
+                for (CaseRun run : overflow) execute.put(run);
+                for (ScenarioWork work : group.works) {
+                    if (work.streamed.isEmpty()) {
+                        for (TestCase tc : work.generated) execute.put(work.addRun(tc));
+                    }
+                    if (decisionBatchSize > 0 && work.generationDone(work.generated.size())) {
+                        List<CaseRun> executedRuns = work.executedRuns();
+                        if (!executedRuns.isEmpty()) decide.put(executedRuns);
+                    }
+                    work.casesPlanned(work.generated.size());
+                }
+            });
+
+            List<PipelineStage<?>> stages = List.of(generate, execute, decide, verify);
+            for (PipelineStage<?> stage : stages) {
+                progress.stages.put(stage.getName(), stage.getStats());
+                stage.start(executor);
+            }
+            for (WorkGroup group : groups) generate.put(group);
+            // Drain front to back: a stage is closed only once everything upstream has been handed over
+            for (PipelineStage<?> stage : stages) {
+                stage.close();
+                stage.await();
+            }
+        }
+    }
+
+    private void runCases(RunContext ctx, ScenarioWork work) {
+        long start = System.nanoTime();
+        try {
+            if (decisionBatchSize > 0) {
+                List<CaseRun> runs = new java.util.ArrayList<>();
+                for (TestCase tc : work.generated) {
+                    if (ctx.aborted()) break;
+                    CaseRun run = work.addRun(tc);
+                    executeCase(ctx, run);
+                    runs.add(run);
+                }
+                if (!runs.isEmpty()) decideBatch(ctx, runs);
+                for (CaseRun run : runs) verifyCase(ctx, run);
+            } else {
+                for (TestCase tc : work.generated) {
+                    if (ctx.aborted()) break;
+                    CaseRun run = work.addRun(tc);
+                    executeCase(ctx, run);
+                    decideCase(ctx, run);
+                    verifyCase(ctx, run);
+                }
+            }
+        } finally {
+            work.busyNanos.addAndGet(System.nanoTime() - start);
+            work.finish();
+        }
+    }
+
+    private void generateGroup(RunContext ctx, WorkGroup group, java.util.function.BiConsumer<ScenarioWork, TestCase> sink) {
+        if (ctx.aborted()) return;
+        long start = System.nanoTime();
+        try {
+            if (group.batched) {
+                generateBatch(ctx, group, sink, start);
+            } else {
+                for (ScenarioWork work : group.works) work.generated = generateCases(ctx, work, sink, start);
+            }
+        } finally {
+            group.works.get(0).busyNanos.addAndGet(System.nanoTime() - start);
+            for (ScenarioWork work : group.works) {
+                if (!work.generated.isEmpty()) work.firstCaseAt(start);
+            }
+        }
+    }
+
+    /**
+     * One request covers every scenario of every endpoint in the group. Whatever the response
+     * leaves out is re-asked through the single-scenario prompt.
+     */
+    private void generateBatch(RunContext ctx, WorkGroup group, java.util.function.BiConsumer<ScenarioWork, TestCase> sink, long start) {
+        List<OpenApiExtractor.Endpoint> endpoints = group.endpoints();
+        List<String> endpointJsons = group.endpointJsons();
+        ScenarioWork first = group.works.get(0);
+        log.info("Testing Endpoints [{}-{}/{}]: generating all scenarios in one request", first.endpointIndex,
+                first.endpointIndex + endpoints.size() - 1, first.totalEndpoints);
+        java.util.Map<OpenApiExtractor.Endpoint, java.util.Map<QualityScenario, List<TestCase>>> parsed = java.util.Map.of();
+        StreamingCaseParser streamingParser = sink == null ? null : new StreamingCaseParser(testCaseGenerator, true, (method, path, scenario, tc) -> {
+            for (ScenarioWork work : group.works) {
+                boolean endpointMatches = method == null && path == null
+                        ? endpoints.size() == 1
+                        : work.endpoint.method.equalsIgnoreCase(method) && work.endpoint.path.equals(path);
+                if (endpointMatches && work.scenario == scenario) {
+                    stream(sink, work, tc, start);
+                    return;
+                }
+            }
+        });
+        try {
+            String casesText = ctx.callLlm(first,
+                PromptPresets.batchInterfaceSystemPrompt(),
+                PromptPresets.batchInterfaceUserPrompt(ctx.programName, endpoints, endpointJsons, ctx.markdownSpec),
+                streamingParser == null ? null : streamingParser::feed
+            );
+            if (log.isDebugEnabled()) {
+                log.debug("    LLM Generated Batch Response: {}", casesText);
+            }
+            parsed = testCaseGenerator.parseLlmCases(casesText, endpoints);
+        } catch (Exception e) {
+            log.error("Batched generation failed for {} endpoint(s): {}", endpoints.size(), e.getMessage());
+        } finally {
+            if (streamingParser != null) streamingParser.finish();
+        }
+        for (ScenarioWork work : group.works) {
+            java.util.Map<QualityScenario, List<TestCase>> byScenario = parsed.get(work.endpoint);
+            List<TestCase> cases = byScenario == null ? null : byScenario.get(work.scenario);
+            if (!work.streamed.isEmpty()) {
+                // Already handed over one by one; the streamed list is what runs
+                cases = new java.util.ArrayList<>(work.streamed);
+                log.info("    Streamed {} {} cases for {} {} from batched response", cases.size(), work.scenario.name(), work.endpoint.method, work.endpoint.path);
+            } else if (cases == null) {
+                log.warn("    Batched response has no {} cases for {} {}, asking again on its own", work.scenario.name(), work.endpoint.method, work.endpoint.path);
+                cases = generateCases(ctx, work, sink, start);
+            } else {
+                log.info("    Parsed {} {} cases for {} {} from batched response", cases.size(), work.scenario.name(), work.endpoint.method, work.endpoint.path);
+            }
+            work.generated = cases;
+        }
+    }
+
+    private List<TestCase> generateCases(RunContext ctx, ScenarioWork work, java.util.function.BiConsumer<ScenarioWork, TestCase> sink, long start) {
+        OpenApiExtractor.Endpoint endpoint = work.endpoint;
+        QualityScenario scenario = work.scenario;
+        log.info("Testing Endpoint [{}/{}]: {} {} - Scenario: {}", work.endpointIndex, work.totalEndpoints, endpoint.method, endpoint.path, scenario.name());
+        try {
+            log.info("    Generating cases for scenario: {}", scenario.name());
+            StreamingCaseParser streamingParser = sink == null ? null
+                    : new StreamingCaseParser(testCaseGenerator, false, (method, path, sc, tc) -> stream(sink, work, tc, start));
+            String casesText;
+            try {
+                casesText = ctx.callLlm(work,
+                    PromptPresets.singleInterfaceSystemPrompt(),
+                    PromptPresets.singleInterfaceUserPrompt(ctx.programName, endpoint.method, endpoint.path, work.endpointJson(), scenario, ctx.markdownSpec),
+                    streamingParser == null ? null : streamingParser::feed
+                );
+            } finally {
+                if (streamingParser != null) streamingParser.finish();
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("    LLM Generated Cases Response: {}", casesText);
+            }
+            if (!work.streamed.isEmpty()) {
+                log.info("    Streamed {} cases from LLM response", work.streamed.size());
+                return new java.util.ArrayList<>(work.streamed);
+            }
+
+            List<TestCase> scenarioCases = testCaseGenerator.parseLlmCases(casesText);
+            log.info("    Parsed {} cases from LLM response", scenarioCases.size());
+            return scenarioCases;
+        } catch (Exception e) {
+            log.error("Error testing " + endpoint.path + " scenario " + scenario.name() + ": " + e.getMessage(), e);
+            // Cases streamed before the failure are already running
+            return new java.util.ArrayList<>(work.streamed);
+        }
+    }
+
+    private void stream(java.util.function.BiConsumer<ScenarioWork, TestCase> sink, ScenarioWork work, TestCase tc, long generationStart) {
+        work.firstCaseAt(generationStart);
+        work.streamed.add(tc);
+        sink.accept(work, tc);
+    }
+
+    private void executeCase(RunContext ctx, CaseRun run) {
+        TestCase tc = run.testCase;
+        ctx.applyAuthorization(tc);
+        tc.tags = run.work.endpoint.tags;
+        log.info("      Executing Case: {} (Goal: {})", tc.name, tc.goal);
+        run.result = ctx.execute(run.work, tc);
+        run.result.scenario = run.work.scenario;
+        run.result.tags = run.work.endpoint.tags;
+    }
+
+    private void decideCase(RunContext ctx, CaseRun run) {
+        ScenarioWork work = run.work;
+        TestCase tc = run.testCase;
+
+        if (judgeLocally(ctx, run)) {
+            ctx.llmCallsAvoided.incrementAndGet();
+            return;
+        }
+        log.info("      Decision and assertions for case: {}", tc.name);
+        int retryCount = 0;
+        int maxRetries = 3;
+        boolean decided = false;
+        while (retryCount < maxRetries && !decided) {
+            try {
+                String decisionJson = ctx.callLlm(work,
+                    PromptPresets.caseDecisionSystemPrompt(),
+                    PromptPresets.caseDecisionUserPrompt(tc, run.result, work.endpointJson())
+                );
+                com.fasterxml.jackson.databind.JsonNode root = new com.fasterxml.jackson.databind.ObjectMapper().readTree(ModelUtils.stripCodeFences(decisionJson));
+                decided = applyVerdict(ctx, run, root);
+                if (!decided) retryCount++;
+            } catch (Exception e) {
+                retryCount++;
+            }
+        }
+        if (!decided) fallbackAssertions(ctx, run);
+    }
+
+    /**
+     * Judges a set of executed cases of one work with as few requests as possible. Verdicts are
+     * matched back by case id; cases without a usable verdict are re-asked on their own round.
+     */
+    private void decideBatch(RunContext ctx, List<CaseRun> allRuns) {
+        int chunkSize = Math.max(1, decisionBatchSize);
+        List<CaseRun> runs = new java.util.ArrayList<>();
+        for (CaseRun run : allRuns) {
+            if (!judgeLocally(ctx, run)) runs.add(run);
+        }
+        int requestsBefore = (allRuns.size() + chunkSize - 1) / chunkSize;
+        int requestsAfter = (runs.size() + chunkSize - 1) / chunkSize;
+        ctx.llmCallsAvoided.addAndGet(requestsBefore - requestsAfter);
+        for (int from = 0; from < runs.size(); from += chunkSize) {
+            List<CaseRun> chunk = runs.subList(from, Math.min(runs.size(), from + chunkSize));
+            ScenarioWork work = chunk.get(0).work;
+            java.util.Map<String, CaseRun> pending = new java.util.LinkedHashMap<>();
+            for (int i = 0; i < chunk.size(); i++) pending.put("c" + (from + i + 1), chunk.get(i));
+
+            log.info("      Batch decision for {} case(s) of {} {} - {}", pending.size(), work.endpoint.method, work.endpoint.path, work.scenario.name());
+            int attempt = 0;
+            int maxRetries = 3;
+            while (!pending.isEmpty() && attempt < maxRetries) {
+                attempt++;
+                try {
+                    java.util.Map<String, TestCase> cases = new java.util.LinkedHashMap<>();
+                    java.util.Map<String, ExecutionResult> results = new java.util.LinkedHashMap<>();
+                    for (java.util.Map.Entry<String, CaseRun> e : pending.entrySet()) {
+                        cases.put(e.getKey(), e.getValue().testCase);
+                        results.put(e.getKey(), e.getValue().result);
+                    }
+                    String decisionJson = ctx.callLlm(work,
+                        PromptPresets.batchDecisionSystemPrompt(),
+                        PromptPresets.batchDecisionUserPrompt(cases, results, work.endpointJson())
+                    );
+                    com.fasterxml.jackson.databind.JsonNode root = new com.fasterxml.jackson.databind.ObjectMapper().readTree(ModelUtils.stripCodeFences(decisionJson));
+                    com.fasterxml.jackson.databind.JsonNode verdicts = root.isArray() ? root : root.path("verdicts");
+                    if (verdicts.isArray()) {
+                        for (com.fasterxml.jackson.databind.JsonNode verdict : verdicts) {
+                            String caseId = verdict.path("caseId").asText("");
+                            CaseRun run = pending.get(caseId);
+                            if (run != null && applyVerdict(ctx, run, verdict)) pending.remove(caseId);
                         }
-                        verifyLocally(tc, execResult);
-                        
-                        allResults.add(execResult);
-                        log.info("      Result: {} - Reason: {}", (execResult.success ? "PASS" : "FAIL"), execResult.verificationReason);
                     }
                 } catch (Exception e) {
-                    log.error("Error testing " + endpoint.path + " scenario " + scenario.name() + ": " + e.getMessage(), e);
+                    log.warn("      Batch decision attempt {} failed: {}", attempt, e.getMessage());
                 }
+                if (!pending.isEmpty()) log.info("      {} verdict(s) missing after attempt {}: {}", pending.size(), attempt, pending.keySet());
             }
+            for (CaseRun run : pending.values()) fallbackAssertions(ctx, run);
         }
+    }
 
-        result.testCases = allCases;
-        result.executionResults = allResults;
+    private boolean judgeLocally(RunContext ctx, CaseRun run) {
+        if (!fastPathEnabled) return false;
+        FastPathJudge.Verdict verdict = fastPathJudge.judge(run.work.scenario, run.testCase, run.result);
+        if (verdict == null) return false;
+        run.testCase.assertions = verdict.assertions;
+        run.result.assertions = verdict.assertions;
+        run.result.assertionReason = verdict.reason;
+        run.result.verificationReason = verdict.reason;
+        ctx.fastPathDecisions.incrementAndGet();
+        log.info("      Decided locally for case: {} ({})", run.testCase.name, verdict.reason);
+        return true;
+    }
 
-        // 4. Summary
-        log.info("Generating Summary...");
-        SummaryMetrics metrics = calculateMetrics(allResults);
-        
-        String analysisPrompt = PromptPresets.analysisPrompt(programName, 
-            testCaseGenerator.describe(allCases, ar), 
-            metrics);
-        log.info("analysis prompt:"+analysisPrompt);
-        String summary = ModelUtils.stripCodeFences(llmService.callLlm("你是资深测试分析师，输出中文总结，不要附加无关内容。", analysisPrompt));
-        result.summary = summary;
+    /**
+     * Applies one conforms / adjust_case / mark_abnormal verdict. Returns false when the verdict
+     * is unusable (e.g. conforms without assertions) and should be asked for again.
+     */
+    private boolean applyVerdict(RunContext ctx, CaseRun run, com.fasterxml.jackson.databind.JsonNode root) throws Exception {
+        ScenarioWork work = run.work;
+        OpenApiExtractor.Endpoint endpoint = work.endpoint;
+        TestCase tc = run.testCase;
+        ExecutionResult execResult = run.result;
+        boolean conforms = root.path("conforms").asBoolean(false);
+        String reason = root.path("reason").asText("");
+        if (conforms) {
+            List<Assertion> assertions = testCaseGenerator.parseAssertions(root.path("assertions").toString());
+            if (assertions == null || assertions.isEmpty()) return false;
+            tc.assertions = assertions;
+            execResult.assertions = assertions;
+            execResult.assertionReason = reason;
+            execResult.verificationReason = reason;
+            return true;
+        }
+        String action = root.path("action").asText("");
+        if ("adjust_case".equals(action)) {
+            com.fasterxml.jackson.databind.JsonNode ac = root.path("adjustedCase");
+            TestCase adjusted = testCaseGenerator.parseSingleCase(ac);
+            ctx.applyAuthorization(adjusted);
+            adjusted.tags = endpoint.tags;
+            ExecutionResult adjustedResult = ctx.execute(work, adjusted);
+            adjustedResult.scenario = work.scenario;
+            adjustedResult.tags = endpoint.tags;
+            String decision2Json = ctx.callLlm(work,
+                PromptPresets.caseDecisionSystemPrompt(),
+                PromptPresets.caseDecisionUserPrompt(adjusted, adjustedResult, work.endpointJson())
+            );
+            String cleaned2 = ModelUtils.stripCodeFences(decision2Json);
+            com.fasterxml.jackson.databind.JsonNode root2 = new com.fasterxml.jackson.databind.ObjectMapper().readTree(cleaned2);
+            boolean conforms2 = root2.path("conforms").asBoolean(false);
+            String reason2 = root2.path("reason").asText("");
+            if (conforms2) {
+                List<Assertion> assertions2 = testCaseGenerator.parseAssertions(root2.path("assertions").toString());
+                adjusted.assertions = assertions2;
+                adjustedResult.assertions = assertions2;
+                adjustedResult.assertionReason = reason2;
+                adjustedResult.verificationReason = reason2;
+            } else {
+                String abnormalDesc2 = root2.path("abnormalDescription").asText(reason2);
+                adjustedResult.interfaceAbnormal = true;
+                adjustedResult.abnormalDescription = abnormalDesc2;
+                adjustedResult.verificationReason = abnormalDesc2;
+            }
+            run.adjusted = new CaseRun(work, adjusted);
+            run.adjusted.result = adjustedResult;
+            execResult.caseAdjusted = true;
+            execResult.adjustmentNote = reason;
+            execResult.success = false;
+            execResult.verificationPassed = false;
+            if (execResult.verificationReason == null || execResult.verificationReason.isEmpty()) {
+                execResult.verificationReason = reason;
+            }
+            return true;
+        }
+        if ("mark_abnormal".equals(action)) {
+            String abnormalDesc = root.path("abnormalDescription").asText(reason);
+            execResult.interfaceAbnormal = true;
+            execResult.abnormalDescription = abnormalDesc;
+            execResult.verificationReason = abnormalDesc;
+            return true;
+        }
+        return false;
+    }
+
+    private void fallbackAssertions(RunContext ctx, CaseRun run) {
+        TestCase tc = run.testCase;
+        ExecutionResult execResult = run.result;
+        try {
+            String assertionsJson = ctx.callLlm(run.work,
+                PromptPresets.assertionGenerationSystemPrompt(),
+                PromptPresets.assertionGenerationUserPrompt(tc, execResult, run.work.endpointJson())
+            );
+            List<Assertion> assertions = testCaseGenerator.parseAssertions(assertionsJson);
+            if (assertions != null && !assertions.isEmpty()) {
+                tc.assertions = assertions;
+                execResult.assertions = assertions;
+            }
+        } catch (Exception e) {}
+    }
+
+    private void verifyCase(RunContext ctx, CaseRun run) {
+        if (run.adjusted != null) verifyLocally(run.adjusted.testCase, run.adjusted.result, ctx.schemas);
+        ExecutionResult execResult = run.result;
+        verifyLocally(run.testCase, execResult, ctx.schemas);
+        log.info("      Result: {} - Reason: {}", (execResult.success ? "PASS" : "FAIL"), execResult.verificationReason);
+    }
+
+    private PipelineStats buildStats(String mode, List<ScenarioWork> works, long wallNanos) {
+        PipelineStats stats = new PipelineStats();
+        stats.mode = mode;
+        stats.units = works.size();
+        stats.llmConcurrency = llmConcurrency;
+        stats.httpConcurrency = httpConcurrency;
+        stats.wallClockMs = wallNanos / 1_000_000;
+        long serialNanos = 0;
+        for (ScenarioWork work : works) {
+            // Time spent queueing for a permit only exists because of parallelism
+            serialNanos += Math.max(0, work.busyNanos.get() - work.waitNanos.get());
+        }
+        stats.serialEstimateMs = serialNanos / 1_000_000;
+        stats.speedup = wallNanos == 0 ? 1.0 : (double) serialNanos / wallNanos;
+        stats.streaming = llmStreaming && "staged".equals(mode);
+        long firstCaseTotal = 0;
+        int withCases = 0;
+        for (ScenarioWork work : works) {
+            long first = work.getFirstCaseNanos();
+            if (first < 0) continue;
+            withCases++;
+            firstCaseTotal += first;
+            stats.maxTimeToFirstCaseMs = Math.max(stats.maxTimeToFirstCaseMs, first / 1_000_000);
+        }
+        stats.avgTimeToFirstCaseMs = withCases == 0 ? 0 : firstCaseTotal / withCases / 1_000_000;
+        return stats;
+    }
+
+    /**
+     * One endpoint x scenario unit. Owns its case runs so concurrent units never share a list.
+     */
+    private static class ScenarioWork {
+        final int endpointIndex;
+        final int totalEndpoints;
+        final OpenApiExtractor.Endpoint endpoint;
+        final EndpointSpec spec;
+        final QualityScenario scenario;
+        final List<CaseRun> runs = new java.util.ArrayList<>();
+        List<TestCase> generated = List.of();
+        // Cases handed to execution while the generation response was still streaming
+        final List<TestCase> streamed = new java.util.concurrent.CopyOnWriteArrayList<>();
+        private int executed;
+        private int expected = -1;
+        private long firstCaseNanos = -1;
+        private int planned = -1;
+        private int settled;
+        private boolean finished;
+        final java.util.concurrent.atomic.AtomicLong busyNanos = new java.util.concurrent.atomic.AtomicLong();
+        final java.util.concurrent.atomic.AtomicLong waitNanos = new java.util.concurrent.atomic.AtomicLong();
+
+        ScenarioWork(int endpointIndex, int totalEndpoints, OpenApiExtractor.Endpoint endpoint, EndpointSpec spec, QualityScenario scenario) {
+            this.endpointIndex = endpointIndex;
+            this.totalEndpoints = totalEndpoints;
+            this.endpoint = endpoint;
+            this.spec = spec;
+            this.scenario = scenario;
+        }
+
+        String endpointJson() {
+            return spec.json();
+        }
+
+        /** Once generation knows how many cases there are; the unit is finished when all of them are settled. */
+        synchronized void casesPlanned(int total) {
+            planned = total;
+            if (settled >= planned) finish();
+        }
+
+        /** Cases past the decision stage, or that never got there. */
+        synchronized void casesSettled(int count) {
+            settled += count;
+            if (planned >= 0 && settled >= planned) finish();
+        }
+
+        /** Nothing of this unit asks for the endpoint bundle any more. */
+        synchronized void finish() {
+            if (finished) return;
+            finished = true;
+            spec.unitDone();
+        }
+
+        synchronized CaseRun addRun(TestCase tc) {
+            CaseRun run = new CaseRun(this, tc);
+            runs.add(run);
+            return run;
+        }
+
+        /**
+         * Counts an executed case; true exactly once, when generation has finished and every
+         * generated case has run, whichever of the two happens last.
+         */
+        synchronized boolean caseExecuted() {
+            executed++;
+            return expected >= 0 && executed == expected;
+        }
+
+        synchronized boolean generationDone(int total) {
+            expected = total;
+            return total > 0 && executed == total;
+        }
+
+        synchronized void firstCaseAt(long generationStart) {
+            if (firstCaseNanos < 0) firstCaseNanos = System.nanoTime() - generationStart;
+        }
+
+        synchronized long getFirstCaseNanos() {
+            return firstCaseNanos;
+        }
+
+        /** The runs with a result to judge; the others are settled here, as there is nothing to decide for them. */
+        synchronized List<CaseRun> executedRuns() {
+            List<CaseRun> out = new java.util.ArrayList<>();
+            for (CaseRun run : runs) {
+                if (run.result != null) out.add(run);
+            }
+            casesSettled(runs.size() - out.size());
+            return out;
+        }
+
+        // Adjusted cases sit right after their original; their results come first, as they are judged first
+        synchronized void collect(List<TestCase> cases, List<ExecutionResult> results) {
+            for (CaseRun run : runs) {
+                cases.add(run.testCase);
+                if (run.adjusted != null) {
+                    cases.add(run.adjusted.testCase);
+                    results.add(run.adjusted.result);
+                }
+                if (run.result != null) results.add(run.result);
+            }
+        }
+    }
+
+    /**
+     * Works that share one generation request: a single work, or every scenario of up to
+     * GENERATION_BATCH_SIZE endpoints when batched generation is on.
+     */
+    private static class WorkGroup {
+        final boolean batched;
+        final List<ScenarioWork> works = new java.util.ArrayList<>();
+
+        WorkGroup(boolean batched) {
+            this.batched = batched;
+        }
+
+        List<OpenApiExtractor.Endpoint> endpoints() {
+            List<OpenApiExtractor.Endpoint> out = new java.util.ArrayList<>();
+            for (ScenarioWork work : works) if (!out.contains(work.endpoint)) out.add(work.endpoint);
+            return out;
+        }
+
+        List<String> endpointJsons() {
+            List<String> out = new java.util.ArrayList<>();
+            List<OpenApiExtractor.Endpoint> seen = new java.util.ArrayList<>();
+            for (ScenarioWork work : works) {
+                if (seen.contains(work.endpoint)) continue;
+                seen.add(work.endpoint);
+                out.add(work.endpointJson());
+            }
+            return out;
+        }
+    }
+
+    /**
+     * An endpoint's operation bundle for prompts, built when one of its units first needs it and
+     * dropped when the last of them finishes. Only endpoints in progress hold one: across a large
+     * spec the bundles, each repeating the shared components, add up to more than the document.
+     */
+    private static class EndpointSpec {
+        final OpenApiExtractor extractor;
+        final OpenApiExtractor.OpenApiInfo info;
+        final OpenApiExtractor.Endpoint endpoint;
+        private int openUnits;
+        private String json;
+
+        EndpointSpec(OpenApiExtractor extractor, OpenApiExtractor.OpenApiInfo info, OpenApiExtractor.Endpoint endpoint, int units) {
+            this.extractor = extractor;
+            this.info = info;
+            this.endpoint = endpoint;
+            this.openUnits = units;
+        }
+
+        synchronized String json() {
+            if (json == null) json = extractor.getEndpointJson(info, endpoint.method, endpoint.path);
+            return json;
+        }
+
+        synchronized void unitDone() {
+            if (--openUnits <= 0) json = null;
+        }
+    }
+
+    private static class CaseRun {
+        final ScenarioWork work;
+        final TestCase testCase;
+        ExecutionResult result;
+        CaseRun adjusted;
+
+        CaseRun(ScenarioWork work, TestCase testCase) {
+            this.work = work;
+            this.testCase = testCase;
+        }
+    }
+
+    /**
+     * Per-run settings plus the permits that cap concurrent LLM and target-system calls.
+     */
+    private class RunContext {
+        final String programName;
+        final String markdownSpec;
+        final String authorization;
+        final String baseUrl;
+        final java.util.concurrent.Semaphore llmPermits = new java.util.concurrent.Semaphore(Math.max(1, llmConcurrency));
+        final java.util.concurrent.Semaphore httpPermits = new java.util.concurrent.Semaphore(Math.max(1, httpConcurrency));
+        final java.util.concurrent.atomic.AtomicLong llmCalls = new java.util.concurrent.atomic.AtomicLong();
+        final java.util.concurrent.atomic.AtomicLong llmPromptChars = new java.util.concurrent.atomic.AtomicLong();
+        final java.util.concurrent.atomic.AtomicLong fastPathDecisions = new java.util.concurrent.atomic.AtomicLong();
+        final java.util.concurrent.atomic.AtomicLong llmCallsAvoided = new java.util.concurrent.atomic.AtomicLong();
+        MetricsSeries series;
+        SlaMonitor sla;
+        ResponseSchemas schemas;
+
+        RunContext(String programName, String markdownSpec, String authorization, String baseUrl) {
+            this.programName = programName;
+            this.markdownSpec = markdownSpec;
+            this.authorization = authorization;
+            this.baseUrl = baseUrl;
+        }
 
-        return result;
+        void applyAuthorization(TestCase tc) {
+            if (authorization != null && !authorization.isEmpty()) {
+                if (tc.headers == null) tc.headers = new java.util.LinkedHashMap<>();
+                tc.headers.put("Authorization", authorization);
+            }
+        }
+
+        String callLlm(ScenarioWork work, String system, String user) throws Exception {
+            return callLlm(work, system, user, null);
+        }
+
+        boolean aborted() {
+            return sla != null && sla.aborted();
+        }
+
+        String callLlm(ScenarioWork work, String system, String user, java.util.function.Consumer<String> onDelta) throws Exception {
+            // Cases already executed fall back to local verification instead of waiting for the LLM
+            if (aborted()) throw new IllegalStateException("运行已因 SLA 未达标提前终止");
+            long waitStart = System.nanoTime();
+            llmPermits.acquire();
+            work.waitNanos.addAndGet(System.nanoTime() - waitStart);
+            llmCalls.incrementAndGet();
+            llmPromptChars.addAndGet(system.length() + user.length());
+            try {
+                return onDelta == null ? llmService.callLlm(system, user) : llmService.callLlm(system, user, onDelta);
+            } finally {
+                llmPermits.release();
+            }
+        }
+
+        ExecutionResult execute(ScenarioWork work, TestCase tc) {
+            long waitStart = System.nanoTime();
+            httpPermits.acquireUninterruptibly();
+            work.waitNanos.addAndGet(System.nanoTime() - waitStart);
+            try {
+                ExecutionResult res = curlExecutorService.executeOne(tc, baseUrl);
+                recordRequest(series, sla, res, tc.tags, work.scenario == null ? null : work.scenario.name());
+                return res;
+            } finally {
+                httpPermits.release();
+            }
+        }
     }
 
     public SummaryMetrics calculateMetrics(List<ExecutionResult> results) {
         SummaryMetrics m = new SummaryMetrics();
         m.total = results.size();
-        m.success = results.stream().filter(r -> r.success).count();
-        m.fail = m.total - m.success;
-        m.errorRate = m.total == 0 ? 0 : (double) m.fail / m.total;
-        
-        if (m.total > 0) {
-            double sum = results.stream().mapToDouble(r -> r.durationMs).sum();
-            m.avg = sum / m.total;
-            m.min = results.stream().mapToDouble(r -> r.durationMs).min().orElse(0);
-            m.max = results.stream().mapToDouble(r -> r.durationMs).max().orElse(0);
-            
-             List<Double> sorted = results.stream().map(r -> (double)r.durationMs).sorted().toList();
-             m.p95 = percentile(sorted, 0.95);
-             m.p99 = percentile(sorted, 0.99);
-        }
-        
+        // One pass into fixed-size histograms instead of sorting every duration
+        LatencyRecorder all = new LatencyRecorder();
+        java.util.Map<String, LatencyRecorder> byLabel = new java.util.HashMap<>();
         for (ExecutionResult r : results) {
+            if (r.success) m.success++;
+            long micros = r.durationMs * 1000;
+            all.record(micros);
             String name = r.caseName == null ? "Unknown" : r.caseName;
             LabelStat ls = m.byLabel.computeIfAbsent(name, k -> new LabelStat());
             ls.label = name;
@@ -260,32 +987,113 @@ public class PipelineService {
             if (r.success) ls.success++; else ls.fail++;
             String code = String.valueOf(r.statusCode);
             ls.codes.put(code, ls.codes.getOrDefault(code, 0L) + 1);
+            byLabel.computeIfAbsent(name, k -> new LatencyRecorder()).record(micros);
         }
+        m.fail = m.total - m.success;
+        m.errorRate = m.total == 0 ? 0 : (double) m.fail / m.total;
+
+        if (m.total > 0) {
+            m.latency = all.spectrum();
+            m.avg = m.latency.mean;
+            m.min = m.latency.min;
+            m.max = m.latency.max;
+            m.p95 = m.latency.percentiles.get("p95");
+            m.p99 = m.latency.percentiles.get("p99");
+        }
+        for (LabelStat ls : m.byLabel.values()) ls.latency = byLabel.get(ls.label).spectrum();
+
+        aggregatePhases(results, m);
         return m;
     }
 
-    private double percentile(List<Double> sorted, double p) {
-        if (sorted.isEmpty()) return 0;
-        int index = (int) Math.ceil(p * sorted.size()) - 1;
-        return sorted.get(Math.max(0, index));
+    private void aggregatePhases(List<ExecutionResult> results, SummaryMetrics m) {
+        List<com.example.jmeterai.model.PhaseTimings> timed = results.stream().map(r -> r.timings).filter(java.util.Objects::nonNull).toList();
+        if (timed.isEmpty()) return;
+        List<com.example.jmeterai.model.PhaseTimings> fresh = timed.stream().filter(t -> !t.connectionReused).toList();
+        // Calls that failed before a response would bury the request phases under zeros
+        List<com.example.jmeterai.model.PhaseTimings> answered = results.stream().filter(r -> r.timings != null && r.statusCode > 0).map(r -> r.timings).toList();
+        m.connectionReuseRate = (double) (timed.size() - fresh.size()) / timed.size();
+        addPhase(m, "queue", timed, t -> t.queueMs);
+        // Likewise connection setup only happens on new connections
+        addPhase(m, "dns", fresh, t -> t.dnsMs);
+        addPhase(m, "connect", fresh, t -> t.connectMs);
+        addPhase(m, "tls", fresh.stream().filter(t -> t.tlsMs > 0).toList(), t -> t.tlsMs);
+        addPhase(m, "send", answered, t -> t.sendMs);
+        addPhase(m, "ttfb", answered, t -> t.ttfbMs);
+        addPhase(m, "download", answered, t -> t.downloadMs);
+        addPhase(m, "total", answered, t -> t.totalMs);
+    }
+
+    private void addPhase(SummaryMetrics m, String phase, List<com.example.jmeterai.model.PhaseTimings> timings,
+                          java.util.function.ToDoubleFunction<com.example.jmeterai.model.PhaseTimings> value) {
+        if (timings.isEmpty()) return;
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (com.example.jmeterai.model.PhaseTimings t : timings) recorder.record(Math.round(value.applyAsDouble(t) * 1000));
+        com.example.jmeterai.model.PhaseStat ps = new com.example.jmeterai.model.PhaseStat();
+        ps.phase = phase;
+        ps.count = recorder.count();
+        ps.avg = recorder.meanMicros() / 1000.0;
+        ps.p50 = recorder.percentileMicros(50) / 1000.0;
+        ps.p95 = recorder.percentileMicros(95) / 1000.0;
+        ps.p99 = recorder.percentileMicros(99) / 1000.0;
+        ps.max = recorder.maxMicros() / 1000.0;
+        m.phases.put(phase, ps);
+    }
+
+    private void recordRequest(MetricsSeries series, SlaMonitor sla, ExecutionResult res, List<String> tags, String scenario) {
+        long now = System.currentTimeMillis();
+        if (series != null) series.record(res.endpoint, now, res.statusCode, res.durationMs * 1000);
+        if (sla != null) sla.record(res.endpoint, tags, now, res.statusCode, res.durationMs * 1000);
+        metricsRegistry.recordHttpRequest(res.endpoint, scenario, res.statusCode, res.durationMs * 1000);
     }
 
     public List<ExecutionResult> reRunTestCases(List<TestCase> cases, String baseUrl) {
+        return reRunTestCases(cases, baseUrl, null);
+    }
+
+    public List<ExecutionResult> reRunTestCases(List<TestCase> cases, String baseUrl, MetricsSeries series) {
+        return reRunTestCases(cases, baseUrl, series, null);
+    }
+
+    public List<ExecutionResult> reRunTestCases(List<TestCase> cases, String baseUrl, MetricsSeries series, SlaMonitor sla) {
+        return reRunTestCases(cases, baseUrl, series, sla, null);
+    }
+
+    public List<ExecutionResult> reRunTestCases(List<TestCase> cases, String baseUrl, MetricsSeries series, SlaMonitor sla, ResponseSchemas schemas) {
         List<ExecutionResult> results = new java.util.ArrayList<>();
         for (TestCase tc : cases) {
+            if (sla != null && sla.aborted()) {
+                log.warn("Re-run aborted after {}/{} case(s): {}", results.size(), cases.size(), sla.report().abortReason);
+                break;
+            }
             log.info("Re-running Case: {}", tc.name);
             ExecutionResult execResult = curlExecutorService.executeOne(tc, baseUrl);
+            recordRequest(series, sla, execResult, tc.tags, "RERUN");
             execResult.tags = tc.tags;
             
             // Verify locally
-            verifyLocally(tc, execResult);
+            verifyLocally(tc, execResult, schemas);
             
             results.add(execResult);
         }
         return results;
     }
 
-    private void verifyLocally(TestCase tc, ExecutionResult result) {
+    private void verifyLocally(TestCase tc, ExecutionResult result, ResponseSchemas schemas) {
+        ResponseSchemas.Operation schema = schemas == null ? null : schemas.operation(tc.method, tc.path);
+        verifyAssertions(tc, result, schema);
+        if (schema == null) return;
+        // Cases judged without running assertions still get their body checked
+        if (result.schemaValid == null) schema.check(result, null);
+        metricsRegistry.recordSchemaValidation(result.schemaValid);
+        if (Boolean.FALSE.equals(result.schemaValid) && result.success && "enforce".equalsIgnoreCase(schemaValidation)) {
+            result.success = false;
+            result.verificationPassed = false;
+            result.verificationReason = "响应结构与接口文档不符: " + String.join("；", result.schemaErrors);
+        }
+    }
+
+    private void verifyAssertions(TestCase tc, ExecutionResult result, ResponseSchemas.Operation schema) {
         if (result.interfaceAbnormal) {
             result.success = false;
             result.verificationPassed = false;
@@ -316,77 +1124,10 @@ public class PipelineService {
              return;
         }
 
-        boolean allPassed = true;
-        StringBuilder reasons = new StringBuilder();
-        
-        for (Assertion a : tc.assertions) {
-            boolean passed = false;
-            String actual = "";
-            try {
-                if ("statusCode".equals(a.type)) {
-                    int expected = Integer.parseInt(a.expected);
-                    passed = (result.statusCode == expected);
-                    actual = String.valueOf(result.statusCode);
-                } else if ("bodyContains".equals(a.type)) {
-                    passed = result.responseBody != null && result.responseBody.contains(a.expected);
-                    actual = "Body content";
-                } else if ("responseTime".equals(a.type)) {
-                    long expected = Long.parseLong(a.expected);
-                    passed = result.durationMs < expected;
-                    actual = result.durationMs + "ms";
-                } else if ("jsonPath".equals(a.type)) {
-                     com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-                     com.fasterxml.jackson.databind.JsonNode root = mapper.readTree(result.responseBody);
-                     passed = checkJsonPath(root, a.expression, a.operator, a.expected);
-                     actual = "JsonPath result";
-                }
-            } catch (Exception e) {
-                passed = false;
-                actual = "Error: " + e.getMessage();
-            }
-            
-            if (!passed) {
-                allPassed = false;
-                reasons.append("[").append(a.failureMessage).append(" (Expected: ").append(a.expected).append(", Actual: ").append(actual).append(")] ");
-            }
-        }
-        
-        result.verificationPassed = allPassed;
-        result.success = allPassed;
-        result.verificationReason = allPassed ? "All assertions passed" : reasons.toString();
-    }
-
-    private boolean checkJsonPath(com.fasterxml.jackson.databind.JsonNode root, String expression, String operator, String expected) {
-        if (expression == null) return false;
-        if (expression.startsWith("$.")) expression = expression.substring(2);
-        
-        String[] parts = expression.split("\\.");
-        com.fasterxml.jackson.databind.JsonNode current = root;
-        for (String part : parts) {
-            if (current == null) return false;
-            if (part.contains("[")) {
-                String name = part.substring(0, part.indexOf("["));
-                String indexStr = part.substring(part.indexOf("[")+1, part.indexOf("]"));
-                int index = Integer.parseInt(indexStr);
-                if (!name.isEmpty()) current = current.path(name);
-                current = current.path(index);
-            } else {
-                current = current.path(part);
-            }
-        }
-        
-        if (current.isMissingNode()) return false;
-        
-        String val = current.asText();
-        if ("equals".equals(operator)) return val.equals(expected);
-        if ("contains".equals(operator)) return val.contains(expected);
-        if ("notContains".equals(operator)) return !val.contains(expected);
-        if ("greaterThan".equals(operator)) {
-            try { return Double.parseDouble(val) > Double.parseDouble(expected); } catch (Exception e) { return false; }
-        }
-        if ("lessThan".equals(operator)) {
-            try { return Double.parseDouble(val) < Double.parseDouble(expected); } catch (Exception e) { return false; }
-        }
-        return true;
+        CompiledAssertions.Outcome outcome = CompiledAssertions.of(tc).evaluate(result, schema);
+        metricsRegistry.recordAssertions(outcome.evaluated, outcome.passed);
+        result.verificationPassed = outcome.passed;
+        result.success = outcome.passed;
+        result.verificationReason = outcome.reason;
     }
 }
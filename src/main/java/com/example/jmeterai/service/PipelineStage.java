@@ -0,0 +1,130 @@
+package com.example.jmeterai.service;
+
+import com.example.jmeterai.model.StageStats;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A fixed pool of workers draining a bounded queue. {@link #put} blocks when the queue is full,
+ * which is what pushes back on the upstream stage.
+ */
+public class PipelineStage<T> {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(PipelineStage.class);
+
+    private static final Object END = new Object();
+
+    public interface Handler<T> {
+        void handle(T item) throws Exception;
+    }
+
+    private final String name;
+    private final int workers;
+    private final BlockingQueue<Object> queue;
+    private final Handler<T> handler;
+    private final StageStats stats = new StageStats();
+    private final CountDownLatch finished;
+    private final java.util.concurrent.atomic.AtomicLong busyNanos = new java.util.concurrent.atomic.AtomicLong();
+    private final java.util.concurrent.atomic.AtomicLong blockedNanos = new java.util.concurrent.atomic.AtomicLong();
+    private final java.util.concurrent.atomic.AtomicInteger active = new java.util.concurrent.atomic.AtomicInteger();
+    private final java.util.concurrent.atomic.AtomicLong processed = new java.util.concurrent.atomic.AtomicLong();
+    private final java.util.concurrent.atomic.AtomicLong failed = new java.util.concurrent.atomic.AtomicLong();
+    private long startNanos;
+
+    public PipelineStage(String name, int workers, int capacity, Handler<T> handler) {
+        this.name = name;
+        this.workers = Math.max(1, workers);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.handler = handler;
+        this.finished = new CountDownLatch(this.workers);
+        stats.name = name;
+        stats.workers = this.workers;
+        stats.queueCapacity = Math.max(1, capacity);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public StageStats getStats() {
+        return stats;
+    }
+
+    public void start(ExecutorService executor) {
+        startNanos = System.nanoTime();
+        for (int i = 0; i < workers; i++) {
+            executor.execute(this::work);
+        }
+    }
+
+    public void put(T item) throws InterruptedException {
+        if (!queue.offer(item)) {
+            long start = System.nanoTime();
+            queue.put(item);
+            blockedNanos.addAndGet(System.nanoTime() - start);
+        }
+        stats.queueDepth = queue.size();
+    }
+
+    /** Non-blocking hand-over for producers that must not stall, e.g. while holding an LLM permit. */
+    public boolean offer(T item) {
+        boolean accepted = queue.offer(item);
+        stats.queueDepth = queue.size();
+        return accepted;
+    }
+
+    /** Signals that no more items will be put; workers exit once the queue is drained. */
+    public void close() throws InterruptedException {
+        for (int i = 0; i < workers; i++) queue.put(END);
+    }
+
+    public void await() throws InterruptedException {
+        finished.await();
+        refreshStats();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void work() {
+        try {
+            while (true) {
+                Object item = queue.take();
+                stats.queueDepth = queue.size();
+                if (item == END) return;
+                stats.activeWorkers = active.incrementAndGet();
+                long start = System.nanoTime();
+                try {
+                    handler.handle((T) item);
+                    processed.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    log.error("Stage {} failed on item: {}", name, e.getMessage(), e);
+                } finally {
+                    busyNanos.addAndGet(System.nanoTime() - start);
+                    stats.activeWorkers = active.decrementAndGet();
+                    refreshStats();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    private void refreshStats() {
+        long busy = busyNanos.get();
+        long elapsed = System.nanoTime() - startNanos;
+        stats.processed = processed.get();
+        stats.failed = failed.get();
+        stats.busyMs = busy / 1_000_000;
+        stats.producerBlockedMs = blockedNanos.get() / 1_000_000;
+        stats.utilisation = elapsed <= 0 ? 0 : Math.min(1.0, (double) busy / ((double) elapsed * workers));
+        stats.queueDepth = queue.size();
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.jmeterai.service;
+
+import com.example.jmeterai.model.EndpointComparison;
+import com.example.jmeterai.model.EndpointProfile;
+import com.example.jmeterai.model.ExecutionResult;
+import com.example.jmeterai.model.LoadLabelStat;
+import com.example.jmeterai.model.LoadTestResult;
+import com.example.jmeterai.model.ProjectResult;
+import com.example.jmeterai.model.RegressionConfig;
+import com.example.jmeterai.model.RegressionReport;
+import com.example.jmeterai.model.RunProfile;
+import com.example.jmeterai.util.LatencyRecorder;
+import com.example.jmeterai.util.RegressionStats;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compares two runs endpoint by endpoint: a Mann-Whitney test on the latency histograms and a
+ * two-proportion test on the error rates, Holm-corrected across endpoints. A change is reported as
+ * a regression only when it is both significant and larger than the configured thresholds, so a
+ * large run does not fail on a statistically real but negligible shift. Baselines are run profiles
+ * kept on disk under a name.
+ */
+@Service
+public class RegressionService {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(RegressionService.class);
+
+    @Value("${BASELINE_DIR:baselines}")
+    private String baselineDir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, RunProfile> baselines = new ConcurrentHashMap<>();
+
+    public RunProfile profile(String taskId, String kind, ProjectResult result) {
+        RunProfile p = newProfile(taskId, kind);
+        Map<String, LatencyRecorder> latency = new java.util.HashMap<>();
+        if (result != null && result.executionResults != null) {
+            for (ExecutionResult r : result.executionResults) {
+                String endpoint = r.endpoint != null ? r.endpoint : r.caseName == null ? "Unknown" : r.caseName;
+                EndpointProfile e = p.endpoints.computeIfAbsent(endpoint, k -> new EndpointProfile());
+                e.endpoint = endpoint;
+                e.count++;
+                if (!r.success) e.errors++;
+                // A call that never got an answer timed out or failed to connect: an error, not a latency
+                if (r.statusCode > 0) latency.computeIfAbsent(endpoint, k -> new LatencyRecorder()).record(r.durationMs * 1000);
+            }
+        }
+        for (EndpointProfile e : p.endpoints.values()) {
+            LatencyRecorder recorder = latency.get(e.endpoint);
+            e.histogram = recorder == null ? new long[0][] : recorder.histogram();
+        }
+        return p;
+    }
+
+    public RunProfile profile(String taskId, LoadTestResult load) {
+        RunProfile p = newProfile(taskId, "load");
+        for (LoadLabelStat s : load.byLabel.values()) {
+            EndpointProfile e = new EndpointProfile();
+            e.endpoint = s.label;
+            e.count = s.count;
+            e.errors = s.errors;
+            e.histogram = s.histogram == null ? new long[0][] : s.histogram;
+            p.endpoints.put(s.label, e);
+        }
+        return p;
+    }
+
+    private static RunProfile newProfile(String taskId, String kind) {
+        RunProfile p = new RunProfile();
+        p.sourceTaskId = taskId;
+        p.kind = kind;
+        p.createdAt = System.currentTimeMillis();
+        return p;
+    }
+
+    public RegressionReport compare(RunProfile baseline, RunProfile candidate, RegressionConfig cfg) {
+        RegressionReport report = new RegressionReport();
+        report.config = cfg;
+        report.baseline = baseline.name != null ? baseline.name : baseline.sourceTaskId;
+        report.candidate = candidate.name != null ? candidate.name : candidate.sourceTaskId;
+        report.createdAt = System.currentTimeMillis();
+
+        java.util.Set<String> names = new java.util.TreeSet<>(baseline.endpoints.keySet());
+        names.addAll(candidate.endpoints.keySet());
+        List<EndpointComparison> judged = new ArrayList<>();
+        List<long[][]> baseHistograms = new ArrayList<>();
+        List<long[][]> candHistograms = new ArrayList<>();
+        EndpointProfile baseAll = new EndpointProfile();
+        EndpointProfile candAll = new EndpointProfile();
+        for (String name : names) {
+            EndpointProfile b = baseline.endpoints.get(name);
+            EndpointProfile c = candidate.endpoints.get(name);
+            EndpointComparison ec = new EndpointComparison();
+            ec.endpoint = name;
+            report.endpoints.add(ec);
+            if (b == null || c == null) {
+                ec.status = b == null ? "NEW" : "MISSING";
+                ec.baselineCount = b == null ? 0 : b.count;
+                ec.candidateCount = c == null ? 0 : c.count;
+                continue;
+            }
+            measure(ec, b, c);
+            baseAll.count += b.count;
+            baseAll.errors += b.errors;
+            candAll.count += c.count;
+            candAll.errors += c.errors;
+            baseHistograms.add(b.histogram);
+            candHistograms.add(c.histogram);
+            if (b.count < cfg.minSamples || c.count < cfg.minSamples) {
+                ec.status = "INSUFFICIENT_DATA";
+                ec.reasons.add("样本不足（基线 " + b.count + "，本次 " + c.count + "，至少需要 " + cfg.minSamples + "）");
+            } else {
+                judged.add(ec);
+            }
+        }
+
+        double[] latencyP = new double[judged.size()];
+        double[] errorP = new double[judged.size()];
+        for (int i = 0; i < judged.size(); i++) {
+            latencyP[i] = judged.get(i).latencyPValue;
+            errorP[i] = judged.get(i).errorPValue;
+        }
+        double[] latencyAdjusted = RegressionStats.holm(latencyP);
+        double[] errorAdjusted = RegressionStats.holm(errorP);
+        for (int i = 0; i < judged.size(); i++) {
+            EndpointComparison ec = judged.get(i);
+            ec.latencyPValueAdjusted = latencyAdjusted[i];
+            ec.errorPValueAdjusted = errorAdjusted[i];
+            judge(ec, cfg);
+            if (ec.latencyRegressed || ec.errorRegressed) report.regressions++;
+        }
+
+        if (!baseHistograms.isEmpty()) {
+            baseAll.histogram = RegressionStats.merge(baseHistograms);
+            candAll.histogram = RegressionStats.merge(candHistograms);
+            EndpointComparison overall = new EndpointComparison();
+            overall.endpoint = "overall";
+            measure(overall, baseAll, candAll);
+            if (baseAll.count < cfg.minSamples || candAll.count < cfg.minSamples) {
+                overall.status = "INSUFFICIENT_DATA";
+            } else {
+                // Not part of the per-endpoint family, so tested on its own
+                overall.latencyPValueAdjusted = overall.latencyPValue;
+                overall.errorPValueAdjusted = overall.errorPValue;
+                judge(overall, cfg);
+            }
+            report.overall = overall;
+        }
+
+        boolean overallRegressed = report.overall != null && (report.overall.latencyRegressed || report.overall.errorRegressed);
+        boolean anyJudged = !judged.isEmpty() || report.overall != null && !"INSUFFICIENT_DATA".equals(report.overall.status);
+        report.verdict = report.regressions > 0 || overallRegressed ? "FAIL" : anyJudged ? "PASS" : "INCONCLUSIVE";
+        report.passed = !"FAIL".equals(report.verdict);
+        log.info("Regression check {} vs {}: {} ({} endpoint(s) compared, {} regressed)",
+                report.candidate, report.baseline, report.verdict, judged.size(), report.regressions);
+        return report;
+    }
+
+    private static void measure(EndpointComparison ec, EndpointProfile b, EndpointProfile c) {
+        ec.baselineCount = b.count;
+        ec.candidateCount = c.count;
+        ec.baselineP50 = RegressionStats.percentileMicros(b.histogram, 50) / 1000.0;
+        ec.baselineP95 = RegressionStats.percentileMicros(b.histogram, 95) / 1000.0;
+        ec.baselineP99 = RegressionStats.percentileMicros(b.histogram, 99) / 1000.0;
+        ec.candidateP50 = RegressionStats.percentileMicros(c.histogram, 50) / 1000.0;
+        ec.candidateP95 = RegressionStats.percentileMicros(c.histogram, 95) / 1000.0;
+        ec.candidateP99 = RegressionStats.percentileMicros(c.histogram, 99) / 1000.0;
+        ec.p50ChangePct = changePct(ec.baselineP50, ec.candidateP50);
+        ec.p95ChangePct = changePct(ec.baselineP95, ec.candidateP95);
+        ec.p99ChangePct = changePct(ec.baselineP99, ec.candidateP99);
+        RegressionStats.RankTest rank = RegressionStats.mannWhitney(b.histogram, c.histogram);
+        ec.probabilityOfIncrease = rank.probabilityOfIncrease;
+        ec.latencyPValue = rank.probabilityOfIncrease >= 0.5 ? rank.pIncrease : rank.pDecrease;
+        ec.baselineErrorRate = b.count == 0 ? 0 : (double) b.errors / b.count;
+        ec.candidateErrorRate = c.count == 0 ? 0 : (double) c.errors / c.count;
+        ec.errorRateDelta = ec.candidateErrorRate - ec.baselineErrorRate;
+        ec.errorPValue = RegressionStats.proportionIncrease(b.errors, b.count, c.errors, c.count);
+    }
+
+    private static void judge(EndpointComparison ec, RegressionConfig cfg) {
+        boolean shifted = ec.latencyPValueAdjusted < cfg.alpha;
+        boolean slower = ec.probabilityOfIncrease > 0.5;
+        if (shifted && slower && (ec.p50ChangePct > cfg.p50IncreasePct || ec.p95ChangePct > cfg.p95IncreasePct)) {
+            ec.latencyRegressed = true;
+            ec.reasons.add(String.format("延迟显著上升：P50 %.1fms → %.1fms (%+.1f%%)，P95 %.1fms → %.1fms (%+.1f%%)，p=%.4f",
+                    ec.baselineP50, ec.candidateP50, ec.p50ChangePct, ec.baselineP95, ec.candidateP95, ec.p95ChangePct, ec.latencyPValueAdjusted));
+        }
+        if (ec.errorPValueAdjusted < cfg.alpha && ec.errorRateDelta > cfg.errorRateIncrease) {
+            ec.errorRegressed = true;
+            ec.reasons.add(String.format("错误率显著上升：%.2f%% → %.2f%%，p=%.4f",
+                    ec.baselineErrorRate * 100, ec.candidateErrorRate * 100, ec.errorPValueAdjusted));
+        }
+        boolean faster = shifted && !slower && (ec.p50ChangePct < -cfg.p50IncreasePct || ec.p95ChangePct < -cfg.p95IncreasePct);
+        ec.status = ec.latencyRegressed || ec.errorRegressed ? "REGRESSED" : faster ? "IMPROVED" : "UNCHANGED";
+    }
+
+    private static double changePct(double before, double after) {
+        if (before == 0) return after == 0 ? 0 : 100;
+        return (after - before) / before * 100;
+    }
+
+    public RunProfile saveBaseline(String name, RunProfile profile) {
+        String key = checkName(name);
+        profile.name = key;
+        baselines.put(key, profile);
+        Path file = Path.of(baselineDir, key + ".json");
+        try {
+            Files.createDirectories(file.getParent());
+            Path tmp = Files.createTempFile(file.getParent(), key, ".tmp");
+            mapper.writeValue(tmp.toFile(), profile);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            log.warn("Failed to persist baseline {}: {}", key, e.getMessage());
+        }
+        log.info("Saved baseline {} from task {} ({} endpoint(s))", key, profile.sourceTaskId, profile.endpoints.size());
+        return profile;
+    }
+
+    public RunProfile getBaseline(String name) {
+        String key = checkName(name);
+        return baselines.computeIfAbsent(key, k -> {
+            Path file = Path.of(baselineDir, k + ".json");
+            if (!Files.isRegularFile(file)) return null;
+            try {
+                return mapper.readValue(file.toFile(), RunProfile.class);
+            } catch (Exception e) {
+                log.warn("Failed to read baseline {}: {}", k, e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    public List<String> listBaselines() {
+        java.util.Set<String> names = new java.util.TreeSet<>(baselines.keySet());
+        Path root = Path.of(baselineDir);
+        if (Files.isDirectory(root)) {
+            try (java.util.stream.Stream<Path> files = Files.list(root)) {
+                files.map(p -> p.getFileName().toString()).filter(f -> f.endsWith(".json"))
+                        .forEach(f -> names.add(f.substring(0, f.length() - 5)));
+            } catch (Exception e) {
+                log.warn("Failed to list baselines: {}", e.getMessage());
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    public boolean deleteBaseline(String name) {
+        String key = checkName(name);
+        boolean removed = baselines.remove(key) != null;
+        try {
+            removed |= Files.deleteIfExists(Path.of(baselineDir, key + ".json"));
+        } catch (Exception e) {
+            log.warn("Failed to delete baseline {}: {}", key, e.getMessage());
+        }
+        return removed;
+    }
+
+    // Names become file names
+    private static String checkName(String name) {
+        if (name == null || !name.matches("[A-Za-z0-9._-]{1,64}") || name.startsWith(".")) {
+            throw new IllegalArgumentException("基线名称只能包含字母、数字、点、下划线和连字符，且不超过 64 个字符");
+        }
+        return name;
+    }
+}
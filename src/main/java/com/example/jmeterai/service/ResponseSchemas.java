@@ -0,0 +1,475 @@
+package com.example.jmeterai.service;
+
+import com.example.jmeterai.model.ExecutionResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Response schemas declared by an OpenAPI 3 or Swagger 2 document, compiled into validators the
+ * first time an operation is looked up and then shared by every case, rerun and load iteration
+ * hitting it. A $ref is compiled once per document however many operations use it, and a
+ * recursive schema compiles to a cycle. Validating walks the parsed body against the compiled
+ * tree; nothing is looked up in the document and error paths are only rendered on failure.
+ * Supported keywords: type, nullable, enum, properties, required, additionalProperties, items,
+ * min/maxItems, min/maxLength, pattern, minimum/maximum (exclusive too), allOf, anyOf and oneOf.
+ * format is an annotation, as in JSON Schema, and not checked.
+ */
+public final class ResponseSchemas {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final int MAX_ERRORS = 5;
+
+    private static final int OBJECT = 1, ARRAY = 2, STRING = 4, NUMBER = 8, INTEGER = 16, BOOLEAN = 32, NULL = 64;
+
+    private static final Operation NONE = new Operation(Map.of());
+
+    private final com.example.jmeterai.util.SpecDocument document;
+    private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+    private final Map<String, Schema> refs = new HashMap<>(); // Guarded by this
+
+    public ResponseSchemas(com.example.jmeterai.util.SpecDocument document) {
+        this.document = document;
+    }
+
+    /** Compiled response schemas of an operation, or null when the document declares none. */
+    public Operation operation(String method, String path) {
+        if (document == null || method == null || path == null) return null;
+        String key = method.toUpperCase() + " " + path;
+        Operation op = operations.get(key);
+        if (op == null) {
+            synchronized (this) {
+                op = operations.get(key);
+                if (op == null) {
+                    op = compileOperation(method.toLowerCase(), path);
+                    operations.put(key, op);
+                }
+            }
+        }
+        return op == NONE ? null : op;
+    }
+
+    public int compiledOperations() {
+        return (int) operations.values().stream().filter(op -> op != NONE).count();
+    }
+
+    private Operation compileOperation(String method, String path) {
+        String template = template(path);
+        if (template == null) return NONE;
+        JsonNode responses = document.operation(method, template).path("responses");
+        if (!responses.isObject()) return NONE;
+        Map<String, Schema> byStatus = new LinkedHashMap<>();
+        responses.fields().forEachRemaining(e -> {
+            JsonNode response = resolve(e.getValue());
+            JsonNode schema = response.has("content") ? contentSchema(response.path("content")) : response.get("schema");
+            if (schema != null && !schema.isMissingNode()) byStatus.put(e.getKey().toUpperCase(), compile(schema));
+        });
+        return byStatus.isEmpty() ? NONE : new Operation(byStatus);
+    }
+
+    /** The path template for a case's path, which may be the template or, failing that, match one. */
+    private String template(String path) {
+        if (!document.methods(path).isEmpty()) return path;
+        String[] parts = path.split("/");
+        for (String template : document.paths()) {
+            String[] t = template.split("/");
+            if (t.length != parts.length) continue;
+            boolean match = true;
+            for (int i = 0; i < t.length && match; i++) {
+                match = t[i].equals(parts[i]) || t[i].startsWith("{") && t[i].endsWith("}");
+            }
+            if (match) return template;
+        }
+        return null;
+    }
+
+    /** OpenAPI 3 content: a JSON media type, or the wildcard that springdoc emits. */
+    private static JsonNode contentSchema(JsonNode content) {
+        JsonNode wildcard = null;
+        Iterator<Map.Entry<String, JsonNode>> it = content.fields();
+        while (it.hasNext()) {
+            Map.Entry<String, JsonNode> e = it.next();
+            JsonNode schema = e.getValue().get("schema");
+            if (schema == null) continue;
+            String type = e.getKey().toLowerCase();
+            if (type.contains("json")) return schema;
+            if (type.equals("*/*")) wildcard = schema;
+        }
+        return wildcard;
+    }
+
+    private JsonNode resolve(JsonNode node) {
+        for (int depth = 0; depth < 32 && node.has("$ref"); depth++) {
+            JsonNode target = pointer(node.get("$ref").asText());
+            if (target == null) break;
+            node = target;
+        }
+        return node;
+    }
+
+    private JsonNode pointer(String ref) {
+        return document.resolve(ref);
+    }
+
+    private Schema compile(JsonNode node) {
+        if (node.has("$ref")) {
+            String ref = node.get("$ref").asText();
+            Schema cached = refs.get(ref);
+            if (cached != null) return cached;
+            JsonNode target = pointer(ref);
+            // Refs to other documents cannot be followed; whatever they declare is accepted
+            Schema schema = new Schema();
+            refs.put(ref, schema);
+            if (target != null) fill(schema, target);
+            return schema;
+        }
+        Schema schema = new Schema();
+        fill(schema, node);
+        return schema;
+    }
+
+    private void fill(Schema s, JsonNode node) {
+        if (node.has("$ref")) {
+            // A named alias of another schema
+            Schema target = compile(node);
+            s.allOf = new Schema[]{target};
+            return;
+        }
+        JsonNode type = node.get("type");
+        if (type != null) {
+            if (type.isArray()) type.forEach(t -> s.types |= typeBit(t.asText()));
+            else s.types = typeBit(type.asText());
+        }
+        if (node.path("nullable").asBoolean(false) || node.path("x-nullable").asBoolean(false)) s.types |= s.types == 0 ? 0 : NULL;
+        JsonNode values = node.get("enum");
+        if (values != null && values.isArray() && values.size() > 0) {
+            s.enumValues = new JsonNode[values.size()];
+            for (int i = 0; i < values.size(); i++) s.enumValues[i] = values.get(i);
+            if ((s.types & NULL) != 0) s.enumNullable = true;
+        }
+        JsonNode properties = node.get("properties");
+        List<String> writeOnly = new ArrayList<>();
+        if (properties != null && properties.isObject()) {
+            s.properties = new LinkedHashMap<>();
+            properties.fields().forEachRemaining(e -> {
+                s.properties.put(e.getKey(), compile(e.getValue()));
+                if (resolve(e.getValue()).path("writeOnly").asBoolean(false)) writeOnly.add(e.getKey());
+            });
+        }
+        JsonNode required = node.get("required");
+        if (required != null && required.isArray()) {
+            List<String> names = new ArrayList<>();
+            // writeOnly properties are required in requests only
+            required.forEach(r -> { if (!writeOnly.contains(r.asText())) names.add(r.asText()); });
+            s.required = names.toArray(new String[0]);
+        }
+        JsonNode additional = node.get("additionalProperties");
+        if (additional != null) {
+            if (additional.isBoolean()) s.additionalForbidden = !additional.asBoolean();
+            else if (additional.isObject()) s.additional = compile(additional);
+        }
+        JsonNode items = node.get("items");
+        if (items != null && items.isObject()) s.items = compile(items);
+        s.minItems = node.path("minItems").asInt(-1);
+        s.maxItems = node.path("maxItems").asInt(-1);
+        s.minLength = node.path("minLength").asInt(-1);
+        s.maxLength = node.path("maxLength").asInt(-1);
+        JsonNode pattern = node.get("pattern");
+        if (pattern != null && pattern.isTextual()) {
+            try {
+                s.pattern = Pattern.compile(pattern.asText());
+            } catch (java.util.regex.PatternSyntaxException e) {
+                // An ECMA-only construct; the pattern goes unchecked
+            }
+        }
+        // OpenAPI 3.0 has boolean exclusiveMinimum/Maximum modifiers, 3.1 numeric bounds
+        JsonNode min = node.get("minimum");
+        JsonNode exMin = node.get("exclusiveMinimum");
+        if (exMin != null && exMin.isNumber()) {
+            s.minimum = exMin.asDouble();
+            s.exclusiveMinimum = true;
+        } else if (min != null && min.isNumber()) {
+            s.minimum = min.asDouble();
+            s.exclusiveMinimum = exMin != null && exMin.asBoolean(false);
+        }
+        JsonNode max = node.get("maximum");
+        JsonNode exMax = node.get("exclusiveMaximum");
+        if (exMax != null && exMax.isNumber()) {
+            s.maximum = exMax.asDouble();
+            s.exclusiveMaximum = true;
+        } else if (max != null && max.isNumber()) {
+            s.maximum = max.asDouble();
+            s.exclusiveMaximum = exMax != null && exMax.asBoolean(false);
+        }
+        s.allOf = compileAll(node.get("allOf"));
+        s.anyOf = compileAll(node.get("anyOf"));
+        s.oneOf = compileAll(node.get("oneOf"));
+    }
+
+    private Schema[] compileAll(JsonNode list) {
+        if (list == null || !list.isArray() || list.isEmpty()) return null;
+        Schema[] out = new Schema[list.size()];
+        for (int i = 0; i < out.length; i++) out[i] = compile(list.get(i));
+        return out;
+    }
+
+    private static int typeBit(String type) {
+        return switch (type) {
+            case "object" -> OBJECT;
+            case "array" -> ARRAY;
+            case "string" -> STRING;
+            case "number" -> NUMBER | INTEGER;
+            case "integer" -> INTEGER;
+            case "boolean" -> BOOLEAN;
+            case "null" -> NULL;
+            default -> 0;
+        };
+    }
+
+    private static int typeOf(JsonNode v) {
+        if (v.isObject()) return OBJECT;
+        if (v.isArray()) return ARRAY;
+        if (v.isTextual()) return STRING;
+        if (v.isIntegralNumber()) return INTEGER;
+        if (v.isNumber()) return v.decimalValue().stripTrailingZeros().scale() <= 0 ? INTEGER : NUMBER;
+        if (v.isBoolean()) return BOOLEAN;
+        if (v.isNull()) return NULL;
+        return 0;
+    }
+
+    private static String typeName(int bit) {
+        return switch (bit) {
+            case OBJECT -> "object";
+            case ARRAY -> "array";
+            case STRING -> "string";
+            case NUMBER -> "number";
+            case INTEGER -> "integer";
+            case BOOLEAN -> "boolean";
+            case NULL -> "null";
+            default -> "unknown";
+        };
+    }
+
+    private static String typeNames(int types) {
+        List<String> names = new ArrayList<>();
+        if ((types & NUMBER) != 0) types &= ~INTEGER;
+        for (int bit = OBJECT; bit <= NULL; bit <<= 1) {
+            if ((types & bit) != 0) names.add(typeName(bit));
+        }
+        return String.join("|", names);
+    }
+
+    /** Compiled response schemas of one operation, keyed by status code, range (2XX) or default. */
+    public static final class Operation {
+        private final Map<String, Schema> byStatus;
+
+        Operation(Map<String, Schema> byStatus) {
+            this.byStatus = byStatus;
+        }
+
+        Schema forStatus(int code) {
+            Schema s = byStatus.get(String.valueOf(code));
+            if (s == null) s = byStatus.get((code / 100) + "XX");
+            if (s == null) s = byStatus.get("DEFAULT");
+            return s;
+        }
+
+        /** Whether a response with this status code has a declared schema to check. */
+        public boolean declares(int code) {
+            return code > 0 && forStatus(code) != null;
+        }
+
+        /**
+         * Checks the response body against the schema declared for its status code, setting
+         * res.schemaValid and res.schemaErrors; both stay null when there is nothing to check
+         * (no schema for the status, no body, or only a truncated prefix of it). body is the
+         * already parsed tree if the caller has one, a missing node if parsing failed, or null.
+         */
+        public void check(ExecutionResult res, JsonNode body) {
+            Schema schema = res.statusCode > 0 ? forStatus(res.statusCode) : null;
+            if (schema == null || res.responseTruncated || res.responseBody == null || res.responseBody.isBlank()) return;
+            if (body == null) {
+                try {
+                    body = MAPPER.readTree(res.responseBody);
+                } catch (Exception e) {
+                    body = com.fasterxml.jackson.databind.node.MissingNode.getInstance();
+                }
+            }
+            if (body.isMissingNode()) {
+                res.schemaValid = false;
+                res.schemaErrors = List.of("响应体不是合法的 JSON");
+                return;
+            }
+            List<String> errors = new ArrayList<>(0);
+            schema.validate(body, null, errors);
+            res.schemaValid = errors.isEmpty();
+            res.schemaErrors = errors.isEmpty() ? null : errors;
+        }
+    }
+
+    /** A position in the body, rendered as $.a.b[0] only when an error is reported. */
+    private record Location(Location parent, String field, int index) {
+        @Override
+        public String toString() {
+            if (parent == null && field == null) return "$";
+            String p = parent == null ? "$" : parent.toString();
+            return field != null ? p + "." + field : p + "[" + index + "]";
+        }
+    }
+
+    private static final class Schema {
+        int types; // Bits of the allowed types, 0 for any
+        JsonNode[] enumValues;
+        boolean enumNullable;
+        Map<String, Schema> properties;
+        String[] required;
+        Schema additional;
+        boolean additionalForbidden;
+        Schema items;
+        int minItems = -1, maxItems = -1, minLength = -1, maxLength = -1;
+        Pattern pattern;
+        Double minimum, maximum;
+        boolean exclusiveMinimum, exclusiveMaximum;
+        Schema[] allOf, anyOf, oneOf;
+
+        /** With errors null, stops at the first failure and only reports whether v is valid. */
+        boolean validate(JsonNode v, Location at, List<String> errors) {
+            int actual = typeOf(v);
+            if (types != 0 && (types & actual) == 0) {
+                fail(errors, at, "期望类型 " + typeNames(types) + "，实际为 " + typeName(actual));
+                return false;
+            }
+            boolean ok = true;
+            if (enumValues != null && !(enumNullable && v.isNull()) && !inEnum(v)) {
+                if (!fail(errors, at, "值 " + v + " 不在枚举范围内")) return false;
+                ok = false;
+            }
+            if (actual == OBJECT) {
+                if (required != null) {
+                    for (String name : required) {
+                        if (!v.has(name) && !fail(errors, at, "缺少必需字段 " + name)) return false;
+                        if (!v.has(name)) ok = false;
+                    }
+                }
+                if (properties != null || additional != null || additionalForbidden) {
+                    Iterator<Map.Entry<String, JsonNode>> it = v.fields();
+                    while (it.hasNext()) {
+                        Map.Entry<String, JsonNode> e = it.next();
+                        Schema p = properties == null ? null : properties.get(e.getKey());
+                        if (p == null && additionalForbidden) {
+                            if (!fail(errors, at, "不允许的字段 " + e.getKey())) return false;
+                            ok = false;
+                            continue;
+                        }
+                        if (p == null) p = additional;
+                        if (p != null && !p.validate(e.getValue(), new Location(at, e.getKey(), -1), errors)) {
+                            if (errors == null) return false;
+                            ok = false;
+                        }
+                        if (full(errors)) return false;
+                    }
+                }
+            } else if (actual == ARRAY) {
+                if (minItems >= 0 && v.size() < minItems && !fail(errors, at, "数组元素少于 " + minItems + " 个")) return false;
+                if (maxItems >= 0 && v.size() > maxItems && !fail(errors, at, "数组元素多于 " + maxItems + " 个")) return false;
+                ok &= (minItems < 0 || v.size() >= minItems) && (maxItems < 0 || v.size() <= maxItems);
+                if (items != null) {
+                    for (int i = 0; i < v.size(); i++) {
+                        if (!items.validate(v.get(i), new Location(at, null, i), errors)) {
+                            if (errors == null) return false;
+                            ok = false;
+                        }
+                        if (full(errors)) return false;
+                    }
+                }
+            } else if (actual == STRING) {
+                if (minLength >= 0 || maxLength >= 0) {
+                    String text = v.textValue();
+                    int length = text.codePointCount(0, text.length());
+                    if (minLength >= 0 && length < minLength) {
+                        if (!fail(errors, at, "长度小于 " + minLength)) return false;
+                        ok = false;
+                    }
+                    if (maxLength >= 0 && length > maxLength) {
+                        if (!fail(errors, at, "长度大于 " + maxLength)) return false;
+                        ok = false;
+                    }
+                }
+                if (pattern != null && !pattern.matcher(v.textValue()).find()) {
+                    if (!fail(errors, at, "不匹配模式 " + pattern.pattern())) return false;
+                    ok = false;
+                }
+            } else if (actual == NUMBER || actual == INTEGER) {
+                double d = v.asDouble();
+                if (minimum != null && (exclusiveMinimum ? d <= minimum : d < minimum)) {
+                    if (!fail(errors, at, (exclusiveMinimum ? "不大于最小值 " : "小于最小值 ") + v(minimum))) return false;
+                    ok = false;
+                }
+                if (maximum != null && (exclusiveMaximum ? d >= maximum : d > maximum)) {
+                    if (!fail(errors, at, (exclusiveMaximum ? "不小于最大值 " : "大于最大值 ") + v(maximum))) return false;
+                    ok = false;
+                }
+            }
+            if (allOf != null) {
+                for (Schema s : allOf) {
+                    if (!s.validate(v, at, errors)) {
+                        if (errors == null) return false;
+                        ok = false;
+                    }
+                }
+            }
+            if (anyOf != null) {
+                boolean any = false;
+                for (Schema s : anyOf) {
+                    if (s.validate(v, at, null)) {
+                        any = true;
+                        break;
+                    }
+                }
+                if (!any && !fail(errors, at, "不满足 anyOf 中的任一结构")) return false;
+                ok &= any;
+            }
+            if (oneOf != null) {
+                int matched = 0;
+                for (Schema s : oneOf) {
+                    if (s.validate(v, at, null)) matched++;
+                }
+                if (matched != 1 && !fail(errors, at, "匹配了 oneOf 中的 " + matched + " 个结构，应恰好 1 个")) return false;
+                ok &= matched == 1;
+            }
+            return ok;
+        }
+
+        private boolean inEnum(JsonNode v) {
+            for (JsonNode e : enumValues) {
+                if (e.equals(v)) return true;
+                if (e.isNumber() && v.isNumber() && e.decimalValue().compareTo(v.decimalValue()) == 0) return true;
+            }
+            return false;
+        }
+
+        /** Records a failure; returns whether validation should go on collecting. */
+        private static boolean fail(List<String> errors, Location at, String message) {
+            if (errors == null) return false;
+            if (errors.size() < MAX_ERRORS) errors.add((at == null ? "$" : at.toString()) + ": " + message);
+            return errors.size() < MAX_ERRORS;
+        }
+
+        private static boolean full(List<String> errors) {
+            return errors != null && errors.size() >= MAX_ERRORS;
+        }
+
+        private static String v(double d) {
+            return d == Math.rint(d) && !Double.isInfinite(d) ? String.valueOf((long) d) : String.valueOf(d);
+        }
+    }
+}
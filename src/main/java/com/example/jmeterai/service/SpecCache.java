@@ -0,0 +1,449 @@
+package com.example.jmeterai.service;
+
+import com.example.jmeterai.model.SpecCacheStats;
+import com.example.jmeterai.util.OpenApiExtractor;
+import com.example.jmeterai.util.SpecSource;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of downloaded specs, keyed by URL. Each load revalidates with a conditional GET
+ * (If-None-Match / If-Modified-Since); on a 304, or a 200 whose body hashes the same, the parsed and
+ * indexed instance already in memory is reused, or else the snapshot persisted on disk is parsed
+ * instead of downloading again. Concurrent loads of one URL share a single request and instance.
+ * Bodies are streamed to disk rather than buffered; documents over SPEC_STREAMING_THRESHOLD_MB are
+ * then loaded as a {@link com.example.jmeterai.util.StreamedSpecDocument} over the snapshot file.
+ * Snapshots are named by their content and never rewritten, so such a document keeps reading the
+ * version it was loaded from; superseded versions are deleted once no loaded document reads them.
+ */
+@Service
+public class SpecCache {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(SpecCache.class);
+
+    private static final OkHttpClient HTTP = new OkHttpClient();
+    private static final java.lang.ref.Cleaner CLEANER = java.lang.ref.Cleaner.create();
+
+    @Value("${SPEC_CACHE_ENABLED:true}")
+    private boolean enabled;
+
+    @Value("${SPEC_CACHE_DIR:spec-cache}")
+    private String directory;
+
+    @Value("${SPEC_CACHE_MEMORY_ENTRIES:4}")
+    private int memoryEntries;
+
+    @Value("${SPEC_CACHE_FRESH_SECONDS:0}")
+    private long freshSeconds;
+
+    @Value("${SPEC_STREAMING_THRESHOLD_MB:16}")
+    private long streamingThresholdMb;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final OpenApiExtractor extractor = new OpenApiExtractor();
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<OpenApiExtractor.OpenApiInfo>> inFlight = new ConcurrentHashMap<>();
+    // Snapshot files read by streamed documents still reachable, with how many of them read each
+    private final Map<Path, Integer> live = new java.util.HashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong downloads = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+    private final AtomicLong fresh = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+    private final AtomicLong stale = new AtomicLong();
+    private final AtomicLong snapshotLoads = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong bytesDownloaded = new AtomicLong();
+
+    /** Validators and digest of a stored document, as kept next to it on disk. */
+    private static class Snapshot {
+        String etag;
+        String lastModified;
+        String sha256;
+        long length;
+    }
+
+    private static class Entry {
+        final OpenApiExtractor.OpenApiInfo info;
+        final Snapshot snapshot;
+        volatile long validatedAt;
+
+        Entry(OpenApiExtractor.OpenApiInfo info, Snapshot snapshot, long validatedAt) {
+            this.info = info;
+            this.snapshot = snapshot;
+            this.validatedAt = validatedAt;
+        }
+    }
+
+    public OpenApiExtractor.OpenApiInfo load(String url) throws Exception {
+        if (!enabled) return extractor.load(url, streamingThreshold());
+        requests.incrementAndGet();
+        CompletableFuture<OpenApiExtractor.OpenApiInfo> mine = new CompletableFuture<>();
+        CompletableFuture<OpenApiExtractor.OpenApiInfo> running = inFlight.putIfAbsent(url, mine);
+        if (running != null) {
+            shared.incrementAndGet();
+            return await(running);
+        }
+        try {
+            mine.complete(fetch(url, true));
+        } catch (Throwable t) {
+            mine.completeExceptionally(t);
+        } finally {
+            inFlight.remove(url, mine);
+        }
+        return await(mine);
+    }
+
+    public long invalidateAll() {
+        long count;
+        synchronized (this) {
+            count = memory.size();
+            memory.clear();
+        }
+        Path root = Path.of(directory);
+        if (Files.isDirectory(root)) {
+            try (java.util.stream.Stream<Path> files = Files.walk(root)) {
+                long deleted = files.filter(p -> p.toString().endsWith(".meta.json")).filter(p -> {
+                    try {
+                        boolean removed = Files.deleteIfExists(p);
+                        // Versions still read by loaded documents go once those are released
+                        prune(p.getFileName().toString().replace(".meta.json", ""), null);
+                        return removed;
+                    } catch (Exception e) {
+                        return false;
+                    }
+                }).count();
+                count = Math.max(count, deleted);
+            } catch (Exception e) {
+                log.warn("Failed to clear spec cache directory {}: {}", root, e.getMessage());
+            }
+        }
+        return count;
+    }
+
+    public SpecCacheStats stats() {
+        SpecCacheStats s = new SpecCacheStats();
+        s.enabled = enabled;
+        s.directory = Path.of(directory).toAbsolutePath().toString();
+        synchronized (this) {
+            s.memoryEntries = memory.size();
+        }
+        s.memoryLimitEntries = Math.max(0, memoryEntries);
+        s.requests = requests.get();
+        s.downloads = downloads.get();
+        s.notModified = notModified.get();
+        s.unchanged = unchanged.get();
+        s.fresh = fresh.get();
+        s.shared = shared.get();
+        s.stale = stale.get();
+        s.snapshotLoads = snapshotLoads.get();
+        s.evictions = evictions.get();
+        s.bytesDownloaded = bytesDownloaded.get();
+        return s;
+    }
+
+    private OpenApiExtractor.OpenApiInfo fetch(String url, boolean conditional) throws Exception {
+        String key = key(url);
+        long now = System.currentTimeMillis();
+        Entry cached;
+        synchronized (this) {
+            cached = memory.get(url);
+        }
+        if (cached != null && freshSeconds > 0 && now - cached.validatedAt < freshSeconds * 1000) {
+            fresh.incrementAndGet();
+            return cached.info;
+        }
+        Snapshot known = !conditional ? null : cached != null ? cached.snapshot : readSnapshot(key);
+
+        Request.Builder req = new Request.Builder().url(url).get();
+        if (known != null && known.etag != null) req.header("If-None-Match", known.etag);
+        if (known != null && known.lastModified != null) req.header("If-Modified-Since", known.lastModified);
+        Response resp;
+        try {
+            resp = HTTP.newCall(req.build()).execute();
+        } catch (java.io.IOException e) {
+            if (known == null) throw e;
+            log.warn("Spec download of {} failed, trying the cached copy: {}", url, e.getMessage());
+            OpenApiExtractor.OpenApiInfo info = cached != null ? cached.info : fromSnapshot(url, key, known, now);
+            if (info == null) throw e;
+            stale.incrementAndGet();
+            return info;
+        }
+        try (resp) {
+            if (resp.code() == 304 && known != null) {
+                notModified.incrementAndGet();
+                if (cached != null) {
+                    cached.validatedAt = now;
+                    return cached.info;
+                }
+                OpenApiExtractor.OpenApiInfo info = fromSnapshot(url, key, known, now);
+                if (info != null) return info;
+                log.warn("Spec snapshot of {} is missing or damaged, downloading it again", url);
+                return fetch(url, false);
+            }
+            if (resp.code() >= 500 && known != null) {
+                OpenApiExtractor.OpenApiInfo info = cached != null ? cached.info : fromSnapshot(url, key, known, now);
+                if (info != null) {
+                    log.warn("Spec server answered HTTP {}, using cached copy of {}", resp.code(), url);
+                    stale.incrementAndGet();
+                    return info;
+                }
+            }
+            if (resp.body() == null) throw new RuntimeException("接口文档下载失败: 无响应体");
+            if (!resp.isSuccessful()) {
+                throw new RuntimeException("接口文档下载失败: HTTP " + resp.code());
+            }
+            Snapshot snapshot = new Snapshot();
+            snapshot.etag = resp.header("ETag");
+            snapshot.lastModified = resp.header("Last-Modified");
+            Path tmp = tempFile(key);
+            byte[] raw = null;
+            if (tmp != null) {
+                download(resp, tmp, snapshot);
+            } else {
+                // Nowhere to keep a snapshot: hold this one in memory and skip persisting
+                raw = resp.body().bytes();
+                snapshot.sha256 = HexFormat.of().formatHex(digest().digest(raw));
+                snapshot.length = raw.length;
+            }
+            try {
+                bytesDownloaded.addAndGet(snapshot.length);
+                if (cached != null && snapshot.sha256.equals(cached.snapshot.sha256)) {
+                    // Server without validators, or a changed ETag over the same bytes: keep the parsed instance
+                    unchanged.incrementAndGet();
+                    if (tmp != null && (!java.util.Objects.equals(snapshot.etag, cached.snapshot.etag)
+                            || !java.util.Objects.equals(snapshot.lastModified, cached.snapshot.lastModified))) {
+                        writeMeta(key, url, snapshot);
+                    }
+                    remember(url, new Entry(cached.info, snapshot, now));
+                    return cached.info;
+                }
+                downloads.incrementAndGet();
+                if (raw != null) {
+                    OpenApiExtractor.OpenApiInfo info = extractor.open(SpecSource.of(raw), url, streamingThreshold());
+                    remember(url, new Entry(info, snapshot, now));
+                    return info;
+                }
+                Path file = specFile(key, snapshot.sha256);
+                // A complete file under this name already holds these bytes and may be in use: leave it
+                if (!Files.isRegularFile(file) || Files.size(file) != snapshot.length) {
+                    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+                writeMeta(key, url, snapshot);
+                prune(key, file);
+                OpenApiExtractor.OpenApiInfo info = open(file, url, null);
+                remember(url, new Entry(info, snapshot, now));
+                return info;
+            } finally {
+                if (tmp != null) Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    private Path tempFile(String key) {
+        try {
+            Path dir = metaFile(key).getParent();
+            Files.createDirectories(dir);
+            return Files.createTempFile(dir, key, ".tmp");
+        } catch (Exception e) {
+            log.warn("Spec cache directory {} is not writable, keeping the spec in memory only: {}", directory, e.getMessage());
+            return null;
+        }
+    }
+
+    /** Streams the body to the temporary file, filling in its digest and length. */
+    private void download(Response resp, Path tmp, Snapshot snapshot) throws java.io.IOException {
+        MessageDigest md = digest();
+        try (java.io.InputStream in = new java.security.DigestInputStream(resp.body().byteStream(), md)) {
+            Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+        } catch (java.io.IOException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        snapshot.sha256 = HexFormat.of().formatHex(md.digest());
+        snapshot.length = Files.size(tmp);
+    }
+
+    /**
+     * Loads a stored document: small ones are parsed whole, larger ones streamed so that only their
+     * offset index stays in memory. Null when the bytes do not hash to the expected digest.
+     */
+    private OpenApiExtractor.OpenApiInfo open(Path file, String url, String sha256) throws java.io.IOException {
+        long threshold = streamingThreshold();
+        if (Files.size(file) < threshold) {
+            byte[] raw = Files.readAllBytes(file);
+            if (sha256 != null && !HexFormat.of().formatHex(digest().digest(raw)).equals(sha256)) return null;
+            return extractor.parse(raw, url);
+        }
+        SpecSource source = SpecSource.of(file);
+        if (sha256 != null) {
+            MessageDigest md = digest();
+            try (java.io.InputStream in = new java.security.DigestInputStream(source.open(), md)) {
+                in.transferTo(java.io.OutputStream.nullOutputStream());
+            }
+            if (!HexFormat.of().formatHex(md.digest()).equals(sha256)) return null;
+        }
+        OpenApiExtractor.OpenApiInfo info = extractor.open(source, url, threshold);
+        if (!info.document.resident()) track(file, info.document);
+        return info;
+    }
+
+    private void track(Path file, Object document) {
+        synchronized (live) {
+            live.merge(file, 1, Integer::sum);
+        }
+        CLEANER.register(document, () -> release(file));
+    }
+
+    private void release(Path file) {
+        synchronized (live) {
+            if (live.merge(file, -1, (a, b) -> a + b <= 0 ? null : a + b) != null) return;
+        }
+        String name = file.getFileName().toString();
+        String key = name.substring(0, name.indexOf('.'));
+        Snapshot current = readSnapshot(key);
+        if (current == null || !specFile(key, current.sha256).equals(file)) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (Exception e) {
+                log.warn("Failed to delete superseded spec snapshot {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    /** Deletes the stored versions of a URL other than keep that no loaded document reads. */
+    private void prune(String key, Path keep) {
+        Path dir = metaFile(key).getParent();
+        if (!Files.isDirectory(dir)) return;
+        try (java.util.stream.Stream<Path> files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                String name = p.getFileName().toString();
+                if (!name.startsWith(key + ".") || !name.endsWith(".spec") || p.equals(keep)) continue;
+                synchronized (live) {
+                    if (live.containsKey(p)) continue;
+                }
+                Files.deleteIfExists(p);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to prune spec snapshots in {}: {}", dir, e.getMessage());
+        }
+    }
+
+    /** Loads the stored document, or null when it is missing or does not match its metadata. */
+    private OpenApiExtractor.OpenApiInfo fromSnapshot(String url, String key, Snapshot snapshot, long now) {
+        Path file = specFile(key, snapshot.sha256);
+        try {
+            if (!Files.isRegularFile(file) || Files.size(file) != snapshot.length) return null;
+            OpenApiExtractor.OpenApiInfo info = open(file, url, snapshot.sha256);
+            if (info == null) return null;
+            snapshotLoads.incrementAndGet();
+            remember(url, new Entry(info, snapshot, now));
+            return info;
+        } catch (Exception e) {
+            log.warn("Dropping unreadable spec snapshot of {}: {}", url, e.getMessage());
+            return null;
+        }
+    }
+
+    private Snapshot readSnapshot(String key) {
+        Path file = metaFile(key);
+        if (!Files.isRegularFile(file)) return null;
+        try {
+            JsonNode node = mapper.readTree(file.toFile());
+            Snapshot s = new Snapshot();
+            s.etag = node.hasNonNull("etag") ? node.get("etag").asText() : null;
+            s.lastModified = node.hasNonNull("lastModified") ? node.get("lastModified").asText() : null;
+            s.sha256 = node.path("sha256").asText("");
+            s.length = node.path("length").asLong(-1);
+            return s;
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable spec cache metadata {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeMeta(String key, String url, Snapshot snapshot) {
+        Path meta = metaFile(key);
+        try {
+            ObjectNode node = mapper.createObjectNode();
+            node.put("url", url);
+            node.put("etag", snapshot.etag);
+            node.put("lastModified", snapshot.lastModified);
+            node.put("sha256", snapshot.sha256);
+            node.put("length", snapshot.length);
+            node.put("fetchedAt", System.currentTimeMillis());
+            // Write then rename so a concurrent reader never sees a half-written file
+            Path tmp = Files.createTempFile(meta.getParent(), key, ".tmp");
+            mapper.writeValue(tmp.toFile(), node);
+            Files.move(tmp, meta, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            log.warn("Failed to persist spec snapshot metadata of {}: {}", url, e.getMessage());
+        }
+    }
+
+    private synchronized void remember(String url, Entry e) {
+        if (memoryEntries <= 0) return;
+        memory.put(url, e);
+        Iterator<Map.Entry<String, Entry>> it = memory.entrySet().iterator();
+        while (memory.size() > memoryEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static OpenApiExtractor.OpenApiInfo await(CompletableFuture<OpenApiExtractor.OpenApiInfo> f) throws Exception {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception ex) throw ex;
+            throw e;
+        }
+    }
+
+    private long streamingThreshold() {
+        return Math.max(0, streamingThresholdMb) * 1024 * 1024;
+    }
+
+    private static String key(String url) {
+        return HexFormat.of().formatHex(digest().digest(url.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (Exception e) {
+            throw new RuntimeException("无法计算缓存键: " + e.getMessage(), e);
+        }
+    }
+
+    private Path metaFile(String key) {
+        return Path.of(directory, key.substring(0, 2), key + ".meta.json");
+    }
+
+    private Path specFile(String key, String sha256) {
+        return Path.of(directory, key.substring(0, 2), key + "." + sha256.substring(0, Math.min(16, sha256.length())) + ".spec");
+    }
+}
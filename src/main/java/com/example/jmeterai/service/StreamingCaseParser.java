@@ -0,0 +1,183 @@
+package com.example.jmeterai.service;
+
+import com.example.jmeterai.model.QualityScenario;
+import com.example.jmeterai.model.TestCase;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Incremental counterpart of {@link TestCaseGenerator#parseLlmCases}: fed with completion
+ * fragments, it emits each test case as soon as its object closes. Understands a root array or
+ * a {@code cases} array (single-scenario responses) and scenario-keyed arrays under an endpoint's
+ * {@code cases} object (batched responses). Text before the JSON, such as a code fence, is skipped.
+ * Anything it cannot follow is left to the full parse of the final content.
+ */
+public class StreamingCaseParser {
+
+    private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(StreamingCaseParser.class);
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public interface Listener {
+        /** Method and path are null when the response did not name the endpoint before its cases. */
+        void onCase(String method, String path, QualityScenario scenario, TestCase testCase);
+    }
+
+    private static class Frame {
+        final boolean array;
+        final String key; // Field name this container is the value of, null for the root or array items
+        String field;
+        String method;
+        String path;
+
+        Frame(boolean array, String key) {
+            this.array = array;
+            this.key = key;
+        }
+    }
+
+    private final TestCaseGenerator generator;
+    private final boolean batched;
+    private final Listener listener;
+    private final JsonParser parser;
+    private final Deque<Frame> stack = new ArrayDeque<>();
+    private TokenBuffer capture;
+    private int captureDepth;
+    private QualityScenario captureScenario;
+    private String captureMethod;
+    private String capturePath;
+    private boolean started;
+    private boolean done;
+    private int emitted;
+
+    public StreamingCaseParser(TestCaseGenerator generator, boolean batched, Listener listener) {
+        this.generator = generator;
+        this.batched = batched;
+        this.listener = listener;
+        try {
+            this.parser = FACTORY.createNonBlockingByteArrayParser();
+        } catch (java.io.IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public int getEmitted() {
+        return emitted;
+    }
+
+    public void feed(String fragment) {
+        if (done || fragment == null || fragment.isEmpty()) return;
+        if (!started) {
+            int brace = fragment.indexOf('{');
+            int bracket = fragment.indexOf('[');
+            int from = brace < 0 ? bracket : (bracket < 0 ? brace : Math.min(brace, bracket));
+            if (from < 0) return;
+            fragment = fragment.substring(from);
+            started = true;
+        }
+        byte[] bytes = fragment.getBytes(StandardCharsets.UTF_8);
+        try {
+            ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).feedInput(bytes, 0, bytes.length);
+            drain();
+        } catch (Exception e) {
+            // The final full parse still covers whatever was not emitted
+            log.debug("Streaming case parse stopped: {}", e.getMessage());
+            done = true;
+        }
+    }
+
+    public void finish() {
+        done = true;
+        try {
+            parser.close();
+        } catch (java.io.IOException ignored) {
+        }
+    }
+
+    private void drain() throws java.io.IOException {
+        JsonToken token;
+        while (!done && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            if (capture != null) {
+                capture.copyCurrentEvent(parser);
+                if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) captureDepth++;
+                if (token == JsonToken.END_OBJECT || token == JsonToken.END_ARRAY) captureDepth--;
+                if (captureDepth == 0) emit();
+                continue;
+            }
+            Frame top = stack.peek();
+            switch (token) {
+                case START_OBJECT -> {
+                    QualityScenario scenario = top == null || !batched ? null : caseArrayScenario(top);
+                    if (top != null && top.array && (batched ? scenario != null : isPlainCaseArray(top))) {
+                        capture = new TokenBuffer(parser, null);
+                        capture.copyCurrentEvent(parser);
+                        captureDepth = 1;
+                        captureScenario = scenario;
+                        Frame endpoint = enclosingEndpoint();
+                        captureMethod = endpoint == null ? null : endpoint.method;
+                        capturePath = endpoint == null ? null : endpoint.path;
+                    } else {
+                        stack.push(new Frame(false, keyFor(top)));
+                    }
+                }
+                case START_ARRAY -> stack.push(new Frame(true, keyFor(top)));
+                case END_OBJECT, END_ARRAY -> {
+                    stack.pop();
+                    if (stack.isEmpty()) done = true;
+                }
+                case FIELD_NAME -> top.field = parser.currentName();
+                case VALUE_STRING -> {
+                    if (top != null && !top.array) {
+                        if ("method".equals(top.field)) top.method = parser.getText();
+                        if ("path".equals(top.field)) top.path = parser.getText();
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    private String keyFor(Frame parent) {
+        return parent == null || parent.array ? null : parent.field;
+    }
+
+    // Root array, or a "cases" array: each element is a case
+    private boolean isPlainCaseArray(Frame array) {
+        return stack.size() == 1 || ("cases".equals(array.key) && stack.size() == 2);
+    }
+
+    // An array named after a scenario, e.g. endpoints[i].cases.HAPPY_PATH
+    private QualityScenario caseArrayScenario(Frame array) {
+        if (array.key == null) return null;
+        for (QualityScenario s : QualityScenario.values()) {
+            if (s.name().equals(array.key)) return s;
+        }
+        return null;
+    }
+
+    private Frame enclosingEndpoint() {
+        for (Frame f : stack) {
+            if (!f.array && (f.method != null || f.path != null)) return f;
+        }
+        return null;
+    }
+
+    private void emit() throws java.io.IOException {
+        TokenBuffer buffer = capture;
+        capture = null;
+        try (JsonParser p = buffer.asParser(MAPPER)) {
+            TestCase tc = generator.parseSingleCase(MAPPER.readTree(p));
+            emitted++;
+            listener.onCase(captureMethod, capturePath, captureScenario, tc);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.example.jmeterai.service;
+
+import com.example.jmeterai.model.LlmProviderStats;
+import com.example.jmeterai.model.QualityScenario;
+import com.example.jmeterai.util.PromptPresets;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Offline backend for LLM_PROVIDER=stub. Recognises the pipeline's prompts and answers them
+ * deterministically: cases are synthesised from the endpoint's parameters and request body schema,
+ * decisions from the actual status code. Latency is STUB_LLM_LATENCY_MS plus up to
+ * STUB_LLM_JITTER_MS, derived from the prompt so repeated runs wait the same.
+ */
+@Service
+public class StubLlmBackend implements LlmBackend {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Pattern TARGET = Pattern.compile("Target Interface: (\\S+) (\\S+)");
+    private static final Pattern SCENARIO = Pattern.compile("## Quality Scenario\\s*\\n(\\w+)");
+    private static final Pattern BATCH_ENDPOINT = Pattern.compile("(?m)^### \\d+\\. (\\S+) (\\S+)$");
+    private static final Pattern CASE_ID = Pattern.compile("(?m)^### caseId: (\\S+)$");
+    private static final Pattern STATUS = Pattern.compile("Status Code: (-?\\d+)");
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @Value("${STUB_LLM_LATENCY_MS:0}")
+    private long latencyMs;
+
+    @Value("${STUB_LLM_JITTER_MS:0}")
+    private long jitterMs;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Override
+    public LlmCompletion call(String system, String user, Consumer<String> onDelta) {
+        calls.incrementAndGet();
+        inFlight.incrementAndGet();
+        long start = System.currentTimeMillis();
+        try {
+            String content = respond(system, user);
+            long delay = latencyMs + (jitterMs > 0 ? Math.floorMod((long) (system + user).hashCode(), jitterMs + 1) : 0);
+            LlmCompletion c = new LlmCompletion();
+            c.provider = "stub";
+            c.model = "stub";
+            c.content = content;
+            c.promptTokens = LlmRateLimiter.estimateTokens(system, user);
+            c.completionTokens = content.length() / 4 + 1;
+            if (onDelta == null) {
+                sleep(delay);
+            } else {
+                // A tenth of the latency before the first fragment, the rest spread over the content
+                sleep(delay / 10);
+                c.firstTokenMs = System.currentTimeMillis() - start;
+                int chunk = 64;
+                int chunks = Math.max(1, (content.length() + chunk - 1) / chunk);
+                long perChunk = (delay - delay / 10) / chunks;
+                for (int i = 0; i < content.length(); i += chunk) {
+                    onDelta.accept(content.substring(i, Math.min(content.length(), i + chunk)));
+                    sleep(perChunk);
+                }
+            }
+            c.latencyMs = System.currentTimeMillis() - start;
+            metricsRegistry.recordLlmCall(c.provider, true, c.latencyMs, c.promptTokens, c.completionTokens);
+            return c;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    @Override
+    public String[] cacheScope() {
+        return new String[]{"stub", "stub"};
+    }
+
+    @Override
+    public List<LlmProviderStats> stats() {
+        LlmProviderStats s = new LlmProviderStats();
+        s.name = "stub";
+        s.model = "stub";
+        s.keys = 0;
+        s.calls = calls.get();
+        s.inFlight = inFlight.get();
+        s.ewmaLatencyMs = latencyMs + jitterMs / 2.0;
+        return List.of(s);
+    }
+
+    private void sleep(long ms) {
+        if (ms <= 0) return;
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    String respond(String system, String user) {
+        try {
+            if (system.equals(PromptPresets.singleInterfaceSystemPrompt())) return singleCases(user);
+            if (system.equals(PromptPresets.batchInterfaceSystemPrompt())) return batchCases(user);
+            if (system.equals(PromptPresets.caseDecisionSystemPrompt())) return MAPPER.writeValueAsString(decision(user));
+            if (system.equals(PromptPresets.batchDecisionSystemPrompt())) return batchDecision(user);
+            if (system.equals(PromptPresets.understandingSystemPrompt())) {
+                return "（离线桩模型）接口理解摘要：提示词长度 " + user.length() + " 字符。";
+            }
+            return "（离线桩模型）测试总结：本次运行使用本地桩模型生成用例与断言，结果仅用于流水线吞吐评估。";
+        } catch (Exception e) {
+            throw new RuntimeException("Stub LLM could not answer: " + e.getMessage(), e);
+        }
+    }
+
+    private String singleCases(String user) throws Exception {
+        Matcher target = TARGET.matcher(user);
+        Matcher scenario = SCENARIO.matcher(user);
+        if (!target.find() || !scenario.find()) throw new IllegalArgumentException("unrecognised generation prompt");
+        JsonNode endpoint = readJsonAfter(user, "## OpenAPI Definition");
+        ObjectNode root = MAPPER.createObjectNode();
+        root.set("cases", cases(target.group(1), target.group(2), endpoint, QualityScenario.valueOf(scenario.group(1))));
+        return MAPPER.writeValueAsString(root);
+    }
+
+    private String batchCases(String user) throws Exception {
+        ObjectNode root = MAPPER.createObjectNode();
+        ArrayNode endpoints = root.putArray("endpoints");
+        Matcher m = BATCH_ENDPOINT.matcher(user);
+        while (m.find()) {
+            JsonNode endpoint = readJson(user, m.end());
+            ObjectNode entry = endpoints.addObject();
+            entry.put("method", m.group(1));
+            entry.put("path", m.group(2));
+            ObjectNode byScenario = entry.putObject("cases");
+            for (QualityScenario scenario : QualityScenario.values()) {
+                byScenario.set(scenario.name(), cases(m.group(1), m.group(2), endpoint, scenario));
+            }
+        }
+        return MAPPER.writeValueAsString(root);
+    }
+
+    private String batchDecision(String user) throws Exception {
+        ObjectNode root = MAPPER.createObjectNode();
+        ArrayNode verdicts = root.putArray("verdicts");
+        Matcher m = CASE_ID.matcher(user);
+        List<String> ids = new ArrayList<>();
+        List<Integer> starts = new ArrayList<>();
+        while (m.find()) {
+            ids.add(m.group(1));
+            starts.add(m.start());
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            int end = i + 1 < starts.size() ? starts.get(i + 1) : user.length();
+            ObjectNode verdict = decision(user.substring(starts.get(i), end));
+            verdict.put("caseId", ids.get(i));
+            verdicts.add(verdict);
+        }
+        return MAPPER.writeValueAsString(root);
+    }
+
+    private ObjectNode decision(String block) {
+        Matcher status = STATUS.matcher(block);
+        int code = status.find() ? Integer.parseInt(status.group(1)) : 0;
+        ObjectNode verdict = MAPPER.createObjectNode();
+        if (code <= 0 || code >= 500) {
+            verdict.put("conforms", false);
+            verdict.put("reason", "服务端错误或请求未完成");
+            verdict.put("action", "mark_abnormal");
+            verdict.put("abnormalDescription", "接口返回状态码 " + code + "，疑似服务端异常");
+            return verdict;
+        }
+        verdict.put("conforms", true);
+        verdict.put("reason", "响应状态码 " + code + " 与用例设计一致");
+        verdict.put("action", "none");
+        ObjectNode assertion = verdict.putArray("assertions").addObject();
+        assertion.put("type", "statusCode");
+        assertion.put("operator", "equals");
+        assertion.put("expected", String.valueOf(code));
+        assertion.put("successMessage", "状态码为 " + code);
+        assertion.put("failureMessage", "状态码不是 " + code);
+        return verdict;
+    }
+
+    private JsonNode readJsonAfter(String text, String marker) throws Exception {
+        int at = text.indexOf(marker);
+        if (at < 0) throw new IllegalArgumentException("missing " + marker);
+        return readJson(text, at + marker.length());
+    }
+
+    // Reads the first JSON value at or after from, ignoring whatever follows it
+    private JsonNode readJson(String text, int from) throws Exception {
+        int brace = text.indexOf('{', from);
+        if (brace < 0) return MAPPER.createObjectNode();
+        try (JsonParser p = MAPPER.getFactory().createParser(text.substring(brace))) {
+            return MAPPER.readTree(p);
+        }
+    }
+
+    private ArrayNode cases(String method, String path, JsonNode endpoint, QualityScenario scenario) {
+        JsonNode op = endpoint.path("operation");
+        JsonNode schemas = endpoint.path("components_schemas");
+        List<JsonNode> params = new ArrayList<>();
+        for (JsonNode p : op.path("parameters")) {
+            String in = p.path("in").asText("");
+            if ("path".equals(in) || "query".equals(in)) params.add(p);
+        }
+        JsonNode bodySchema = resolve(op.path("requestBody").path("content").path("application/json").path("schema"), schemas);
+        if (bodySchema.isMissingNode()) {
+            // Swagger 2 body parameter
+            for (JsonNode p : op.path("parameters")) {
+                if ("body".equals(p.path("in").asText(""))) bodySchema = resolve(p.path("schema"), schemas);
+            }
+        }
+
+        ArrayNode out = MAPPER.createArrayNode();
+        switch (scenario) {
+            case HAPPY_PATH -> {
+                out.add(testCase(method, path, params, bodySchema, schemas, "正常调用-完整参数", "返回 2xx 且业务成功", null, null, true));
+                out.add(testCase(method, path, params, bodySchema, schemas, "正常调用-仅必填参数", "返回 2xx 且业务成功", null, null, false));
+            }
+            case PARAM_INTEGRITY -> {
+                List<String> required = requiredNames(params, bodySchema);
+                for (String name : required.subList(0, Math.min(3, required.size()))) {
+                    out.add(testCase(method, path, params, bodySchema, schemas, "缺少必填参数 " + name, "返回 4xx 参数校验错误", name, null, true));
+                }
+                if (out.isEmpty()) {
+                    out.add(testCase(method, path, params, bodySchema, schemas, "参数类型错误", "返回 4xx 参数校验错误", null, "not-a-number", true));
+                }
+            }
+            case ABNORMAL_INPUT -> {
+                out.add(testCase(method, path, params, bodySchema, schemas, "超长字符串", "返回 4xx 或被正确处理，不出现 5xx", null, "x".repeat(1024), true));
+                out.add(testCase(method, path, params, bodySchema, schemas, "SQL 注入与特殊字符", "返回 4xx 或被正确处理，不出现 5xx", null, "' OR '1'='1 <script>", true));
+                out.add(testCase(method, path, params, bodySchema, schemas, "边界值", "返回 4xx 或被正确处理，不出现 5xx", null, "-1", true));
+            }
+        }
+        return out;
+    }
+
+    /**
+     * omit leaves one required parameter or body field out; override replaces every string and
+     * number value; optional fields are included only when includeOptional is set.
+     */
+    private ObjectNode testCase(String method, String path, List<JsonNode> params, JsonNode bodySchema, JsonNode schemas,
+                                String name, String goal, String omit, String override, boolean includeOptional) {
+        ObjectNode tc = MAPPER.createObjectNode();
+        tc.put("name", method + " " + path + " - " + name);
+        tc.put("method", method);
+        tc.put("path", path);
+        ObjectNode headers = tc.putObject("headers");
+        ObjectNode query = tc.putObject("queryParams");
+        ObjectNode pathParams = tc.putObject("pathParams");
+        for (JsonNode p : params) {
+            String pname = p.path("name").asText("");
+            boolean required = p.path("required").asBoolean(false) || "path".equals(p.path("in").asText(""));
+            if (pname.isEmpty() || pname.equals(omit) || (!required && !includeOptional)) continue;
+            JsonNode schema = p.has("schema") ? resolve(p.path("schema"), schemas) : p;
+            // Path parameters keep a usable value so the request still reaches the endpoint
+            String value = override != null && !"path".equals(p.path("in").asText("")) ? override : sample(schema, p.path("example")).asText();
+            ("path".equals(p.path("in").asText("")) ? pathParams : query).put(pname, value);
+        }
+        if (!bodySchema.isMissingNode()) {
+            JsonNode body = sampleObject(bodySchema, schemas, omit, override, includeOptional, 0);
+            tc.put("body", body.toString());
+            headers.put("Content-Type", "application/json");
+        } else {
+            tc.put("body", "");
+        }
+        tc.put("goal", goal);
+        return tc;
+    }
+
+    private List<String> requiredNames(List<JsonNode> params, JsonNode bodySchema) {
+        List<String> out = new ArrayList<>();
+        for (JsonNode p : params) {
+            if (p.path("required").asBoolean(false) && "query".equals(p.path("in").asText(""))) out.add(p.path("name").asText());
+        }
+        for (JsonNode r : bodySchema.path("required")) out.add(r.asText());
+        return out;
+    }
+
+    private JsonNode sampleObject(JsonNode schema, JsonNode schemas, String omit, String override, boolean includeOptional, int depth) {
+        schema = resolve(schema, schemas);
+        String type = schema.path("type").asText(schema.has("properties") ? "object" : "");
+        if ("array".equals(type)) {
+            ArrayNode arr = MAPPER.createArrayNode();
+            if (depth < 3) arr.add(sampleObject(schema.path("items"), schemas, null, override, includeOptional, depth + 1));
+            return arr;
+        }
+        if (!"object".equals(type)) {
+            return override != null ? MAPPER.getNodeFactory().textNode(override) : sample(schema, schema.path("example"));
+        }
+        ObjectNode obj = MAPPER.createObjectNode();
+        if (depth >= 3) return obj;
+        List<String> required = new ArrayList<>();
+        for (JsonNode r : schema.path("required")) required.add(r.asText());
+        java.util.Iterator<String> it = schema.path("properties").fieldNames();
+        while (it.hasNext()) {
+            String k = it.next();
+            if (depth == 0 && k.equals(omit)) continue;
+            if (!required.contains(k) && !includeOptional) continue;
+            obj.set(k, sampleObject(schema.path("properties").path(k), schemas, null, override, includeOptional, depth + 1));
+        }
+        return obj;
+    }
+
+    private JsonNode sample(JsonNode schema, JsonNode example) {
+        if (!example.isMissingNode() && !example.isNull()) return example;
+        if (schema.has("example")) return schema.get("example");
+        if (schema.has("default")) return schema.get("default");
+        if (schema.path("enum").isArray() && schema.path("enum").size() > 0) return schema.path("enum").get(0);
+        String type = schema.path("type").asText("string");
+        if ("integer".equals(type) || "number".equals(type)) return MAPPER.getNodeFactory().numberNode(Math.max(1, schema.path("minimum").asLong(1)));
+        if ("boolean".equals(type)) return MAPPER.getNodeFactory().booleanNode(true);
+        return MAPPER.getNodeFactory().textNode("sample");
+    }
+
+    private JsonNode resolve(JsonNode schema, JsonNode schemas) {
+        for (int i = 0; i < 8 && schema.has("$ref"); i++) {
+            String ref = schema.get("$ref").asText();
+            schema = schemas.path(ref.substring(ref.lastIndexOf('/') + 1));
+        }
+        return schema;
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.jmeterai.service;
 
 import com.example.jmeterai.model.ApiUnderstandingResult;
+import com.example.jmeterai.model.QualityScenario;
 import com.example.jmeterai.model.TestCase;
 import com.example.jmeterai.util.OpenApiExtractor;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -20,16 +21,13 @@ public class TestCaseGenerator {
   public List<TestCase> generate(OpenApiExtractor.OpenApiInfo info, String extra, ApiUnderstandingResult ar) {
     List<TestCase> out = new ArrayList<>();
     if (info.endpoints != null && !info.endpoints.isEmpty()) {
-      com.fasterxml.jackson.databind.JsonNode root = info.root;
-      com.fasterxml.jackson.databind.JsonNode paths = root == null ? null : root.path("paths");
       for (OpenApiExtractor.Endpoint ep : info.endpoints) {
         TestCase tc = new TestCase();
         tc.method = ep.method;
         tc.path = ep.path;
         tc.name = "用例: " + ep.method + " " + ep.path + " - 基本可用性";
-        if (paths != null && paths.isObject()) {
-          com.fasterxml.jackson.databind.JsonNode item = paths.path(ep.path);
-          com.fasterxml.jackson.databind.JsonNode op = item.path(ep.method.toLowerCase());
+        if (info.document != null) {
+          com.fasterxml.jackson.databind.JsonNode op = info.document.operation(ep.method, ep.path);
           extractParams(op, tc);
           extractBody(op, tc);
         }
@@ -181,6 +179,61 @@ public class TestCaseGenerator {
     return out;
   }
 
+  /**
+   * Demultiplexes a batched generation response into cases per endpoint and scenario.
+   * Entries are matched on method + path, falling back to position; an endpoint that is
+   * absent from the response is absent from the returned map so the caller can re-ask for it.
+   */
+  public Map<OpenApiExtractor.Endpoint, Map<QualityScenario, List<TestCase>>> parseLlmCases(String content, List<OpenApiExtractor.Endpoint> endpoints) {
+    String s = com.example.jmeterai.util.ModelUtils.stripCodeFences(content);
+    Map<OpenApiExtractor.Endpoint, Map<QualityScenario, List<TestCase>>> out = new java.util.LinkedHashMap<>();
+    try {
+      com.fasterxml.jackson.databind.ObjectMapper m = new com.fasterxml.jackson.databind.ObjectMapper();
+      com.fasterxml.jackson.databind.JsonNode root = m.readTree(s);
+      com.fasterxml.jackson.databind.JsonNode arr = root.isArray() ? root : root.path("endpoints");
+      if (!arr.isArray()) {
+        // A single-endpoint request may come back without the endpoints wrapper
+        if (endpoints.size() == 1 && root.isObject()) {
+          Map<QualityScenario, List<TestCase>> byScenario = parseScenarioCases(root.has("cases") ? root.path("cases") : root);
+          if (byScenario != null) out.put(endpoints.get(0), byScenario);
+        }
+        return out;
+      }
+      int position = 0;
+      for (com.fasterxml.jackson.databind.JsonNode entry : arr) {
+        OpenApiExtractor.Endpoint ep = matchEndpoint(entry, endpoints, position++);
+        if (ep == null || out.containsKey(ep)) continue;
+        Map<QualityScenario, List<TestCase>> byScenario = parseScenarioCases(entry.path("cases"));
+        if (byScenario != null) out.put(ep, byScenario);
+      }
+    } catch (Exception e) {
+    }
+    return out;
+  }
+
+  private OpenApiExtractor.Endpoint matchEndpoint(com.fasterxml.jackson.databind.JsonNode entry, List<OpenApiExtractor.Endpoint> endpoints, int position) {
+    String method = entry.path("method").asText("");
+    String path = entry.path("path").asText("");
+    for (OpenApiExtractor.Endpoint ep : endpoints) {
+      if (ep.method.equalsIgnoreCase(method) && ep.path.equals(path)) return ep;
+    }
+    if (method.isEmpty() && path.isEmpty() && position < endpoints.size()) return endpoints.get(position);
+    return null;
+  }
+
+  private Map<QualityScenario, List<TestCase>> parseScenarioCases(com.fasterxml.jackson.databind.JsonNode node) {
+    if (!node.isObject()) return null;
+    Map<QualityScenario, List<TestCase>> out = new java.util.EnumMap<>(QualityScenario.class);
+    for (QualityScenario scenario : QualityScenario.values()) {
+      com.fasterxml.jackson.databind.JsonNode arr = node.path(scenario.name());
+      if (!arr.isArray()) continue;
+      List<TestCase> cases = new ArrayList<>();
+      for (com.fasterxml.jackson.databind.JsonNode c : arr) cases.add(parseSingleCase(c));
+      out.put(scenario, cases);
+    }
+    return out.isEmpty() ? null : out;
+  }
+
   public TestCase parseSingleCase(com.fasterxml.jackson.databind.JsonNode c) {
     TestCase tc = new TestCase();
     tc.name = c.path("name").asText("");
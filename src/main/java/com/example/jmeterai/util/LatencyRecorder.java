@@ -0,0 +1,129 @@
+package com.example.jmeterai.util;
+
+import com.example.jmeterai.model.LatencySpectrum;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Log-linear latency histogram in the layout of HdrHistogram: microsecond values from 1 µs to one
+ * hour at two significant digits (relative error under 1%). Recording is a few atomic increments
+ * and never locks, so any number of threads can share one recorder. Buckets are allocated on
+ * first use, so memory is bounded (about 26 KB) and a recorder that saw a narrow range stays small.
+ */
+public class LatencyRecorder {
+
+    public static final double[] SPECTRUM = {50, 75, 90, 95, 99, 99.9, 99.99};
+
+    private static final int SUB_BUCKET_HALF_MAGNITUDE = 7;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_HALF_MAGNITUDE;
+    private static final long SUB_BUCKET_MASK = (SUB_BUCKET_HALF_COUNT << 1) - 1;
+    private static final int LEADING_ZERO_BASE = 64 - SUB_BUCKET_HALF_MAGNITUDE - 1;
+    private static final long HIGHEST_TRACKABLE = 3_600_000_000L;
+    private static final int CHUNKS = bucketIndex(HIGHEST_TRACKABLE) + 2;
+
+    private final AtomicReferenceArray<AtomicLongArray> chunks = new AtomicReferenceArray<>(CHUNKS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long micros) {
+        long v = Math.max(0, Math.min(micros, HIGHEST_TRACKABLE));
+        int index = countsIndex(v);
+        int c = index >>> SUB_BUCKET_HALF_MAGNITUDE;
+        AtomicLongArray chunk = chunks.get(c);
+        if (chunk == null) {
+            chunks.compareAndSet(c, null, new AtomicLongArray(SUB_BUCKET_HALF_COUNT));
+            chunk = chunks.get(c);
+        }
+        chunk.incrementAndGet(index & (SUB_BUCKET_HALF_COUNT - 1));
+        count.incrementAndGet();
+        sum.addAndGet(v);
+        min.accumulateAndGet(v, Math::min);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    public long count() {
+        return count.get();
+    }
+
+    public double meanMicros() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    public long maxMicros() {
+        return max.get();
+    }
+
+    /** Highest value at or below which p percent of the recorded values fall, within the precision. */
+    public long percentileMicros(double p) {
+        long total = count.get();
+        if (total == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(Math.min(100, p) / 100 * total));
+        long seen = 0;
+        for (int c = 0; c < CHUNKS; c++) {
+            AtomicLongArray chunk = chunks.get(c);
+            if (chunk == null) continue;
+            for (int i = 0; i < SUB_BUCKET_HALF_COUNT; i++) {
+                seen += chunk.get(i);
+                if (seen >= target) return Math.min(highestEquivalent((c << SUB_BUCKET_HALF_MAGNITUDE) + i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Non-empty buckets in ascending order as {upper bound in µs, count}. Bounds are the same for
+     * every recorder, so two exports can be merged or rank-compared bucket by bucket.
+     */
+    public long[][] histogram() {
+        java.util.List<long[]> out = new java.util.ArrayList<>();
+        for (int c = 0; c < CHUNKS; c++) {
+            AtomicLongArray chunk = chunks.get(c);
+            if (chunk == null) continue;
+            for (int i = 0; i < SUB_BUCKET_HALF_COUNT; i++) {
+                long n = chunk.get(i);
+                if (n > 0) out.add(new long[]{highestEquivalent((c << SUB_BUCKET_HALF_MAGNITUDE) + i), n});
+            }
+        }
+        return out.toArray(new long[0][]);
+    }
+
+    public LatencySpectrum spectrum() {
+        LatencySpectrum s = new LatencySpectrum();
+        s.count = count.get();
+        if (s.count == 0) return s;
+        s.min = min.get() / 1000.0;
+        s.mean = meanMicros() / 1000.0;
+        s.max = max.get() / 1000.0;
+        for (double p : SPECTRUM) {
+            String key = p == Math.rint(p) ? "p" + (long) p : "p" + p;
+            s.percentiles.put(key, percentileMicros(p) / 1000.0);
+        }
+        return s;
+    }
+
+    private static int bucketIndex(long v) {
+        return LEADING_ZERO_BASE - Long.numberOfLeadingZeros(v | SUB_BUCKET_MASK);
+    }
+
+    static int countsIndex(long v) {
+        int bucket = bucketIndex(v);
+        int subBucket = (int) (v >>> bucket);
+        return ((bucket + 1) << SUB_BUCKET_HALF_MAGNITUDE) + (subBucket - SUB_BUCKET_HALF_COUNT);
+    }
+
+    static long highestEquivalent(int index) {
+        int bucket = (index >> SUB_BUCKET_HALF_MAGNITUDE) - 1;
+        int subBucket = (index & (SUB_BUCKET_HALF_COUNT - 1)) + SUB_BUCKET_HALF_COUNT;
+        if (bucket < 0) {
+            subBucket -= SUB_BUCKET_HALF_COUNT;
+            bucket = 0;
+        }
+        long lowest = (long) subBucket << bucket;
+        return lowest + (1L << bucket) - 1;
+    }
+}
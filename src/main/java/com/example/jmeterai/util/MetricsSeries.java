@@ -0,0 +1,210 @@
+package com.example.jmeterai.util;
+
+import com.example.jmeterai.model.TimeSeries;
+import com.example.jmeterai.model.TimeSeriesLine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Rolling per-bucket aggregation of request outcomes, overall and per endpoint: count, errors
+ * (non-2xx and I/O failures), status codes and latency percentiles per bucket. Buckets live in a
+ * ring of maxBuckets slots, so a long run keeps its most recent window and memory stays bounded.
+ * Only the last few buckets keep a full latency histogram; older ones are compacted to fixed
+ * p50/p95/p99/max values, and seal() compacts the rest once the owning task is over.
+ * Recording is lock-free.
+ */
+public class MetricsSeries {
+
+    /** Buckets this far behind the latest one are compacted; completions landing later are dropped. */
+    private static final int COMPACT_LAG = 2;
+
+    private final long bucketMs;
+    private final int capacity;
+    private final long startTime;
+    private final AtomicReferenceArray<Bucket> ring;
+    private final AtomicLong latest = new AtomicLong(-1);
+    private final AtomicLong compacted = new AtomicLong(-1);
+
+    public MetricsSeries(long bucketMs, int maxBuckets) {
+        this.bucketMs = Math.max(1, bucketMs);
+        this.capacity = Math.max(1, maxBuckets);
+        this.startTime = System.currentTimeMillis() / this.bucketMs * this.bucketMs;
+        this.ring = new AtomicReferenceArray<>(capacity);
+    }
+
+    private static class Cell {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final Map<Integer, AtomicLong> codes = new ConcurrentHashMap<>();
+        final LatencyRecorder latency = new LatencyRecorder();
+
+        void record(int statusCode, long latencyMicros) {
+            count.incrementAndGet();
+            if (statusCode < 200 || statusCode >= 300) errors.incrementAndGet();
+            codes.computeIfAbsent(statusCode, c -> new AtomicLong()).incrementAndGet();
+            latency.record(latencyMicros);
+        }
+    }
+
+    /** What a cell reports: fixed once its bucket is compacted, computed on demand while it is live. */
+    private static class Summary {
+        final long count;
+        final long errors;
+        final int[] codes;
+        final long[] codeCounts;
+        final double p50;
+        final double p95;
+        final double p99;
+        final double max;
+
+        Summary(Cell c) {
+            count = c.count.get();
+            errors = c.errors.get();
+            List<Map.Entry<Integer, AtomicLong>> entries = new ArrayList<>(c.codes.entrySet());
+            codes = new int[entries.size()];
+            codeCounts = new long[entries.size()];
+            for (int i = 0; i < codes.length; i++) {
+                codes[i] = entries.get(i).getKey();
+                codeCounts[i] = entries.get(i).getValue().get();
+            }
+            p50 = c.latency.percentileMicros(50) / 1000.0;
+            p95 = c.latency.percentileMicros(95) / 1000.0;
+            p99 = c.latency.percentileMicros(99) / 1000.0;
+            max = c.latency.maxMicros() / 1000.0;
+        }
+    }
+
+    private record Live(Cell overall, Map<String, Cell> endpoints) {
+    }
+
+    private record Frozen(Summary overall, Map<String, Summary> endpoints) {
+    }
+
+    private static class Bucket {
+        final long index;
+        volatile Live live = new Live(new Cell(), new ConcurrentHashMap<>());
+        volatile Frozen frozen;
+
+        Bucket(long index) {
+            this.index = index;
+        }
+
+        Frozen view(boolean perEndpoint) {
+            Live l = live;
+            if (l == null) return frozen; // frozen is published before live is dropped
+            Map<String, Summary> eps = new java.util.HashMap<>();
+            if (perEndpoint) l.endpoints().forEach((k, c) -> eps.put(k, new Summary(c)));
+            return new Frozen(new Summary(l.overall()), eps);
+        }
+
+        /** Swaps the cells, and with them the latency recorders, for their summaries. */
+        synchronized void compact() {
+            if (live == null) return;
+            Frozen f = view(true);
+            frozen = new Frozen(f.overall(), Map.copyOf(f.endpoints()));
+            live = null;
+        }
+    }
+
+    /** Records one completed request into the bucket covering atMillis; endpoint may be null. */
+    public void record(String endpoint, long atMillis, int statusCode, long latencyMicros) {
+        long index = Math.max(0, (atMillis - startTime) / bucketMs);
+        Bucket b = bucket(index);
+        Live l = b == null ? null : b.live;
+        if (l == null) return; // Already rolled out of the window, or compacted
+        l.overall().record(statusCode, latencyMicros);
+        if (endpoint != null) l.endpoints().computeIfAbsent(endpoint, k -> new Cell()).record(statusCode, latencyMicros);
+        long last = latest.accumulateAndGet(index, Math::max);
+        long done = compacted.get();
+        long upTo = last - COMPACT_LAG;
+        if (upTo > done && compacted.compareAndSet(done, upTo)) {
+            for (long i = Math.max(done + 1, upTo - capacity + 1); i <= upTo; i++) {
+                Bucket old = ring.get((int) (i % capacity));
+                if (old != null && old.index == i) old.compact();
+            }
+        }
+    }
+
+    /** Compacts every bucket still holding recorders; called once the task owning the series is over. */
+    public void seal() {
+        for (int slot = 0; slot < capacity; slot++) {
+            Bucket b = ring.get(slot);
+            if (b != null) b.compact();
+        }
+    }
+
+    private Bucket bucket(long index) {
+        int slot = (int) (index % capacity);
+        while (true) {
+            Bucket b = ring.get(slot);
+            if (b != null && b.index == index) return b;
+            if (b != null && b.index > index) return null;
+            Bucket fresh = new Bucket(index);
+            if (ring.compareAndSet(slot, b, fresh)) return fresh;
+        }
+    }
+
+    public TimeSeries snapshot(boolean perEndpoint) {
+        TimeSeries ts = new TimeSeries();
+        ts.bucketMs = bucketMs;
+        ts.startTime = startTime;
+        long last = latest.get();
+        List<Bucket> present = new ArrayList<>();
+        for (long i = Math.max(0, last - capacity + 1); last >= 0 && i <= last; i++) {
+            Bucket b = ring.get((int) (i % capacity));
+            if (b != null && b.index == i) present.add(b);
+        }
+        if (present.isEmpty()) {
+            ts.overall = line(0);
+            return ts;
+        }
+        long first = present.get(0).index;
+        int n = (int) (last - first + 1);
+        ts.startTime = startTime + first * bucketMs;
+        ts.buckets = n;
+        ts.overall = line(n);
+        for (Bucket b : present) {
+            int i = (int) (b.index - first);
+            Frozen f = b.view(perEndpoint);
+            fill(ts.overall, i, n, f.overall());
+            if (!perEndpoint) continue;
+            for (Map.Entry<String, Summary> e : f.endpoints().entrySet()) {
+                fill(ts.endpoints.computeIfAbsent(e.getKey(), k -> line(n)), i, n, e.getValue());
+            }
+        }
+        if (perEndpoint) {
+            Map<String, TimeSeriesLine> sorted = new java.util.TreeMap<>(ts.endpoints);
+            ts.endpoints.clear();
+            ts.endpoints.putAll(sorted);
+        }
+        return ts;
+    }
+
+    private static TimeSeriesLine line(int n) {
+        TimeSeriesLine l = new TimeSeriesLine();
+        l.count = new long[n];
+        l.errors = new long[n];
+        l.p50 = new double[n];
+        l.p95 = new double[n];
+        l.p99 = new double[n];
+        l.max = new double[n];
+        return l;
+    }
+
+    private static void fill(TimeSeriesLine l, int i, int n, Summary s) {
+        l.count[i] = s.count;
+        l.errors[i] = s.errors;
+        l.p50[i] = s.p50;
+        l.p95[i] = s.p95;
+        l.p99[i] = s.p99;
+        l.max[i] = s.max;
+        for (int k = 0; k < s.codes.length; k++) {
+            l.codes.computeIfAbsent(String.valueOf(s.codes[k]), c -> new long[n])[i] = s.codeCounts[k];
+        }
+    }
+}
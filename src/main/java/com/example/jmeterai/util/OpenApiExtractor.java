@@ -6,8 +6,10 @@ import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 public class OpenApiExtractor {
@@ -26,81 +28,115 @@ public class OpenApiExtractor {
     public final String endpointsPreview;
     public final String baseUrl;
     public final List<Endpoint> endpoints;
-    public final JsonNode root;
-    public OpenApiInfo(String rawPreview, String endpointsPreview, String baseUrl, List<Endpoint> endpoints, JsonNode root) {
+    public final SpecDocument document;
+    public final OpenApiIndex index; // Built once per load, shared by all endpoint lookups
+    public OpenApiInfo(String rawPreview, String endpointsPreview, String baseUrl, List<Endpoint> endpoints, SpecDocument document) {
       this.rawPreview = rawPreview;
       this.endpointsPreview = endpointsPreview;
       this.baseUrl = baseUrl;
       this.endpoints = endpoints;
-      this.root = root;
+      this.document = document;
+      this.index = document == null ? null : new OpenApiIndex(document);
     }
   }
-  private final OkHttpClient http = new OkHttpClient();
+  private static final OkHttpClient HTTP = new OkHttpClient(); // Shared: one connection pool for all loads
+  private static final java.lang.ref.Cleaner CLEANER = java.lang.ref.Cleaner.create();
   private final ObjectMapper mapper = new ObjectMapper();
 
-  public OpenApiInfo load(String url) throws Exception {
+  /**
+   * Downloads and opens a spec without the cache. A body that may reach streamingThreshold is spooled
+   * to a temporary file, so that a streamed document reads from disk rather than pinning the whole
+   * body on the heap; the file is deleted once the document is no longer reachable.
+   */
+  public OpenApiInfo load(String url, long streamingThreshold) throws Exception {
     Request req = new Request.Builder().url(url).get().build();
-    try (Response resp = http.newCall(req).execute()) {
+    try (Response resp = HTTP.newCall(req).execute()) {
       if (resp.body() == null) throw new RuntimeException("接口文档下载失败: 无响应体");
-      String raw = resp.body() == null ? "" : resp.body().string();
-      String rawPreview = truncate(raw, 15000);
       if (!resp.isSuccessful()) {
         throw new RuntimeException("接口文档下载失败: HTTP " + resp.code());
       }
-      ParseResult pr = parse(raw, url);
-      if (pr.root == null || !pr.root.isObject()) throw new RuntimeException("接口文档不是JSON或无法解析");
-      return new OpenApiInfo(rawPreview, pr.preview, pr.baseUrl, pr.endpoints, pr.root);
+      long declared = resp.body().contentLength();
+      if (declared >= 0 && declared < streamingThreshold) return open(SpecSource.of(resp.body().bytes()), url, streamingThreshold);
+      Path tmp;
+      try {
+        tmp = Files.createTempFile("spec-", ".json");
+      } catch (java.io.IOException e) {
+        return open(SpecSource.of(resp.body().bytes()), url, streamingThreshold);
+      }
+      try {
+        try (java.io.InputStream in = resp.body().byteStream()) {
+          Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (Files.size(tmp) < streamingThreshold) return open(SpecSource.of(Files.readAllBytes(tmp)), url, streamingThreshold);
+        OpenApiInfo info = open(SpecSource.of(tmp), url, streamingThreshold);
+        Path file = tmp;
+        tmp = null;
+        CLEANER.register(info.document, () -> {
+          try {
+            Files.deleteIfExists(file);
+          } catch (java.io.IOException ignored) {
+          }
+        });
+        return info;
+      } finally {
+        if (tmp != null) Files.deleteIfExists(tmp);
+      }
     }
   }
 
-  private static class ParseResult {
-    String preview;
-    String baseUrl;
-    List<Endpoint> endpoints;
+  /** Builds the spec info from a downloaded document, parsing the bytes directly rather than through a String. */
+  public OpenApiInfo parse(byte[] raw, String url) {
     JsonNode root;
+    try {
+      root = mapper.readTree(raw);
+    } catch (Exception e) {
+      throw new RuntimeException("接口文档解析失败: " + e.getMessage(), e);
+    }
+    if (root == null || !root.isObject()) throw new RuntimeException("接口文档不是JSON或无法解析");
+    return describe(preview(raw), new TreeSpecDocument(root), url);
   }
 
-  private ParseResult parse(String raw, String swaggerUrl) {
-    ParseResult res = new ParseResult();
-    res.preview = "";
-    res.baseUrl = deriveBase(swaggerUrl);
-    res.endpoints = new ArrayList<>();
+  /**
+   * Documents of at least streamingThreshold bytes are read in one streaming pass into a
+   * {@link StreamedSpecDocument}, which keeps only offsets and re-reads entries from the source;
+   * smaller ones are parsed whole.
+   */
+  public OpenApiInfo open(SpecSource source, String url, long streamingThreshold) throws java.io.IOException {
+    if (source.length() < streamingThreshold) return parse(source.read(0, source.length()), url);
+    StreamedSpecDocument document;
     try {
-      JsonNode root = mapper.readTree(raw);
-      res.root = root;
-      // servers[0].url
-      JsonNode servers = root.path("servers");
-      if (servers.isArray() && servers.size() > 0) {
-        String s0 = servers.get(0).path("url").asText("");
-        if (!s0.isEmpty()) res.baseUrl = s0;
-      }
-      JsonNode paths = root.path("paths");
-      if (paths.isObject()) {
-        StringBuilder sb = new StringBuilder();
-        paths.fieldNames().forEachRemaining(p -> {
-          JsonNode item = paths.path(p);
-          item.fieldNames().forEachRemaining(m -> {
-            JsonNode op = item.path(m);
-            String summary = op.path("summary").asText("");
-            
-            List<String> tags = new ArrayList<>();
-            JsonNode tagsNode = op.path("tags");
-            if (tagsNode.isArray()) {
-                tagsNode.forEach(t -> tags.add(t.asText()));
-            }
+      document = new StreamedSpecDocument(source);
+    } catch (java.io.IOException e) {
+      throw new RuntimeException("接口文档解析失败: " + e.getMessage(), e);
+    }
+    return describe(preview(source.read(0, Math.min(source.length(), 60000))), document, url);
+  }
 
-            sb.append(m.toUpperCase()).append(" ").append(p);
-            if (!summary.isEmpty()) sb.append(" - ").append(summary);
-            sb.append("\n");
-            res.endpoints.add(new Endpoint(m.toUpperCase(), p, tags));
-          });
-        });
-        res.preview = sb.toString();
+  private OpenApiInfo describe(String rawPreview, SpecDocument document, String swaggerUrl) {
+    String baseUrl = deriveBase(swaggerUrl);
+    // servers[0].url
+    JsonNode servers = document.top("servers");
+    if (servers.isArray() && servers.size() > 0) {
+      String s0 = servers.get(0).path("url").asText("");
+      if (!s0.isEmpty()) baseUrl = s0;
+    }
+    List<Endpoint> endpoints = new ArrayList<>();
+    StringBuilder sb = new StringBuilder();
+    for (String p : document.paths()) {
+      for (String m : document.methods(p)) {
+        String summary = document.summary(p, m);
+        sb.append(m.toUpperCase()).append(" ").append(p);
+        if (!summary.isEmpty()) sb.append(" - ").append(summary);
+        sb.append("\n");
+        endpoints.add(new Endpoint(m.toUpperCase(), p, document.tags(p, m)));
       }
-    } catch (Exception e) {
-      throw new RuntimeException("接口文档解析失败: " + e.getMessage(), e);
     }
-    return res;
+    return new OpenApiInfo(rawPreview, sb.toString(), baseUrl, endpoints, document);
+  }
+
+  private String preview(byte[] head) {
+    // 4 bytes per char at most, so a 60000-byte prefix always holds the first 15000 chars
+    return truncate(new String(head, 0, Math.min(head.length, 60000), java.nio.charset.StandardCharsets.UTF_8), 15000);
   }
 
   private String deriveBase(String swaggerUrl) {
@@ -115,72 +151,10 @@ public class OpenApiExtractor {
     return sb.toString();
   }
 
-  public String getEndpointJson(JsonNode root, String method, String path) {
-      if (root == null) return "";
-      try {
-          JsonNode pathNode = root.path("paths").path(path);
-          if (pathNode.isMissingNode()) return "";
-          JsonNode methodNode = pathNode.path(method.toLowerCase());
-          if (methodNode.isMissingNode()) return "";
-          
-          // Collect refs
-          Set<String> refKeys = new HashSet<>();
-          collectRefs(methodNode, refKeys);
-          
-          // Resolve refs from components/schemas (OpenAPI 3) or definitions (Swagger 2)
-          Map<String, JsonNode> definitions = new HashMap<>();
-          Queue<String> toProcess = new LinkedList<>(refKeys);
-          Set<String> processed = new HashSet<>();
-          
-          while(!toProcess.isEmpty()) {
-              String ref = toProcess.poll();
-              if (processed.contains(ref)) continue;
-              processed.add(ref);
-              
-              JsonNode schemaNode = null;
-              String schemaName = null;
-              
-              if (ref.startsWith("#/components/schemas/")) {
-                  schemaName = ref.substring("#/components/schemas/".length());
-                  schemaNode = root.path("components").path("schemas").path(schemaName);
-              } else if (ref.startsWith("#/definitions/")) {
-                  schemaName = ref.substring("#/definitions/".length());
-                  schemaNode = root.path("definitions").path(schemaName);
-              }
-              
-              if (schemaNode != null && !schemaNode.isMissingNode()) {
-                  definitions.put(schemaName, schemaNode);
-                  // Find refs inside this schema
-                  Set<String> newRefs = new HashSet<>();
-                  collectRefs(schemaNode, newRefs);
-                  toProcess.addAll(newRefs);
-              }
-          }
-          
-          // Construct result
-          ObjectNode result = mapper.createObjectNode();
-          result.set("operation", methodNode);
-          if (!definitions.isEmpty()) {
-              ObjectNode defsNode = mapper.createObjectNode();
-              definitions.forEach(defsNode::set);
-              result.set("components_schemas", defsNode);
-          }
-          
-          return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(result);
-      } catch (Exception e) {
-          return "";
-      }
-  }
-
-  private void collectRefs(JsonNode node, Set<String> refs) {
-    if (node.isObject()) {
-      if (node.has("$ref")) {
-        refs.add(node.get("$ref").asText());
-      }
-      node.forEach(child -> collectRefs(child, refs));
-    } else if (node.isArray()) {
-      node.forEach(child -> collectRefs(child, refs));
-    }
+  /** The operation plus every component it references, transitively; empty if there is no such operation. */
+  public String getEndpointJson(OpenApiInfo info, String method, String path) {
+      if (info == null || info.index == null) return "";
+      return info.index.endpointJson(method, path);
   }
 
   private String truncate(String s, int max) {
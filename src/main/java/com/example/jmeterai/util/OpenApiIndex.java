@@ -0,0 +1,229 @@
+package com.example.jmeterai.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * $ref index of a loaded spec, built once when it is loaded. Every reusable component (schemas,
+ * and parameters, responses, request bodies and headers of both OpenAPI 3 and Swagger 2) is a node
+ * of a dependency graph whose edges are the $refs inside it. Cycles are collapsed into strongly
+ * connected components, so a component's transitive closure is the union of its successors'
+ * closures, computed once and memoised. For a document held in memory each component is serialised
+ * once and each operation bundle is cached; a streamed document is re-read per bundle instead, so
+ * that nothing proportional to the whole spec is retained.
+ */
+public class OpenApiIndex {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final SpecDocument document;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<SpecDocument.Component> nodes;
+    private int[][] edges;
+    private int[] component; // Strongly connected component of each node
+    private int[][] members; // Nodes of each component
+    private final Map<Integer, BitSet> closures = new ConcurrentHashMap<>(); // By component
+    private final String[] entries; // "name":{...} of each component, rendered on first use
+    private final Map<String, String> bundles = new ConcurrentHashMap<>();
+
+    public OpenApiIndex(SpecDocument document) {
+        this.document = document;
+        this.nodes = document.components();
+        for (int i = 0; i < nodes.size(); i++) ids.put(nodes.get(i).ref, i);
+        edges = new int[nodes.size()][];
+        for (int i = 0; i < nodes.size(); i++) edges[i] = refIds(document.refs(i));
+        components();
+        entries = document.resident() ? new String[nodes.size()] : null;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * The operation with every component it reaches through $refs, as compact JSON:
+     * {"operation": ..., "components_schemas": {...}, "components_parameters": {...}, ...}.
+     * Empty if the spec has no such operation.
+     */
+    public String endpointJson(String method, String path) {
+        if (!document.resident()) return bundle(method, path);
+        String key = method.toUpperCase() + " " + path;
+        String cached = bundles.get(key);
+        if (cached != null) return cached;
+        String bundle = bundle(method, path);
+        bundles.put(key, bundle);
+        return bundle;
+    }
+
+    private String bundle(String method, String path) {
+        JsonNode op = document.operation(method, path);
+        if (op.isMissingNode()) return "";
+        BitSet direct = new BitSet(nodes.size());
+        collect(op, direct);
+        BitSet reached = new BitSet(nodes.size());
+        for (int id = direct.nextSetBit(0); id >= 0; id = direct.nextSetBit(id + 1)) {
+            if (!reached.get(id)) reached.or(closure(component[id]));
+        }
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("{\"operation\":").append(write(op));
+        // Grouped by section, each in document order
+        Map<String, StringBuilder> bySection = new java.util.LinkedHashMap<>();
+        for (int id = reached.nextSetBit(0); id >= 0; id = reached.nextSetBit(id + 1)) {
+            StringBuilder section = bySection.get(nodes.get(id).section);
+            if (section == null) {
+                section = new StringBuilder();
+                bySection.put(nodes.get(id).section, section);
+            } else {
+                section.append(',');
+            }
+            section.append(entry(id));
+        }
+        bySection.forEach((section, body) -> sb.append(",\"").append(section).append("\":{").append(body).append('}'));
+        return sb.append('}').toString();
+    }
+
+    /** Ids of the indexed components among the refs, ascending. */
+    private int[] refIds(java.util.Set<String> refs) {
+        BitSet out = new BitSet(nodes.size());
+        for (String ref : refs) {
+            Integer id = ids.get(ref);
+            if (id != null) out.set(id);
+        }
+        return out.stream().toArray();
+    }
+
+    private void collect(JsonNode node, BitSet out) {
+        if (node.isObject()) {
+            JsonNode ref = node.get("$ref");
+            if (ref != null && ref.isTextual()) {
+                Integer id = ids.get(ref.asText());
+                if (id != null) out.set(id);
+            }
+            for (JsonNode child : node) collect(child, out);
+        } else if (node.isArray()) {
+            for (JsonNode child : node) collect(child, out);
+        }
+    }
+
+    /** Tarjan's algorithm, iterative so deeply nested specs cannot overflow the stack. */
+    private void components() {
+        int n = nodes.size();
+        component = new int[n];
+        java.util.Arrays.fill(component, -1);
+        int[] index = new int[n];
+        int[] low = new int[n];
+        java.util.Arrays.fill(index, -1);
+        boolean[] onStack = new boolean[n];
+        int[] stack = new int[n];
+        int sp = 0;
+        int[] callNode = new int[n];
+        int[] callEdge = new int[n];
+        int counter = 0;
+        List<int[]> found = new ArrayList<>();
+        for (int start = 0; start < n; start++) {
+            if (index[start] >= 0) continue;
+            int depth = 0;
+            callNode[0] = start;
+            callEdge[0] = 0;
+            index[start] = low[start] = counter++;
+            stack[sp++] = start;
+            onStack[start] = true;
+            while (depth >= 0) {
+                int v = callNode[depth];
+                if (callEdge[depth] < edges[v].length) {
+                    int w = edges[v][callEdge[depth]++];
+                    if (index[w] < 0) {
+                        index[w] = low[w] = counter++;
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        depth++;
+                        callNode[depth] = w;
+                        callEdge[depth] = 0;
+                    } else if (onStack[w]) {
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+                if (low[v] == index[v]) {
+                    int c = found.size();
+                    List<Integer> scc = new ArrayList<>();
+                    int w;
+                    do {
+                        w = stack[--sp];
+                        onStack[w] = false;
+                        component[w] = c;
+                        scc.add(w);
+                    } while (w != v);
+                    found.add(scc.stream().mapToInt(Integer::intValue).toArray());
+                }
+                depth--;
+                if (depth >= 0) low[callNode[depth]] = Math.min(low[callNode[depth]], low[v]);
+            }
+        }
+        members = found.toArray(new int[0][]);
+    }
+
+    /**
+     * Nodes reachable from a component, itself included. Tarjan numbers components in reverse
+     * topological order, so every successor of a component has a lower number: the missing closures
+     * below c are found with an explicit stack and then filled in ascending order, each from closures
+     * already known, without recursing along long $ref chains. Racing threads compute equal sets.
+     */
+    private BitSet closure(int c) {
+        BitSet cached = closures.get(c);
+        if (cached != null) return cached;
+        BitSet missing = new BitSet(members.length);
+        int[] stack = new int[members.length];
+        int sp = 0;
+        missing.set(c);
+        stack[sp++] = c;
+        while (sp > 0) {
+            int d = stack[--sp];
+            for (int v : members[d]) {
+                for (int w : edges[v]) {
+                    int e = component[w];
+                    if (e == d || missing.get(e) || closures.containsKey(e)) continue;
+                    missing.set(e);
+                    stack[sp++] = e;
+                }
+            }
+        }
+        BitSet set = null;
+        for (int d = missing.nextSetBit(0); d >= 0; d = missing.nextSetBit(d + 1)) {
+            set = new BitSet(nodes.size());
+            for (int v : members[d]) {
+                set.set(v);
+                for (int w : edges[v]) {
+                    if (component[w] != d) set.or(closures.get(component[w]));
+                }
+            }
+            closures.put(d, set);
+        }
+        // c is the highest: everything it reaches was numbered before it
+        return set;
+    }
+
+    private String entry(int id) {
+        String s = entries == null ? null : entries[id];
+        if (s == null) {
+            s = write(nodes.get(id).name) + ":" + write(document.component(id));
+            if (entries != null) entries[id] = s;
+        }
+        return s;
+    }
+
+    private static String write(Object value) {
+        try {
+            return MAPPER.writeValueAsString(value);
+        } catch (com.fasterxml.jackson.core.JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -7,14 +7,7 @@ import com.example.jmeterai.model.SummaryMetrics;
 import com.example.jmeterai.model.TestCase;
 
 public class PromptPresets {
-    public static String singleInterfaceSystemPrompt() {
-        return """
-# Role
-你是一位拥有10年经验的资深测试工程师，专注于API自动化测试。你擅长根据OpenAPI定义（Swagger）和特定的质量保障场景（Quality Scenario）设计高覆盖率、健壮的测试用例。
-
-# Task
-请阅读我提供的【OpenAPI定义】和指定的【质量场景】，生成一组符合该场景的测试用例 JSON。
-
+    private static final String CASE_GENERATION_RULES = """
 # Constraints & Rules
 1. **数据完整性**：必须严格遵循 OpenAPI 定义的字段类型和约束。
 2. **特殊字段处理（重点）**：
@@ -30,6 +23,17 @@ public class PromptPresets {
    - 注意：对于 `ABNORMAL_INPUT` 或 `PARAM_INTEGRITY` 场景，通常不需要有效 ID（例如测试 ID 格式错误或超长），因此**不应跳过**这些场景。
 5. **Body 格式**：`body` 字段必须是**字符串格式**（如果是 JSON Body，请将其序列化为字符串）。
 
+""";
+
+    public static String singleInterfaceSystemPrompt() {
+        return """
+# Role
+你是一位拥有10年经验的资深测试工程师，专注于API自动化测试。你擅长根据OpenAPI定义（Swagger）和特定的质量保障场景（Quality Scenario）设计高覆盖率、健壮的测试用例。
+
+# Task
+请阅读我提供的【OpenAPI定义】和指定的【质量场景】，生成一组符合该场景的测试用例 JSON。
+
+""" + CASE_GENERATION_RULES + """
 # Output Format
 仅输出纯 JSON 内容，不要包含 Markdown 代码块标记（如 ```json），也不要包含任何解释性文字。
 JSON 结构必须严格符合以下 Schema：
@@ -76,12 +80,89 @@ Target Interface: %s %s
 """.formatted(programName, method, path, endpointJson, specSection, scenario.name(), scenario.getDescription());
     }
 
+    public static String batchInterfaceSystemPrompt() {
+        return """
+# Role
+你是一位拥有10年经验的资深测试工程师，专注于API自动化测试。你擅长根据OpenAPI定义（Swagger）和特定的质量保障场景（Quality Scenario）设计高覆盖率、健壮的测试用例。
+
+# Task
+请阅读我提供的一个或多个接口的【OpenAPI定义】，一次性为每个接口分别生成以下全部质量场景的测试用例 JSON：
+- HAPPY_PATH (基本功能)：正常调用的用例。
+- PARAM_INTEGRITY (参数完整性)：缺少必填参数、参数为空、参数类型错误等用例。
+- ABNORMAL_INPUT (异常输入)：超长字符串、特殊字符、SQL注入尝试、边界值等用例。
+
+""" + CASE_GENERATION_RULES + """
+# Output Format
+仅输出纯 JSON 内容，不要包含 Markdown 代码块标记（如 ```json），也不要包含任何解释性文字。
+每个接口输出一项，`method` 与 `path` 必须与输入的接口完全一致；每个场景即使没有用例也要输出空数组 `[]`。
+JSON 结构必须严格符合以下 Schema：
+
+{
+  "endpoints": [
+    {
+      "method": "GET/POST/PUT/DELETE等",
+      "path": "接口路径（与输入一致）",
+      "cases": {
+        "HAPPY_PATH": [
+          {
+            "name": "用例名称（简述测试目的）",
+            "method": "GET/POST/PUT/DELETE等",
+            "path": "请求路径（如 /api/v1/user）",
+            "headers": { "Key": "Value" },
+            "queryParams": { "Key": "Value" },
+            "pathParams": { "Key": "Value" },
+            "body": "请求体内容的字符串形式（如 '{\"name\":\"test\"}'）",
+            "goal": "该用例的预期结果或断言目标"
+          }
+        ],
+        "PARAM_INTEGRITY": [],
+        "ABNORMAL_INPUT": []
+      }
+    }
+  ]
+}
+""";
+    }
+
+    public static String batchInterfaceUserPrompt(String programName, java.util.List<OpenApiExtractor.Endpoint> endpoints, java.util.List<String> endpointJsons, String markdownSpec) {
+        String spec = markdownSpec == null ? "" : truncateMarkdown(markdownSpec, 4000);
+        String specSection = spec.isEmpty() ? "" : """
+
+接口规范文档(节选):
+%s
+""".formatted(spec);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < endpoints.size(); i++) {
+            OpenApiExtractor.Endpoint ep = endpoints.get(i);
+            sb.append("### ").append(i + 1).append(". ").append(ep.method).append(" ").append(ep.path).append("\n");
+            sb.append(endpointJsons.get(i)).append("\n\n");
+        }
+        return """
+# Context Data
+## Program Info
+Name: %s
+Target Interfaces: %d
+
+## OpenAPI Definitions
+%s%s
+
+## Quality Scenarios
+HAPPY_PATH (%s), PARAM_INTEGRITY (%s), ABNORMAL_INPUT (%s)
+
+请为上述每个接口分别生成全部三个场景的测试用例，按输出格式中的 endpoints 结构返回。
+""".formatted(programName, endpoints.size(), sb.toString(), specSection,
+            QualityScenario.HAPPY_PATH.getDescription(),
+            QualityScenario.PARAM_INTEGRITY.getDescription(),
+            QualityScenario.ABNORMAL_INPUT.getDescription());
+    }
+
     public static String assertionGenerationSystemPrompt() {
         return """
 你是测试断言生成专家。根据请求和实际响应结果，生成一组自动化断言。
 断言类型(type)仅支持: "statusCode", "bodyContains", "jsonPath", "responseTime".
 操作符(operator)仅支持: "equals", "contains", "notContains", "greaterThan", "lessThan".
 输出 JSON 数组，每个元素包含: type, expression(仅jsonPath需要), operator, expected, successMessage, failureMessage.
+expression 为 JSONPath，可使用 `[*]` 通配、`[?(@.id > 0)]` 过滤和 `..` 递归；匹配到多个值时任一满足即通过，notContains 要求全部满足。
 
 重要规则：
 1. **严格遵守类型枚举**：`type` 字段的值必须严格为 "statusCode", "bodyContains", "jsonPath", "responseTime" 之一。严禁使用 "status", "body", "code" 等非标准值。
@@ -140,7 +221,7 @@ Response Body: %s
 3. **特别注意**：很多系统在业务异常时仍返回 HTTP 200，但会在 Body 中包含错误码（如 "code": "6002"）或错误信息（如 "msg": "..."）。
    - 如果用例预期成功，请务必增加对 Body 中业务成功标识（如 code=200/0/success）的断言，防止假阳性通过。
    - 如果用例预期失败（负面测试），请增加对 Body 中特定错误码或错误信息的断言。
-""".formatted(endpointJson, tc.name, tc.goal, tc.method, result.url, tc.body, result.statusCode, result.responseBody);
+""".formatted(endpointJson, tc.name, tc.goal, tc.method, result.url, tc.body, result.statusCode, responseBodyText(result));
     }
 
   public static String caseDecisionSystemPrompt() {
@@ -196,11 +277,79 @@ Response Body: %s
       tc.pathParams == null ? "{}" : new com.fasterxml.jackson.databind.ObjectMapper().valueToTree(tc.pathParams).toString(),
       tc.body == null ? "" : tc.body,
       result.statusCode,
-      result.responseBody == null ? "" : result.responseBody,
+      responseBodyText(result),
       result.durationMs
     );
   }
 
+  public static String batchDecisionSystemPrompt() {
+    return """
+你是接口测试裁判与断言生成器。基于接口定义、同一接口同一质量场景下的多个测试用例及其实际响应，逐个判断每个响应是否符合该用例设计；若符合，直接生成断言；若不符合，则在“调整用例”与“标记接口异常”两者中选择更合理的一项并输出结构化决定。
+仅输出一个 JSON 对象（不包含代码块），结构为 {"verdicts": [ ... ]}，每个输入用例对应一项，且必须原样带回该用例的 caseId。
+每项字段：
+- caseId: string，与输入一致
+- conforms: true/false
+- reason: string
+- action: "none" | "adjust_case" | "mark_abnormal"
+- assertions: 当 conforms=true 且 action="none" 时的断言数组，每项包含 type, expression(可选), operator, expected, successMessage, failureMessage
+- adjustedCase: 当 action="adjust_case" 时提供单个用例对象，包含 name, method, path, headers(对象), queryParams(对象), pathParams(对象), body(字符串), goal(字符串)
+- abnormalDescription: 当 action="mark_abnormal" 时给出中文描述，说明不符合预期的原因
+
+断言生成规则与前述一致：即使 HTTP 200 也需校验业务码/成功标识；负面用例要针对错误码/错误信息生成断言；避免对动态字段做严格相等。
+""";
+  }
+
+  public static String batchDecisionUserPrompt(java.util.Map<String, TestCase> cases, java.util.Map<String, ExecutionResult> results, String endpointJson) {
+    com.fasterxml.jackson.databind.ObjectMapper om = new com.fasterxml.jackson.databind.ObjectMapper();
+    StringBuilder sb = new StringBuilder();
+    for (java.util.Map.Entry<String, TestCase> e : cases.entrySet()) {
+      TestCase tc = e.getValue();
+      ExecutionResult result = results.get(e.getKey());
+      sb.append("""
+### caseId: %s
+名称: %s
+目标: %s
+Method: %s
+Path: %s
+Headers: %s
+QueryParams: %s
+PathParams: %s
+Request Body: %s
+实际执行结果:
+Status Code: %d
+Response Body: %s
+耗时(ms): %d
+
+""".formatted(
+          e.getKey(),
+          tc.name,
+          tc.goal,
+          tc.method,
+          tc.path,
+          tc.headers == null ? "{}" : om.valueToTree(tc.headers).toString(),
+          tc.queryParams == null ? "{}" : om.valueToTree(tc.queryParams).toString(),
+          tc.pathParams == null ? "{}" : om.valueToTree(tc.pathParams).toString(),
+          tc.body == null ? "" : tc.body,
+          result.statusCode,
+          responseBodyText(result),
+          result.durationMs
+      ));
+    }
+    return """
+接口定义:
+%s
+
+测试用例与实际执行结果（共 %d 个）:
+%s
+请对每个用例分别判断其响应是否符合设计目标（conforms）。如果符合，直接输出断言数组（assertions），并将 action 设为 "none"。
+如果不符合，请在两种策略中选择其一：
+1) 调整用例（adjust_case）：给出 adjustedCase（完整用例对象）与 reason，说明如何调整以更符合接口实际行为。
+2) 标记接口异常（mark_abnormal）：给出 abnormalDescription（中文原因），说明该接口可能返回异常或文档/实现不一致。
+
+输出 {"verdicts": [...]}，每个 caseId 恰好一项。
+""".formatted(endpointJson, cases.size(), sb.toString());
+  }
+
   public static String understandingSystemPrompt() {
     return """
 你是资深接口分析师。基于提供的 OpenAPI/Swagger 内容，输出可用于生成测试用例的中文理解摘要。
@@ -240,6 +389,12 @@ Swagger原始内容(截断):
     return s.substring(0, max);
   }
 
+  private static String responseBodyText(ExecutionResult result) {
+    String body = result.responseBody == null ? "" : result.responseBody;
+    if (!result.responseTruncated) return body;
+    return body + "\n...(响应体已截断，以上为前 " + body.length() + " 个字符，完整长度 " + result.responseBytes + " 字节)";
+  }
+
   public static String analysisPrompt(String programName, String extra, SummaryMetrics m) {
     String header = """
 程序名称: %s
@@ -288,6 +443,13 @@ P99(ms): %s
         sb.append("\n");
       }
     }
+    if (!m.phases.isEmpty()) {
+      sb.append("\n分阶段耗时(ms，平均/P95/P99)，连接复用率 ").append(String.format("%.0f%%", m.connectionReuseRate * 100)).append(":\n");
+      for (com.example.jmeterai.model.PhaseStat ps : m.phases.values()) {
+        sb.append("- ").append(ps.phase).append(": ").append(String.format("%.2f/%.2f/%.2f", ps.avg, ps.p95, ps.p99))
+            .append(" (样本 ").append(ps.count).append(")\n");
+      }
+    }
     sb.append("""
 
 请基于以上失败与成功结果，结合测试用例文档中的请求参数与测试目标，进行中文分析：
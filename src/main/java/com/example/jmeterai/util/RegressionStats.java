@@ -0,0 +1,133 @@
+package com.example.jmeterai.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Significance tests over the sparse histograms exported by {@link LatencyRecorder#histogram()}.
+ * Values in one bucket count as ties, which at two significant digits costs the rank test very
+ * little power and lets it run over any number of samples in time linear in the bucket count.
+ */
+public final class RegressionStats {
+
+    private RegressionStats() {}
+
+    public static class RankTest {
+        public double probabilityOfIncrease; // P(candidate > baseline) + P(tie)/2
+        public double pIncrease; // One-sided p-value for "candidate is slower"
+        public double pDecrease; // One-sided p-value for "candidate is faster"
+    }
+
+    /**
+     * Mann-Whitney U test of the candidate against the baseline, with midranks for ties, the tie
+     * correction to the variance and a continuity correction on the normal approximation.
+     */
+    public static RankTest mannWhitney(long[][] baseline, long[][] candidate) {
+        RankTest t = new RankTest();
+        long na = count(baseline);
+        long nb = count(candidate);
+        t.probabilityOfIncrease = 0.5;
+        t.pIncrease = 1;
+        t.pDecrease = 1;
+        if (na == 0 || nb == 0) return t;
+
+        double n = na + nb;
+        double rankSum = 0; // Of the candidate
+        double ties = 0;
+        long below = 0;
+        int i = 0, j = 0;
+        while (i < baseline.length || j < candidate.length) {
+            long value = Math.min(i < baseline.length ? baseline[i][0] : Long.MAX_VALUE, j < candidate.length ? candidate[j][0] : Long.MAX_VALUE);
+            long ca = i < baseline.length && baseline[i][0] == value ? baseline[i++][1] : 0;
+            long cb = j < candidate.length && candidate[j][0] == value ? candidate[j++][1] : 0;
+            double tied = ca + cb;
+            rankSum += cb * (below + (tied + 1) / 2);
+            ties += tied * tied * tied - tied;
+            below += ca + cb;
+        }
+        double u = rankSum - nb * (nb + 1) / 2.0;
+        double mean = na * (double) nb / 2;
+        double variance = na * (double) nb / 12 * ((n + 1) - ties / (n * (n - 1)));
+        t.probabilityOfIncrease = u / (na * (double) nb);
+        if (variance <= 0) return t; // Every value in one bucket
+        double sd = Math.sqrt(variance);
+        t.pIncrease = 1 - normalCdf((u - mean - 0.5) / sd);
+        t.pDecrease = normalCdf((u - mean + 0.5) / sd);
+        return t;
+    }
+
+    /** One-sided two-proportion z-test (pooled) for the candidate's rate being higher. */
+    public static double proportionIncrease(long baselineHits, long baselineTotal, long candidateHits, long candidateTotal) {
+        if (baselineTotal == 0 || candidateTotal == 0) return 1;
+        double p1 = (double) baselineHits / baselineTotal;
+        double p2 = (double) candidateHits / candidateTotal;
+        double pooled = (double) (baselineHits + candidateHits) / (baselineTotal + candidateTotal);
+        double se = Math.sqrt(pooled * (1 - pooled) * (1.0 / baselineTotal + 1.0 / candidateTotal));
+        if (se == 0) return 1;
+        return 1 - normalCdf((p2 - p1) / se);
+    }
+
+    /**
+     * Holm-Bonferroni adjustment, so that testing many endpoints at once keeps the chance of any
+     * false alarm at alpha. NaN entries are not part of the family and stay NaN.
+     */
+    public static double[] holm(double[] p) {
+        Integer[] order = new Integer[p.length];
+        int m = 0;
+        for (int i = 0; i < p.length; i++) if (!Double.isNaN(p[i])) order[m++] = i;
+        Integer[] tested = Arrays.copyOf(order, m);
+        Arrays.sort(tested, (x, y) -> Double.compare(p[x], p[y]));
+        double[] out = new double[p.length];
+        Arrays.fill(out, Double.NaN);
+        double running = 0;
+        for (int k = 0; k < m; k++) {
+            running = Math.max(running, Math.min(1, (m - k) * p[tested[k]]));
+            out[tested[k]] = running;
+        }
+        return out;
+    }
+
+    public static long count(long[][] histogram) {
+        long n = 0;
+        for (long[] b : histogram) n += b[1];
+        return n;
+    }
+
+    /** Same definition as {@link LatencyRecorder#percentileMicros}, on an exported histogram. */
+    public static long percentileMicros(long[][] histogram, double p) {
+        long total = count(histogram);
+        if (total == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(Math.min(100, p) / 100 * total));
+        long seen = 0;
+        for (long[] b : histogram) {
+            seen += b[1];
+            if (seen >= target) return b[0];
+        }
+        return histogram[histogram.length - 1][0];
+    }
+
+    public static long[][] merge(List<long[][]> histograms) {
+        java.util.TreeMap<Long, Long> sum = new java.util.TreeMap<>();
+        for (long[][] h : histograms) {
+            for (long[] b : h) sum.merge(b[0], b[1], Long::sum);
+        }
+        List<long[]> out = new ArrayList<>(sum.size());
+        sum.forEach((bound, n) -> out.add(new long[]{bound, n}));
+        return out.toArray(new long[0][]);
+    }
+
+    public static double normalCdf(double z) {
+        return 0.5 * erfc(-z / Math.sqrt(2));
+    }
+
+    // Chebyshev fit from Numerical Recipes, fractional error below 1.2e-7 everywhere
+    private static double erfc(double x) {
+        double z = Math.abs(x);
+        double t = 1 / (1 + 0.5 * z);
+        double r = t * Math.exp(-z * z - 1.26551223 + t * (1.00002368 + t * (0.37409196 + t * (0.09678418
+                + t * (-0.18628806 + t * (0.27886807 + t * (-1.13520398 + t * (1.48851587
+                + t * (-0.82215223 + t * 0.17087277)))))))));
+        return x >= 0 ? r : 2 - r;
+    }
+}
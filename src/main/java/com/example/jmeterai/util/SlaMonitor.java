@@ -0,0 +1,251 @@
+package com.example.jmeterai.util;
+
+import com.example.jmeterai.model.SlaGateResult;
+import com.example.jmeterai.model.SlaReport;
+import com.example.jmeterai.model.SlaRule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Evaluates SLA gates on the requests of a running task. Requests are recorded lock-free into a
+ * per-gate histogram (cumulative gates) or a ring of one-second histograms (windowed gates); gates
+ * are evaluated at most once per second from whichever thread records or polls. A gate that keeps
+ * failing for its abortAfterSeconds trips {@link #aborted()}, which the run checks before starting
+ * further work. Errors are responses of 5xx and requests that got no response: 4xx answers are
+ * what the negative scenarios expect, and count against the client rather than the service.
+ */
+public class SlaMonitor {
+
+    public static final Set<String> METRICS = Set.of("p50", "p90", "p95", "p99", "max", "avg", "errorRate", "rps");
+
+    private static final long EVALUATION_INTERVAL_MS = 1000;
+
+    private final List<SlaRule> rules;
+    private final List<Gate> gates = new ArrayList<>();
+    private final long startMillis = System.currentTimeMillis();
+    private final AtomicLong nextEvaluation = new AtomicLong();
+    private volatile boolean aborted;
+    private volatile SlaReport report;
+
+    public SlaMonitor(List<SlaRule> rules) {
+        validate(rules);
+        this.rules = List.copyOf(rules);
+        for (SlaRule rule : rules) gates.add(new Gate(rule));
+        report = new SlaReport();
+        report.status = "PENDING";
+    }
+
+    public static void validate(List<SlaRule> rules) {
+        if (rules == null) return;
+        for (SlaRule rule : rules) {
+            if (rule == null || rule.metric == null || !METRICS.contains(rule.metric)) {
+                throw new IllegalArgumentException("不支持的 SLA 指标: " + (rule == null ? null : rule.metric) + "，可选值: " + new java.util.TreeSet<>(METRICS));
+            }
+            if (rule.windowSeconds < 0 || rule.windowSeconds > 3600) {
+                throw new IllegalArgumentException("SLA 窗口须在 0 到 3600 秒之间: " + describe(rule));
+            }
+        }
+    }
+
+    public List<SlaRule> rules() {
+        return rules;
+    }
+
+    public boolean aborted() {
+        return aborted;
+    }
+
+    /** Latest evaluation; replaced, never mutated, so it can be served while the run goes on. */
+    public SlaReport report() {
+        return report;
+    }
+
+    public void record(String endpoint, List<String> tags, long atMillis, int statusCode, long latencyMicros) {
+        boolean error = statusCode <= 0 || statusCode >= 500;
+        for (Gate g : gates) {
+            if (g.matches(endpoint, tags)) g.cell(atMillis).record(error, latencyMicros);
+        }
+        evaluate(atMillis);
+    }
+
+    /** Evaluates if the last evaluation is at least a second old. */
+    public void evaluate(long nowMillis) {
+        long due = nextEvaluation.get();
+        if (nowMillis < due || !nextEvaluation.compareAndSet(due, nowMillis + EVALUATION_INTERVAL_MS)) return;
+        synchronized (this) {
+            report = evaluate(nowMillis, false);
+        }
+    }
+
+    /** Final evaluation once the run is over; windowed gates that failed at any point stay failed. */
+    public synchronized SlaReport finish() {
+        report = evaluate(System.currentTimeMillis(), true);
+        return report;
+    }
+
+    private SlaReport evaluate(long now, boolean last) {
+        SlaReport r = new SlaReport();
+        r.evaluatedAt = now;
+        boolean pending = false;
+        for (Gate g : gates) {
+            SlaGateResult res = g.evaluate(now, last);
+            r.gates.add(res);
+            if ("FAIL".equals(res.status)) r.failedGates.add(res.gate);
+            if ("PENDING".equals(res.status)) pending = true;
+            if (!aborted && !last && g.shouldAbort(now)) {
+                aborted = true;
+                r.abortReason = "SLA 门限持续未达标: " + res.gate + "（当前值 " + format(res.value) + "）";
+            }
+        }
+        SlaReport previous = report;
+        if (r.abortReason == null && previous != null) r.abortReason = previous.abortReason;
+        r.aborted = aborted;
+        r.status = !r.failedGates.isEmpty() ? "FAIL" : pending && !last ? "PENDING" : "PASS";
+        return r;
+    }
+
+    static String describe(SlaRule rule) {
+        if (rule.name != null && !rule.name.isEmpty()) return rule.name;
+        String scope = rule.endpoint != null && !rule.endpoint.isEmpty() ? rule.endpoint
+                : rule.tag != null && !rule.tag.isEmpty() ? "tag:" + rule.tag : "all";
+        String window = rule.windowSeconds > 0 ? " (" + rule.windowSeconds + "s)" : "";
+        return scope + " " + rule.metric + ("rps".equals(rule.metric) ? " >= " : " < ") + format(rule.threshold) + window;
+    }
+
+    private static String format(double v) {
+        return java.math.BigDecimal.valueOf(v).round(new java.math.MathContext(4)).stripTrailingZeros().toPlainString();
+    }
+
+    private static class Cell {
+        final long second;
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong errors = new AtomicLong();
+        final LatencyRecorder latency = new LatencyRecorder();
+
+        Cell(long second) {
+            this.second = second;
+        }
+
+        void record(boolean error, long latencyMicros) {
+            count.incrementAndGet();
+            if (error) errors.incrementAndGet();
+            latency.record(latencyMicros);
+        }
+    }
+
+    private class Gate {
+        final SlaRule rule;
+        final String name;
+        final Cell total = new Cell(0);
+        final AtomicReferenceArray<Cell> ring; // Windowed gates only, one slot per second
+        long violations;
+        long failingSince = -1;
+        long firstViolationAt;
+
+        Gate(SlaRule rule) {
+            this.rule = rule;
+            this.name = describe(rule);
+            this.ring = rule.windowSeconds > 0 ? new AtomicReferenceArray<>(rule.windowSeconds) : null;
+        }
+
+        boolean matches(String endpoint, List<String> tags) {
+            if (rule.endpoint != null && !rule.endpoint.isEmpty()) return rule.endpoint.equals(endpoint);
+            if (rule.tag != null && !rule.tag.isEmpty()) return tags != null && tags.contains(rule.tag);
+            return true;
+        }
+
+        Cell cell(long atMillis) {
+            if (ring == null) return total;
+            long second = atMillis / 1000;
+            int slot = (int) (second % ring.length());
+            while (true) {
+                Cell c = ring.get(slot);
+                if (c != null && c.second == second) return c;
+                // A late record for a second that already rolled out still lands somewhere harmless
+                if (c != null && c.second > second) return c;
+                if (ring.compareAndSet(slot, c, new Cell(second))) return ring.get(slot);
+            }
+        }
+
+        SlaGateResult evaluate(long now, boolean last) {
+            SlaGateResult res = new SlaGateResult();
+            res.gate = name;
+            res.rule = rule;
+            long elapsedMs = now - startMillis;
+            long count;
+            long errors;
+            long[][] histogram;
+            double sumMicros;
+            double seconds;
+            if (ring == null) {
+                count = total.count.get();
+                errors = total.errors.get();
+                histogram = null;
+                sumMicros = total.latency.meanMicros() * total.latency.count();
+                seconds = elapsedMs / 1000.0;
+            } else {
+                long current = now / 1000;
+                count = 0;
+                errors = 0;
+                sumMicros = 0;
+                List<long[][]> parts = new ArrayList<>();
+                for (int i = 0; i < ring.length(); i++) {
+                    Cell c = ring.get(i);
+                    if (c == null || c.second <= current - rule.windowSeconds || c.second > current) continue;
+                    count += c.count.get();
+                    errors += c.errors.get();
+                    sumMicros += c.latency.meanMicros() * c.latency.count();
+                    parts.add(c.latency.histogram());
+                }
+                histogram = RegressionStats.merge(parts);
+                seconds = Math.min(rule.windowSeconds, elapsedMs / 1000.0);
+            }
+            res.samples = count;
+
+            boolean rps = "rps".equals(rule.metric);
+            if (elapsedMs < rule.delaySeconds * 1000L || (rps ? seconds < 1 : count < Math.max(1, rule.minSamples))) {
+                res.status = "PENDING";
+                if (last && violations > 0 && ring != null) res.status = "FAIL";
+                fill(res);
+                return res;
+            }
+            res.value = switch (rule.metric) {
+                case "rps" -> count / seconds;
+                case "errorRate" -> (double) errors / count;
+                case "avg" -> sumMicros / count / 1000.0;
+                case "max" -> (histogram == null ? total.latency.maxMicros() : histogram[histogram.length - 1][0]) / 1000.0;
+                default -> {
+                    double p = Double.parseDouble(rule.metric.substring(1));
+                    yield (histogram == null ? total.latency.percentileMicros(p) : RegressionStats.percentileMicros(histogram, p)) / 1000.0;
+                }
+            };
+            boolean pass = rps ? res.value >= rule.threshold : res.value < rule.threshold;
+            if (!last) {
+                if (pass) {
+                    failingSince = -1;
+                } else {
+                    violations++;
+                    if (failingSince < 0) failingSince = now;
+                    if (firstViolationAt == 0) firstViolationAt = now;
+                }
+            }
+            // A windowed gate describes the run at every point, not just at its end
+            res.status = pass && !(last && ring != null && violations > 0) ? "PASS" : "FAIL";
+            fill(res);
+            return res;
+        }
+
+        private void fill(SlaGateResult res) {
+            res.violations = violations;
+            res.firstViolationAt = firstViolationAt;
+        }
+
+        boolean shouldAbort(long now) {
+            return rule.abortOnFail && failingSince >= 0 && now - failingSince >= rule.abortAfterSeconds * 1000L;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.jmeterai.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Read access to a loaded spec: either the whole parsed tree ({@link TreeSpecDocument}), or an offset
+ * index over the raw bytes that parses an operation or component only when asked for it
+ * ({@link StreamedSpecDocument}). Nodes handed out are read-only.
+ */
+public interface SpecDocument {
+
+    /** Containers of reusable components, in the order they are indexed, and the bundle key each is listed under. */
+    List<String[]> COMPONENT_SECTIONS = List.of(
+            new String[]{"#/components/schemas/", "components_schemas"},
+            new String[]{"#/definitions/", "components_schemas"},
+            new String[]{"#/components/parameters/", "components_parameters"},
+            new String[]{"#/components/responses/", "components_responses"},
+            new String[]{"#/components/requestBodies/", "components_requestBodies"},
+            new String[]{"#/components/headers/", "components_headers"},
+            new String[]{"#/parameters/", "components_parameters"},
+            new String[]{"#/responses/", "components_responses"});
+
+    /** A component a $ref can point at. */
+    final class Component {
+        public final String ref;
+        public final String section;
+        public final String name;
+
+        public Component(String ref, String section, String name) {
+            this.ref = ref;
+            this.section = section;
+            this.name = name;
+        }
+    }
+
+    /** Path templates in document order. */
+    List<String> paths();
+
+    /** Field names of a path item in document order (normally its methods), empty if there is no such path. */
+    List<String> methods(String path);
+
+    /** An operation of a path template, or a missing node. */
+    JsonNode operation(String method, String path);
+
+    /** Summary of the operation under a path item field, or empty. */
+    String summary(String path, String field);
+
+    /** Tags of the operation under a path item field. */
+    List<String> tags(String path, String field);
+
+    /** The node a local "#/..." pointer targets, or null. */
+    JsonNode resolve(String ref);
+
+    /** A top-level field other than paths and the component containers, or a missing node. */
+    JsonNode top(String field);
+
+    /** The indexed components, in {@link #COMPONENT_SECTIONS} order and document order within each. */
+    List<Component> components();
+
+    JsonNode component(int index);
+
+    /** Every $ref string inside a component. */
+    Set<String> refs(int index);
+
+    /** Whether nodes are already in memory, so that their serialised forms are worth caching. */
+    boolean resident();
+
+    static String escape(String name) {
+        return name.replace("~", "~0").replace("/", "~1");
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.jmeterai.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Raw bytes of a spec document with random access, so a streamed document can re-read one entry
+ * by its offsets. Backed by an array, or by a file that is opened per read and closed again, so no
+ * descriptor is held between reads and the file may be renamed meanwhile. The file must never be
+ * rewritten in place: the spec cache names snapshots by their content for that reason.
+ */
+public interface SpecSource {
+
+    long length();
+
+    /** Bytes [start, end). */
+    byte[] read(long start, long end) throws IOException;
+
+    /** The whole document, streamed from the start. */
+    InputStream open() throws IOException;
+
+    static SpecSource of(byte[] bytes) {
+        return new SpecSource() {
+            public long length() {
+                return bytes.length;
+            }
+
+            public byte[] read(long start, long end) {
+                return java.util.Arrays.copyOfRange(bytes, (int) start, (int) end);
+            }
+
+            public InputStream open() {
+                return new java.io.ByteArrayInputStream(bytes);
+            }
+        };
+    }
+
+    static SpecSource of(Path file) throws IOException {
+        long length = java.nio.file.Files.size(file);
+        return new SpecSource() {
+            public long length() {
+                return length;
+            }
+
+            public byte[] read(long start, long end) throws IOException {
+                ByteBuffer buf = ByteBuffer.allocate(Math.toIntExact(end - start));
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    while (buf.hasRemaining()) {
+                        if (channel.read(buf, start + buf.position()) < 0) throw new java.io.EOFException(file.toString());
+                    }
+                }
+                return buf.array();
+            }
+
+            public InputStream open() throws IOException {
+                // The channel is closed with the stream
+                return new java.io.BufferedInputStream(Channels.newInputStream(FileChannel.open(file, StandardOpenOption.READ)), 64 * 1024);
+            }
+        };
+    }
+}
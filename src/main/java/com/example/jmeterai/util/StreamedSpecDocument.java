@@ -0,0 +1,301 @@
+package com.example.jmeterai.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A spec read in one pass over Jackson's token stream. Paths and component containers are not
+ * built into a tree: the pass records, for each path item, operation and component, the byte range
+ * of its value, plus operation summaries and tags and the $refs inside each component. Everything
+ * else (info, servers, security, ...) is small and kept as a tree. An operation or component is
+ * parsed from its range when asked for and not retained, so the heap holds the offset index and at
+ * most the entries currently in use rather than the whole document.
+ */
+public class StreamedSpecDocument implements SpecDocument {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final SpecSource source;
+    private final ObjectNode skeleton = MAPPER.createObjectNode();
+    private final Map<String, PathEntry> paths = new LinkedHashMap<>();
+    private final List<String> pathNames;
+    private final List<Component> components = new ArrayList<>();
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, Integer> byRef = new HashMap<>();
+
+    /** Where a value sits in the source; values that are not objects or arrays are kept as they are. */
+    private static class Entry {
+        long start;
+        long end;
+        JsonNode inline;
+        Set<String> refs = Set.of();
+        String summary = "";
+        List<String> tags = List.of();
+    }
+
+    private static class PathEntry {
+        Entry item;
+        final Map<String, Entry> fields = new LinkedHashMap<>();
+    }
+
+    public StreamedSpecDocument(SpecSource source) throws IOException {
+        this.source = source;
+        Map<String, Map<String, Entry>> containers = new HashMap<>();
+        try (InputStream in = source.open(); JsonParser p = MAPPER.createParser(in)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) throw new RuntimeException("接口文档不是JSON或无法解析");
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                if (field.equals("paths") && value == JsonToken.START_OBJECT) {
+                    scanPaths(p);
+                } else if (field.equals("components") && value == JsonToken.START_OBJECT) {
+                    ObjectNode rest = MAPPER.createObjectNode();
+                    while (p.nextToken() == JsonToken.FIELD_NAME) {
+                        String type = p.currentName();
+                        JsonToken v = p.nextToken();
+                        String prefix = "#/components/" + type + "/";
+                        if (v == JsonToken.START_OBJECT && isSection(prefix)) {
+                            containers.put(prefix, scanContainer(p));
+                        } else {
+                            rest.set(type, p.readValueAsTree());
+                        }
+                    }
+                    skeleton.set(field, rest);
+                } else if (value == JsonToken.START_OBJECT && isSection("#/" + field + "/")) {
+                    containers.put("#/" + field + "/", scanContainer(p));
+                } else {
+                    skeleton.set(field, p.readValueAsTree());
+                }
+            }
+        }
+        for (String[] section : COMPONENT_SECTIONS) {
+            Map<String, Entry> container = containers.get(section[0]);
+            if (container == null) continue;
+            container.forEach((name, entry) -> {
+                String ref = section[0] + SpecDocument.escape(name);
+                byRef.put(ref, components.size());
+                components.add(new Component(ref, section[1], name));
+                entries.add(entry);
+            });
+        }
+        pathNames = Collections.unmodifiableList(new ArrayList<>(paths.keySet()));
+    }
+
+    @Override
+    public List<String> paths() {
+        return pathNames;
+    }
+
+    @Override
+    public List<String> methods(String path) {
+        PathEntry entry = paths.get(path);
+        return entry == null ? List.of() : new ArrayList<>(entry.fields.keySet());
+    }
+
+    @Override
+    public JsonNode operation(String method, String path) {
+        PathEntry entry = paths.get(path);
+        return entry == null ? MissingNode.getInstance() : materialise(entry.fields.get(method.toLowerCase()));
+    }
+
+    @Override
+    public String summary(String path, String field) {
+        PathEntry entry = paths.get(path);
+        Entry op = entry == null ? null : entry.fields.get(field);
+        return op == null ? "" : op.summary;
+    }
+
+    @Override
+    public List<String> tags(String path, String field) {
+        PathEntry entry = paths.get(path);
+        Entry op = entry == null ? null : entry.fields.get(field);
+        return op == null ? List.of() : op.tags;
+    }
+
+    @Override
+    public JsonNode resolve(String ref) {
+        if (ref == null || !ref.startsWith("#/")) return null;
+        JsonNode target;
+        if (ref.startsWith("#/paths/")) {
+            String[] parts = ref.substring("#/paths/".length()).split("/", 3);
+            PathEntry entry = paths.get(unescape(parts[0]));
+            if (entry == null) return null;
+            if (parts.length == 1) {
+                target = materialise(entry.item);
+            } else {
+                target = materialise(entry.fields.get(unescape(parts[1])));
+                if (parts.length == 3) target = target.at("/" + parts[2]);
+            }
+        } else {
+            target = null;
+            for (String[] section : COMPONENT_SECTIONS) {
+                if (!ref.startsWith(section[0])) continue;
+                String rest = ref.substring(section[0].length());
+                int slash = rest.indexOf('/');
+                Integer id = byRef.get(section[0] + (slash < 0 ? rest : rest.substring(0, slash)));
+                if (id == null) return null;
+                target = component(id);
+                if (slash >= 0) target = target.at(rest.substring(slash));
+                break;
+            }
+            if (target == null) target = skeleton.at(ref.substring(1));
+        }
+        return target.isMissingNode() ? null : target;
+    }
+
+    @Override
+    public JsonNode top(String field) {
+        JsonNode node = skeleton.get(field);
+        return node == null ? MissingNode.getInstance() : node;
+    }
+
+    @Override
+    public List<Component> components() {
+        return components;
+    }
+
+    @Override
+    public JsonNode component(int index) {
+        return materialise(entries.get(index));
+    }
+
+    @Override
+    public Set<String> refs(int index) {
+        return entries.get(index).refs;
+    }
+
+    @Override
+    public boolean resident() {
+        return false;
+    }
+
+    private JsonNode materialise(Entry entry) {
+        if (entry == null) return MissingNode.getInstance();
+        if (entry.inline != null) return entry.inline;
+        try {
+            return MAPPER.readTree(source.read(entry.start, entry.end));
+        } catch (IOException e) {
+            throw new IllegalStateException("接口文档读取失败: " + e.getMessage(), e);
+        }
+    }
+
+    private void scanPaths(JsonParser p) throws IOException {
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String path = p.currentName();
+            PathEntry entry = new PathEntry();
+            JsonToken value = p.nextToken();
+            if (value == JsonToken.START_OBJECT) {
+                entry.item = new Entry();
+                entry.item.start = p.getTokenLocation().getByteOffset();
+                while (p.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = p.currentName();
+                    p.nextToken();
+                    entry.fields.put(field, scanOperation(p));
+                }
+                entry.item.end = p.getTokenLocation().getByteOffset() + 1;
+            } else {
+                entry.item = scan(p, null);
+            }
+            paths.put(path, entry);
+        }
+    }
+
+    /** Like {@link #scan}, also picking up the operation's own summary and tags. */
+    private Entry scanOperation(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_OBJECT) return scan(p, null);
+        Entry entry = new Entry();
+        entry.start = p.getTokenLocation().getByteOffset();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            if (field.equals("summary")) {
+                entry.summary = value.isScalarValue() && value != JsonToken.VALUE_NULL ? p.getText() : "";
+                if (value.isStructStart()) p.skipChildren();
+            } else if (field.equals("tags") && value == JsonToken.START_ARRAY) {
+                List<String> tags = new ArrayList<>();
+                for (JsonToken t = p.nextToken(); t != JsonToken.END_ARRAY; t = p.nextToken()) {
+                    if (t.isStructStart()) {
+                        p.skipChildren();
+                        tags.add("");
+                    } else {
+                        tags.add(t == JsonToken.VALUE_NULL ? "null" : p.getText());
+                    }
+                }
+                entry.tags = tags;
+            } else if (value.isStructStart()) {
+                p.skipChildren();
+            }
+        }
+        entry.end = p.getTokenLocation().getByteOffset() + 1;
+        return entry;
+    }
+
+    private Map<String, Entry> scanContainer(JsonParser p) throws IOException {
+        Map<String, Entry> out = new LinkedHashMap<>();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.currentName();
+            p.nextToken();
+            Set<String> refs = new LinkedHashSet<>();
+            Entry entry = scan(p, refs);
+            entry.refs = refs.isEmpty() ? Set.of() : refs;
+            out.put(name, entry);
+        }
+        return out;
+    }
+
+    /** Records the range of the value at the current token and moves past it, collecting $refs when asked to. */
+    private Entry scan(JsonParser p, Set<String> refs) throws IOException {
+        Entry entry = new Entry();
+        if (!p.currentToken().isStructStart()) {
+            entry.inline = p.readValueAsTree();
+            return entry;
+        }
+        entry.start = p.getTokenLocation().getByteOffset();
+        if (refs == null) {
+            p.skipChildren();
+        } else {
+            int depth = 1;
+            while (depth > 0) {
+                JsonToken t = p.nextToken();
+                if (t == null) throw new IOException("接口文档不完整");
+                if (t.isStructStart()) {
+                    depth++;
+                } else if (t.isStructEnd()) {
+                    depth--;
+                } else if (t == JsonToken.FIELD_NAME && p.currentName().equals("$ref")) {
+                    JsonToken value = p.nextToken();
+                    if (value == JsonToken.VALUE_STRING) refs.add(p.getText());
+                    else if (value.isStructStart()) depth++;
+                }
+            }
+        }
+        entry.end = p.getTokenLocation().getByteOffset() + 1;
+        return entry;
+    }
+
+    private static boolean isSection(String prefix) {
+        for (String[] section : COMPONENT_SECTIONS) {
+            if (section[0].equals(prefix)) return true;
+        }
+        return false;
+    }
+
+    private static String unescape(String token) {
+        return token.replace("~1", "/").replace("~0", "~");
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.jmeterai.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/** A spec parsed into one Jackson tree, held for as long as the document is. */
+public class TreeSpecDocument implements SpecDocument {
+
+    private final JsonNode root;
+    private final List<Component> components = new ArrayList<>();
+    private final List<JsonNode> nodes = new ArrayList<>();
+
+    public TreeSpecDocument(JsonNode root) {
+        this.root = root;
+        Set<String> seen = new HashSet<>();
+        for (String[] section : COMPONENT_SECTIONS) {
+            JsonNode container = root.at(section[0].substring(1, section[0].length() - 1));
+            if (!container.isObject()) continue;
+            container.fields().forEachRemaining(e -> {
+                String ref = section[0] + SpecDocument.escape(e.getKey());
+                if (!seen.add(ref)) return;
+                components.add(new Component(ref, section[1], e.getKey()));
+                nodes.add(e.getValue());
+            });
+        }
+    }
+
+    @Override
+    public List<String> paths() {
+        List<String> out = new ArrayList<>();
+        root.path("paths").fieldNames().forEachRemaining(out::add);
+        return out;
+    }
+
+    @Override
+    public List<String> methods(String path) {
+        List<String> out = new ArrayList<>();
+        root.path("paths").path(path).fieldNames().forEachRemaining(out::add);
+        return out;
+    }
+
+    @Override
+    public JsonNode operation(String method, String path) {
+        return root.path("paths").path(path).path(method.toLowerCase());
+    }
+
+    @Override
+    public String summary(String path, String field) {
+        return root.path("paths").path(path).path(field).path("summary").asText("");
+    }
+
+    @Override
+    public List<String> tags(String path, String field) {
+        List<String> out = new ArrayList<>();
+        JsonNode tags = root.path("paths").path(path).path(field).path("tags");
+        if (tags.isArray()) tags.forEach(t -> out.add(t.asText()));
+        return out;
+    }
+
+    @Override
+    public JsonNode resolve(String ref) {
+        if (ref == null || !ref.startsWith("#/")) return null;
+        JsonNode target = root.at(ref.substring(1));
+        return target.isMissingNode() ? null : target;
+    }
+
+    @Override
+    public JsonNode top(String field) {
+        JsonNode node = root.get(field);
+        return node == null ? MissingNode.getInstance() : node;
+    }
+
+    @Override
+    public List<Component> components() {
+        return components;
+    }
+
+    @Override
+    public JsonNode component(int index) {
+        return nodes.get(index);
+    }
+
+    @Override
+    public Set<String> refs(int index) {
+        Set<String> out = new LinkedHashSet<>();
+        collect(nodes.get(index), out);
+        return out;
+    }
+
+    @Override
+    public boolean resident() {
+        return true;
+    }
+
+    private static void collect(JsonNode node, Set<String> out) {
+        if (node.isObject()) {
+            JsonNode ref = node.get("$ref");
+            if (ref != null && ref.isTextual()) out.add(ref.asText());
+            for (JsonNode child : node) collect(child, out);
+        } else if (node.isArray()) {
+            for (JsonNode child : node) collect(child, out);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.jmeterai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyRecorderTest {
+
+    private static final long HOUR_MICROS = 3_600_000_000L;
+
+    /** Powers of two and their neighbours, where the bucket layout changes. */
+    private static List<Long> edges() {
+        List<Long> out = new ArrayList<>();
+        for (int shift = 0; (1L << shift) <= HOUR_MICROS; shift++) {
+            long v = 1L << shift;
+            out.add(v - 1);
+            out.add(v);
+            out.add(v + 1);
+        }
+        out.add(HOUR_MICROS);
+        return out;
+    }
+
+    @Test
+    void valuesMapIntoABucketThatCoversThem() {
+        for (long v : edges()) {
+            int index = LatencyRecorder.countsIndex(v);
+            long upper = LatencyRecorder.highestEquivalent(index);
+            assertTrue(upper >= v, "upper bound " + upper + " below " + v);
+            assertTrue(index == 0 || LatencyRecorder.highestEquivalent(index - 1) < v, "previous bucket also covers " + v);
+            if (v < 256) assertEquals(v, upper, "values below 256 µs are exact");
+            else assertTrue(upper - v < v / 100.0, "more than 1% error at " + v);
+        }
+    }
+
+    @Test
+    void bucketBoundsRoundTrip() {
+        int last = LatencyRecorder.countsIndex(HOUR_MICROS);
+        for (int index = 0; index < last; index++) {
+            long upper = LatencyRecorder.highestEquivalent(index);
+            assertEquals(index, LatencyRecorder.countsIndex(upper));
+            assertEquals(index + 1, LatencyRecorder.countsIndex(upper + 1));
+        }
+    }
+
+    @Test
+    void percentilesMatchASortedReference() {
+        Random random = new Random(42);
+        int n = 100_000;
+        long[] values = new long[n];
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (int i = 0; i < n; i++) {
+            // Log-normal around 20 ms with a long tail
+            values[i] = Math.max(1, (long) Math.exp(Math.log(20_000) + random.nextGaussian()));
+            recorder.record(values[i]);
+        }
+        Arrays.sort(values);
+        assertEquals(n, recorder.count());
+        assertEquals(values[n - 1], recorder.maxMicros());
+        for (double p : new double[]{0, 1, 25, 50, 75, 90, 95, 99, 99.9, 99.99, 100}) {
+            long expected = values[(int) Math.max(0, Math.ceil(p / 100 * n) - 1)];
+            long actual = recorder.percentileMicros(p);
+            assertTrue(actual >= expected && actual - expected <= expected / 100, "p" + p + ": " + actual + " vs " + expected);
+        }
+    }
+
+    @Test
+    void histogramExportsTheSamePercentiles() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (long v = 1; v <= 5_000_000; v = v * 3 / 2 + 1) recorder.record(v);
+        long[][] histogram = recorder.histogram();
+        assertEquals(recorder.count(), RegressionStats.count(histogram));
+        for (double p : LatencyRecorder.SPECTRUM) {
+            assertEquals(recorder.percentileMicros(p), Math.min(RegressionStats.percentileMicros(histogram, p), recorder.maxMicros()));
+        }
+    }
+
+    @Test
+    void emptyRecorderReportsZero() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        assertEquals(0, recorder.percentileMicros(99));
+        assertEquals(0, recorder.spectrum().count);
+        assertEquals(0, recorder.histogram().length);
+    }
+}
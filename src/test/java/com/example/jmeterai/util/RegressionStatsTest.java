@@ -0,0 +1,93 @@
+package com.example.jmeterai.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegressionStatsTest {
+
+    private static long[][] histogram(long... values) {
+        long[][] out = new long[values.length][];
+        for (int i = 0; i < values.length; i++) out[i] = new long[]{values[i], 1};
+        return out;
+    }
+
+    @Test
+    void mannWhitneyTortoiseAndHare() {
+        // Finishing order THHHHHTTTTTH: the tortoises (candidate) win U = 25 of the 36 pairs, the hares 11
+        long[][] hares = histogram(2, 3, 4, 5, 6, 12);
+        long[][] tortoises = histogram(1, 7, 8, 9, 10, 11);
+        RegressionStats.RankTest t = RegressionStats.mannWhitney(hares, tortoises);
+        assertEquals(25 / 36.0, t.probabilityOfIncrease, 1e-12);
+        // Normal approximation: mean 18, variance 6 * 6 * 13 / 12 = 39, continuity corrected
+        assertEquals(1 - RegressionStats.normalCdf(6.5 / Math.sqrt(39)), t.pIncrease, 1e-12);
+        assertEquals(0.1490, t.pIncrease, 1e-4);
+        assertEquals(RegressionStats.normalCdf(7.5 / Math.sqrt(39)), t.pDecrease, 1e-12);
+
+        RegressionStats.RankTest reverse = RegressionStats.mannWhitney(tortoises, hares);
+        assertEquals(11 / 36.0, reverse.probabilityOfIncrease, 1e-12);
+        assertEquals(t.pIncrease, reverse.pDecrease, 1e-12);
+    }
+
+    @Test
+    void mannWhitneyUsesMidranksAndTieCorrection() {
+        // Baseline 1, 2, 2, 3 against candidate 2, 3, 3, 4: ranks 1, 3, 3, 3, 6, 6, 6, 8
+        long[][] baseline = {{1, 1}, {2, 2}, {3, 1}};
+        long[][] candidate = {{2, 1}, {3, 2}, {4, 1}};
+        RegressionStats.RankTest t = RegressionStats.mannWhitney(baseline, candidate);
+        double u = 3 + 6 + 6 + 8 - 10;
+        assertEquals(u / 16, t.probabilityOfIncrease, 1e-12);
+        double ties = (27 - 3) + (27 - 3);
+        double variance = 16 / 12.0 * (9 - ties / (8 * 7));
+        assertEquals(1 - RegressionStats.normalCdf((u - 8 - 0.5) / Math.sqrt(variance)), t.pIncrease, 1e-12);
+    }
+
+    @Test
+    void mannWhitneyWithoutSpreadIsInconclusive() {
+        RegressionStats.RankTest same = RegressionStats.mannWhitney(new long[][]{{100, 5}}, new long[][]{{100, 7}});
+        assertEquals(0.5, same.probabilityOfIncrease, 1e-12);
+        assertEquals(1, same.pIncrease);
+        RegressionStats.RankTest empty = RegressionStats.mannWhitney(new long[0][], histogram(1, 2));
+        assertEquals(1, empty.pIncrease);
+        assertEquals(1, empty.pDecrease);
+    }
+
+    @Test
+    void normalCdfMatchesTables() {
+        assertEquals(0.5, RegressionStats.normalCdf(0), 1e-7);
+        assertEquals(0.975, RegressionStats.normalCdf(1.959964), 1e-6);
+        assertEquals(0.05, RegressionStats.normalCdf(-1.644854), 1e-6);
+    }
+
+    @Test
+    void holmAdjustsInAscendingOrderAndStaysMonotone() {
+        double[] adjusted = RegressionStats.holm(new double[]{0.01, 0.04, 0.03, 0.005, Double.NaN});
+        // Sorted: 0.005 * 4, 0.01 * 3, 0.03 * 2, then 0.04 * 1 lifted to the running maximum
+        assertArrayEquals(new double[]{0.03, 0.06, 0.06, 0.02, Double.NaN}, adjusted, 1e-12);
+        assertArrayEquals(new double[]{1, 1}, RegressionStats.holm(new double[]{0.6, 0.9}), 1e-12);
+        assertEquals(0, RegressionStats.holm(new double[0]).length);
+    }
+
+    @Test
+    void percentileOfAnExportedHistogram() {
+        long[][] h = {{10, 1}, {20, 2}, {30, 1}};
+        assertEquals(10, RegressionStats.percentileMicros(h, 0));
+        assertEquals(10, RegressionStats.percentileMicros(h, 25));
+        assertEquals(20, RegressionStats.percentileMicros(h, 26));
+        assertEquals(20, RegressionStats.percentileMicros(h, 75));
+        assertEquals(30, RegressionStats.percentileMicros(h, 99));
+        assertEquals(30, RegressionStats.percentileMicros(h, 150));
+        assertEquals(0, RegressionStats.percentileMicros(new long[0][], 50));
+    }
+
+    @Test
+    void mergeSumsMatchingBounds() {
+        long[][] merged = RegressionStats.merge(List.of(new long[][]{{10, 1}, {30, 2}}, new long[][]{{20, 4}, {30, 1}}));
+        assertArrayEquals(new long[][]{{10, 1}, {20, 4}, {30, 3}}, merged);
+        assertTrue(RegressionStats.proportionIncrease(1, 100, 10, 100) < 0.01);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.jmeterai.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** The streamed document must answer every query exactly as the parsed tree does. */
+class StreamedSpecDocumentTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path tmp;
+
+    private static byte[] spec(String name) throws IOException {
+        try (InputStream in = StreamedSpecDocumentTest.class.getResourceAsStream("/specs/" + name)) {
+            return in.readAllBytes();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"swagger2.json", "openapi31.json"})
+    void answersLikeTheTree(String name) throws IOException {
+        byte[] raw = spec(name);
+        Path file = tmp.resolve(name);
+        Files.write(file, raw);
+        SpecDocument tree = new TreeSpecDocument(MAPPER.readTree(raw));
+        SpecDocument streamed = new StreamedSpecDocument(SpecSource.of(file));
+        assertTrue(tree.resident());
+        assertFalse(streamed.resident());
+
+        assertEquals(tree.paths(), streamed.paths());
+        assertEquals(List.of(), streamed.methods("/nope"));
+        for (String path : tree.paths()) {
+            assertEquals(tree.methods(path), streamed.methods(path), path);
+            for (String method : tree.methods(path)) {
+                assertEquals(tree.operation(method, path), streamed.operation(method, path), method + " " + path);
+                assertEquals(tree.summary(path, method), streamed.summary(path, method));
+                assertEquals(tree.tags(path, method), streamed.tags(path, method));
+            }
+        }
+        assertTrue(streamed.operation("get", "/nope").isMissingNode());
+
+        for (String field : List.of("info", "servers", "host", "basePath", "security", "x-ext", "nope")) {
+            assertEquals(tree.top(field), streamed.top(field), field);
+        }
+
+        List<SpecDocument.Component> components = tree.components();
+        assertEquals(components.size(), streamed.components().size());
+        assertFalse(components.isEmpty());
+        List<String> pointers = new ArrayList<>(List.of("#/info/title", "#/paths/~1a~1{id}/get/responses", "#/nope", "#/", "other.json#/X"));
+        for (int i = 0; i < components.size(); i++) {
+            SpecDocument.Component c = components.get(i);
+            SpecDocument.Component s = streamed.components().get(i);
+            assertEquals(c.ref, s.ref);
+            assertEquals(c.section, s.section);
+            assertEquals(c.name, s.name);
+            assertEquals(tree.component(i), streamed.component(i), c.ref);
+            assertEquals(tree.refs(i), streamed.refs(i), c.ref);
+            pointers.add(c.ref);
+            pointers.add(c.ref + "/properties");
+        }
+        for (String pointer : pointers) {
+            assertEquals(tree.resolve(pointer), streamed.resolve(pointer), pointer);
+        }
+
+        OpenApiIndex treeIndex = new OpenApiIndex(tree);
+        OpenApiIndex streamedIndex = new OpenApiIndex(streamed);
+        assertEquals(treeIndex.size(), streamedIndex.size());
+        for (String path : tree.paths()) {
+            for (String method : tree.methods(path)) {
+                assertEquals(treeIndex.endpointJson(method, path), streamedIndex.endpointJson(method, path), method + " " + path);
+            }
+        }
+        assertEquals(treeIndex.endpointJson("GET", "/nope"), streamedIndex.endpointJson("GET", "/nope"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"swagger2.json", "openapi31.json"})
+    void extractorDescribesBothTheSame(String name) throws IOException {
+        byte[] raw = spec(name);
+        OpenApiExtractor extractor = new OpenApiExtractor();
+        OpenApiExtractor.OpenApiInfo parsed = extractor.open(SpecSource.of(raw), "http://localhost:1/spec.json", Long.MAX_VALUE);
+        OpenApiExtractor.OpenApiInfo streamed = extractor.open(SpecSource.of(raw), "http://localhost:1/spec.json", 0);
+        assertInstanceOf(TreeSpecDocument.class, parsed.document);
+        assertInstanceOf(StreamedSpecDocument.class, streamed.document);
+        assertEquals(parsed.rawPreview, streamed.rawPreview);
+        assertEquals(parsed.endpointsPreview, streamed.endpointsPreview);
+        assertEquals(parsed.baseUrl, streamed.baseUrl);
+        assertEquals(parsed.endpoints.size(), streamed.endpoints.size());
+        for (int i = 0; i < parsed.endpoints.size(); i++) {
+            assertEquals(parsed.endpoints.get(i).method, streamed.endpoints.get(i).method);
+            assertEquals(parsed.endpoints.get(i).path, streamed.endpoints.get(i).path);
+            assertEquals(parsed.endpoints.get(i).tags, streamed.endpoints.get(i).tags);
+        }
+    }
+}